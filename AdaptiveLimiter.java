@@ -0,0 +1,439 @@
+package com.oniox.learn;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A concurrency limit that adapts to observed latency, for putting in front of an executor in
+ * place of fixed pool and queue sizes. {@code AsyncConfig.taskExecutor} is sized at two to four
+ * threads with a queue of 100, so under load requests wait in the queue until they time out,
+ * and when the downstream is fast the pool caps throughput for no reason.
+ * <p>
+ * Each task holds a permit from acquisition until it finishes, and the time between the two is
+ * one latency sample. The limit moves with the samples:
+ * <ul>
+ *     <li>{@link Algorithm#AIMD}: grows by one per limit's worth of samples that stay under
+ *     {@code dropLatency} while the limit is in use, and shrinks by {@code backoffRatio} on every
+ *     sample over it or reported as dropped.</li>
+ *     <li>{@link Algorithm#GRADIENT} (default): compares a short-term average latency with a
+ *     long-term one. The limit is scaled by their ratio (allowing {@code tolerance} times the
+ *     long-term latency before backing off), plus a headroom of its square root so it can probe
+ *     upwards, and smoothed. A slowing downstream therefore lowers the limit before anything
+ *     times out; drops halve it.</li>
+ * </ul>
+ * Neither grows the limit while less than half of it is in use.
+ * <p>
+ * When the limit is reached, a task waits up to {@code maxQueueWait} for a permit (by default it
+ * does not wait), and no more tasks wait than the limit allows to run. Anything else is shed at
+ * once with a {@link LimitExceededException}, rather than queued until it times out.
+ * {@link #stats()} exposes the limit, the tasks in flight and queued, rejections and queue waits.
+ *
+ * <pre>
+ * AdaptiveLimiter limiter = AdaptiveLimiter.builder()
+ *         .limits(2, 4, 64)
+ *         .maxQueueWait(Duration.ofMillis(50))
+ *         .build();
+ * Executor taskExecutor = limiter.wrap(Executors.newCachedThreadPool());
+ * </pre>
+ */
+public final class AdaptiveLimiter {
+
+    /**
+     * How the limit reacts to latency samples.
+     */
+    public enum Algorithm {
+        /** Additive increase, multiplicative decrease on drops and slow samples. */
+        AIMD,
+        /** Scales the limit by the ratio of long-term to short-term latency. */
+        GRADIENT
+    }
+
+    /**
+     * Thrown when a task is shed because the limit and its queue are full.
+     */
+    public static final class LimitExceededException extends RejectedExecutionException {
+
+        private static final long serialVersionUID = 1L;
+
+        LimitExceededException(int limit) {
+            super("Concurrency limit of " + limit + " reached");
+        }
+    }
+
+    /**
+     * A snapshot of the limiter.
+     *
+     * @param limit             The current concurrency limit
+     * @param inFlight          Tasks holding a permit
+     * @param queued            Tasks waiting for a permit
+     * @param acquired          Permits granted since the limiter was built
+     * @param rejected          Tasks shed since the limiter was built
+     * @param queueWaitNanos    Total time granted tasks waited for their permits
+     * @param maxQueueWaitNanos The longest time a granted task waited
+     */
+    public record Stats(int limit, int inFlight, int queued, long acquired, long rejected, long queueWaitNanos,
+                        long maxQueueWaitNanos) {
+
+        /**
+         * @return The fraction of tasks shed, or 0 before the first task
+         */
+        public double rejectionRate() {
+            long total = acquired + rejected;
+            return total == 0 ? 0 : (double) rejected / total;
+        }
+
+        /**
+         * @return The mean time granted tasks waited for their permits, in microseconds
+         */
+        public double meanQueueWaitMicros() {
+            return acquired == 0 ? 0 : queueWaitNanos / 1e3 / acquired;
+        }
+    }
+
+    /**
+     * The right to run one task; release exactly once.
+     */
+    public final class Permit {
+        private final long start = System.nanoTime();
+        private final int inFlightAtStart;
+        private boolean released;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Releases the permit and records the task's latency.
+         */
+        public void release() {
+            release(false);
+        }
+
+        /**
+         * Releases the permit, reporting the task as dropped by the downstream (timed out or
+         * rejected), which the limiter treats as overload whatever the latency.
+         */
+        public void dropped() {
+            release(true);
+        }
+
+        /**
+         * Releases the permit without recording a sample, for tasks that never reached the
+         * downstream.
+         */
+        public void ignore() {
+            synchronized (lock) {
+                if (checkRelease()) {
+                    releasePermit();
+                }
+            }
+        }
+
+        private void release(boolean dropped) {
+            long latency = System.nanoTime() - start;
+            synchronized (lock) {
+                if (checkRelease()) {
+                    sample(latency, inFlightAtStart, dropped || latency > dropLatencyNanos);
+                    releasePermit();
+                }
+            }
+        }
+
+        private boolean checkRelease() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            return true;
+        }
+    }
+
+    private static final double LONG_WINDOW = 600;
+    private static final double SHORT_WINDOW = 10;
+    private static final double SMOOTHING = 0.2;
+
+    private final Algorithm algorithm;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxQueueWaitNanos;
+    private final long dropLatencyNanos;
+    private final double backoffRatio;
+    private final double tolerance;
+
+    private final Object lock = new Object();
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private double shortLatency;
+    private double longLatency;
+    private long acquired;
+    private long rejected;
+    private long queueWaitNanos;
+    private long maxQueueWait;
+
+    private AdaptiveLimiter(Builder builder) {
+        this.algorithm = builder.algorithm;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.limit = builder.initialLimit;
+        this.maxQueueWaitNanos = builder.maxQueueWait.toNanos();
+        this.dropLatencyNanos = builder.dropLatency.toNanos();
+        this.backoffRatio = builder.backoffRatio;
+        this.tolerance = builder.tolerance;
+    }
+
+    /**
+     * @return A new builder for an AdaptiveLimiter
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Takes a permit, waiting up to {@code maxQueueWait} if the limit is reached.
+     *
+     * @return The permit
+     * @throws LimitExceededException If no permit came free in time, the queue was full or the
+     *                                thread was interrupted while waiting
+     */
+    public Permit acquire() {
+        synchronized (lock) {
+            if (inFlight < (int) limit) {
+                return grant(0);
+            }
+            if (maxQueueWaitNanos == 0 || queued >= (int) limit) {
+                throw reject();
+            }
+            long start = System.nanoTime();
+            long remaining = maxQueueWaitNanos;
+            queued++;
+            try {
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        throw reject();
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    remaining = maxQueueWaitNanos - (System.nanoTime() - start);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject();
+            } finally {
+                queued--;
+            }
+            return grant(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Wraps an executor so that every task first takes a permit, released when the task ends.
+     * Time spent in the delegate's queue counts towards the task's latency.
+     *
+     * @param delegate Runs the tasks; should have at least {@code maxLimit} threads, or its own
+     *                 queueing hides latency from the limiter
+     * @return An executor whose {@code execute} throws {@link LimitExceededException} when shedding
+     */
+    public Executor wrap(Executor delegate) {
+        return task -> {
+            Permit permit = acquire();
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permit.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                permit.ignore();
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * @return The current limit
+     */
+    public int limit() {
+        synchronized (lock) {
+            return (int) limit;
+        }
+    }
+
+    /**
+     * @return A snapshot of the limit, load and counters
+     */
+    public Stats stats() {
+        synchronized (lock) {
+            return new Stats((int) limit, inFlight, queued, acquired, rejected, queueWaitNanos, maxQueueWait);
+        }
+    }
+
+    // Called with the lock held
+    private Permit grant(long waited) {
+        inFlight++;
+        acquired++;
+        queueWaitNanos += waited;
+        maxQueueWait = Math.max(maxQueueWait, waited);
+        return new Permit(inFlight);
+    }
+
+    // Called with the lock held
+    private LimitExceededException reject() {
+        rejected++;
+        return new LimitExceededException((int) limit);
+    }
+
+    // Called with the lock held
+    private void releasePermit() {
+        inFlight--;
+        lock.notifyAll();
+    }
+
+    // Called with the lock held
+    private void sample(long latency, int inFlightAtStart, boolean dropped) {
+        // The limit only grows on evidence that it was in use
+        boolean saturated = inFlightAtStart * 2 >= limit;
+        double next;
+        if (algorithm == Algorithm.AIMD) {
+            if (dropped) {
+                next = limit * backoffRatio;
+            } else {
+                next = saturated ? limit + 1 / limit : limit;
+            }
+        } else {
+            if (longLatency == 0) {
+                shortLatency = latency;
+                longLatency = latency;
+            } else {
+                shortLatency += (latency - shortLatency) / SHORT_WINDOW;
+                longLatency += (latency - longLatency) / LONG_WINDOW;
+            }
+            if (dropped) {
+                next = limit / 2;
+            } else {
+                // Once a slowdown is over, pull the long-term latency down quickly, so the next
+                // slowdown is measured against the recovered baseline
+                if (longLatency / shortLatency > 2) {
+                    longLatency *= 0.95;
+                }
+                double gradient = Math.max(0.5, Math.min(1, tolerance * longLatency / shortLatency));
+                next = limit * gradient + Math.sqrt(limit);
+                if (!saturated) {
+                    next = Math.min(next, limit);
+                }
+                next = limit * (1 - SMOOTHING) + next * SMOOTHING;
+            }
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+        lock.notifyAll();
+    }
+
+    /**
+     * Builder for {@link AdaptiveLimiter}.
+     */
+    public static final class Builder {
+
+        private Algorithm algorithm = Algorithm.GRADIENT;
+        private int minLimit = 1;
+        private int initialLimit = 4;
+        private int maxLimit = 64;
+        private Duration maxQueueWait = Duration.ZERO;
+        private Duration dropLatency = Duration.ofSeconds(10);
+        private double backoffRatio = 0.9;
+        private double tolerance = 2;
+
+        private Builder() {
+        }
+
+        /**
+         * @param algorithm How the limit adapts (default gradient)
+         * @return This builder
+         */
+        public Builder algorithm(Algorithm algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        /**
+         * @param minLimit     The lowest the limit goes (default 1)
+         * @param initialLimit The limit to start from (default 4)
+         * @param maxLimit     The highest the limit goes (default 64)
+         * @return This builder
+         * @throws IllegalArgumentException If minLimit is not positive or the limits are out of order
+         */
+        public Builder limits(int minLimit, int initialLimit, int maxLimit) {
+            if (minLimit <= 0 || initialLimit < minLimit || maxLimit < initialLimit) {
+                throw new IllegalArgumentException("Limits must satisfy 0 < min <= initial <= max");
+            }
+            this.minLimit = minLimit;
+            this.initialLimit = initialLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * @param maxQueueWait How long a task waits for a permit before being shed (default zero:
+         *                     shed at once)
+         * @return This builder
+         * @throws IllegalArgumentException If maxQueueWait is negative
+         */
+        public Builder maxQueueWait(Duration maxQueueWait) {
+            if (maxQueueWait.isNegative()) {
+                throw new IllegalArgumentException("Max queue wait cannot be negative");
+            }
+            this.maxQueueWait = maxQueueWait;
+            return this;
+        }
+
+        /**
+         * @param dropLatency The latency above which a task counts as dropped, normally the
+         *                    callers' timeout (default 10 s)
+         * @return This builder
+         * @throws IllegalArgumentException If dropLatency is not positive
+         */
+        public Builder dropLatency(Duration dropLatency) {
+            if (dropLatency.isNegative() || dropLatency.isZero()) {
+                throw new IllegalArgumentException("Drop latency must be positive");
+            }
+            this.dropLatency = dropLatency;
+            return this;
+        }
+
+        /**
+         * @param backoffRatio The factor AIMD multiplies the limit by on a drop (default 0.9)
+         * @return This builder
+         * @throws IllegalArgumentException If backoffRatio is not between 0.5 and 1, exclusive of 1
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            if (!(backoffRatio >= 0.5 && backoffRatio < 1)) {
+                throw new IllegalArgumentException("Backoff ratio must be at least 0.5 and below 1");
+            }
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * @param tolerance How many times its long-term latency the gradient algorithm accepts
+         *                  before lowering the limit (default 2)
+         * @return This builder
+         * @throws IllegalArgumentException If tolerance is below 1
+         */
+        public Builder tolerance(double tolerance) {
+            if (!(tolerance >= 1)) {
+                throw new IllegalArgumentException("Tolerance must be at least 1");
+            }
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * @return The configured limiter
+         */
+        public AdaptiveLimiter build() {
+            return new AdaptiveLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.oniox.learn;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * The gateway configuration read by {@code ApiGatewayParser}, as immutable records:
+ *
+ * <pre>
+ * apiGateways:
+ *   - name: "MainGateway"
+ *     endpoint:
+ *       targets:
+ *         links:
+ *           - displayName: "Get User Profile"
+ *             httpAction: "GET"
+ *             url: "https://api.example.com/users/{userId}/profile"
+ *             tokenAuth: true
+ *             payload: ""
+ * </pre>
+ *
+ * Missing lists read as empty. {@link RoutingIndex} compiles a configuration for lookups.
+ *
+ * @param apiGateways The gateways, in file order
+ */
+public record ApiGatewayConfig(List<ApiGateway> apiGateways) {
+
+    private static final ObjectMapper YAML = new ObjectMapper(new YAMLFactory())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    public ApiGatewayConfig {
+        apiGateways = apiGateways == null ? List.of() : List.copyOf(apiGateways);
+    }
+
+    /**
+     * @param name     The gateway's name
+     * @param endpoint Where the gateway forwards to
+     */
+    public record ApiGateway(String name, Endpoint endpoint) {
+
+        /**
+         * @return The gateway's links, or an empty list if it has none
+         */
+        public List<Link> links() {
+            return endpoint == null || endpoint.targets() == null ? List.of() : endpoint.targets().links();
+        }
+    }
+
+    /**
+     * @param targets The endpoint's targets
+     */
+    public record Endpoint(Targets targets) {
+    }
+
+    /**
+     * @param links The links, in file order
+     */
+    public record Targets(List<Link> links) {
+
+        public Targets {
+            links = links == null ? List.of() : List.copyOf(links);
+        }
+    }
+
+    /**
+     * One route.
+     *
+     * @param displayName The name the link is looked up by
+     * @param httpAction  The HTTP method, such as GET or POST
+     * @param url         The URL template; path segments in braces, such as {@code {userId}}, match any value
+     * @param tokenAuth   Whether the route requires a token
+     * @param payload     The request body template
+     */
+    public record Link(String displayName, String httpAction, String url, boolean tokenAuth, String payload) {
+    }
+
+    /**
+     * Reads a configuration from YAML.
+     *
+     * @param in The YAML, closed once read
+     * @return The configuration
+     * @throws IOException If reading fails or the YAML does not have the expected shape
+     */
+    public static ApiGatewayConfig parse(InputStream in) throws IOException {
+        ApiGatewayConfig config = YAML.readValue(in, ApiGatewayConfig.class);
+        return config == null ? new ApiGatewayConfig(null) : config;
+    }
+}
@@ -0,0 +1,343 @@
+package com.oniox.learn;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent point lookups into batch lookups, in the manner of DataLoader. This is the
+ * batching counterpart of {@code ConcurrentQueryService.executeConcurrentQueries}, which runs one
+ * {@code SELECT ... WHERE id = ?} per id, each on its own thread and pooled connection.
+ * <p>
+ * Keys passed to {@link #load} collect in a pending batch until the batch holds
+ * {@code maxBatchSize} distinct keys or {@code maxDelay} has passed since its first key, whichever
+ * comes first. The batch is then handed to the {@link BatchFunction} (typically an
+ * {@link InListQuery}) in one call, and each caller's future completes with the value for its key.
+ * A key requested again while its batch is pending shares the first request's future, so it is
+ * looked up once. Values are not cached: a key loaded after its batch was dispatched goes into the
+ * next batch.
+ * <p>
+ * Batches run on the configured executor, which bounds the number of batches (and so
+ * connections) in flight. By default they run one at a time on the loader's own timer thread.
+ *
+ * <pre>
+ * try (BatchLoader&lt;Integer, String&gt; loader = BatchLoader.&lt;Integer, String&gt;builder()
+ *         .batchFunction(InListQuery.builder(Integer.class, rs -&gt; rs.getString("column_name"))
+ *                 .dataSource(dataSource)
+ *                 .table("some_table")
+ *                 .build())
+ *         .maxBatchSize(100)
+ *         .maxDelay(Duration.ofMillis(2))
+ *         .build()) {
+ *     CompletableFuture&lt;String&gt; value = loader.load(42);
+ * }
+ * </pre>
+ *
+ * @param <K> The key type; keys are compared with equals and hashCode
+ * @param <V> The value type
+ */
+public final class BatchLoader<K, V> implements AutoCloseable {
+
+    /**
+     * Looks up a batch of keys.
+     *
+     * @param <K> The key type
+     * @param <V> The value type
+     */
+    @FunctionalInterface
+    public interface BatchFunction<K, V> {
+
+        /**
+         * @param keys Distinct keys, in the order they were first requested
+         * @return The values found; keys missing from the map complete with null
+         * @throws Exception If the lookup fails; every caller in the batch sees the failure
+         */
+        Map<K, V> load(List<K> keys) throws Exception;
+    }
+
+    /**
+     * Counters since the loader was built.
+     *
+     * @param loads   Calls for a single key, including those de-duplicated
+     * @param keys    Distinct keys dispatched
+     * @param batches Batches dispatched
+     * @param failed  Batches whose function threw
+     */
+    public record Stats(long loads, long keys, long batches, long failed) {
+
+        /**
+         * @return The mean number of distinct keys per batch, or 0 before the first batch
+         */
+        public double meanBatchSize() {
+            return batches == 0 ? 0 : (double) keys / batches;
+        }
+    }
+
+    private final BatchFunction<K, V> function;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Executor executor;
+
+    private final Object lock = new Object();
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+    // Incremented whenever the pending batch is taken, so a late timer leaves the next batch alone
+    private long generation;
+    private boolean closed;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder keys = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private BatchLoader(Builder<K, V> builder) {
+        this.function = builder.function;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxDelayNanos = builder.maxDelay.toNanos();
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "batch-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        this.executor = builder.executor != null ? builder.executor : timer;
+    }
+
+    /**
+     * @param <K> The key type
+     * @param <V> The value type
+     * @return A new builder for a BatchLoader
+     */
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Requests the value for a key.
+     *
+     * @param key The key
+     * @return A future that completes with the value, with null if the batch function found none,
+     * or exceptionally if the batch function failed
+     * @throws IllegalStateException If the loader is closed
+     */
+    public CompletableFuture<V> load(K key) {
+        Objects.requireNonNull(key, "key");
+        loads.increment();
+        CompletableFuture<V> future;
+        Map<K, CompletableFuture<V>> full = null;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Loader is closed");
+            }
+            future = pending.get(key);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            pending.put(key, future);
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            } else if (pending.size() == 1) {
+                long scheduled = generation;
+                timer.schedule(() -> flush(scheduled), maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    /**
+     * Requests the values for several keys, which join the pending batch together.
+     *
+     * @param keys The keys
+     * @return A future that completes with the value for each key that has one, or exceptionally if
+     * any batch function call failed
+     * @throws IllegalStateException If the loader is closed
+     */
+    public CompletableFuture<Map<K, V>> loadAll(Collection<? extends K> keys) {
+        Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        for (K key : keys) {
+            futures.computeIfAbsent(key, this::load);
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<K, V> values = new LinkedHashMap<>();
+            futures.forEach((key, future) -> {
+                V value = future.join();
+                if (value != null) {
+                    values.put(key, value);
+                }
+            });
+            return values;
+        });
+    }
+
+    /**
+     * Dispatches the pending batch now rather than at the end of its window.
+     */
+    public void flush() {
+        Map<K, CompletableFuture<V>> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        dispatch(batch);
+    }
+
+    /**
+     * @return The counters so far
+     */
+    public Stats stats() {
+        return new Stats(loads.sum(), keys.sum(), batches.sum(), failed.sum());
+    }
+
+    /**
+     * Dispatches the pending batch and stops the loader's timer thread, letting batches already
+     * dispatched to it finish. A configured executor is left running.
+     */
+    @Override
+    public void close() {
+        Map<K, CompletableFuture<V>> batch;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            batch = takePending();
+        }
+        dispatch(batch);
+        timer.shutdown();
+    }
+
+    private void flush(long scheduled) {
+        Map<K, CompletableFuture<V>> batch;
+        synchronized (lock) {
+            if (scheduled != generation) {
+                return;
+            }
+            batch = takePending();
+        }
+        dispatch(batch);
+    }
+
+    // Called with the lock held
+    private Map<K, CompletableFuture<V>> takePending() {
+        Map<K, CompletableFuture<V>> batch = pending;
+        pending = new LinkedHashMap<>();
+        generation++;
+        return batch;
+    }
+
+    private void dispatch(Map<K, CompletableFuture<V>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            executor.execute(() -> run(batch));
+        } catch (RejectedExecutionException e) {
+            fail(batch, e);
+        }
+    }
+
+    private void run(Map<K, CompletableFuture<V>> batch) {
+        batches.increment();
+        keys.add(batch.size());
+        Map<K, V> values;
+        try {
+            values = function.load(new ArrayList<>(batch.keySet()));
+        } catch (Throwable t) {
+            fail(batch, t);
+            return;
+        }
+        batch.forEach((key, future) -> future.complete(values == null ? null : values.get(key)));
+    }
+
+    private void fail(Map<K, CompletableFuture<V>> batch, Throwable cause) {
+        failed.increment();
+        batch.values().forEach(future -> future.completeExceptionally(cause));
+    }
+
+    /**
+     * Builder for {@link BatchLoader}.
+     *
+     * @param <K> The key type
+     * @param <V> The value type
+     */
+    public static final class Builder<K, V> {
+
+        private BatchFunction<K, V> function;
+        private int maxBatchSize = 100;
+        private Duration maxDelay = Duration.ofMillis(2);
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        /**
+         * @param function Looks up each batch of keys; required
+         * @return This builder
+         */
+        public Builder<K, V> batchFunction(BatchFunction<K, V> function) {
+            this.function = function;
+            return this;
+        }
+
+        /**
+         * @param maxBatchSize The number of distinct keys at which a batch is dispatched without
+         *                     waiting for its window to end (default 100)
+         * @return This builder
+         * @throws IllegalArgumentException If maxBatchSize is not positive
+         */
+        public Builder<K, V> maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize <= 0) {
+                throw new IllegalArgumentException("Max batch size must be positive");
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * @param maxDelay How long a batch collects keys after its first one (default 2 ms)
+         * @return This builder
+         * @throws IllegalArgumentException If maxDelay is negative
+         */
+        public Builder<K, V> maxDelay(Duration maxDelay) {
+            if (maxDelay.isNegative()) {
+                throw new IllegalArgumentException("Max delay cannot be negative");
+            }
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * @param executor Runs the batch function; its thread count bounds the batches in flight.
+         *                 By default batches run one at a time on the loader's timer thread
+         * @return This builder
+         */
+        public Builder<K, V> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @return The configured loader
+         * @throws IllegalStateException If the batch function is missing
+         */
+        public BatchLoader<K, V> build() {
+            if (function == null) {
+                throw new IllegalStateException("A batch function is required");
+            }
+            return new BatchLoader<>(this);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.oniox.learn;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The result of a {@link ColumnarExtractor} run: one column per requested path, with one
+ * row per input document.
+ * <p>
+ * Numeric columns are backed by primitive arrays and string columns are dictionary-encoded
+ * ({@code int} codes into a shared {@code String[]}). Missing, null or mistyped values are
+ * marked in a per-column null bitmap (bit {@code row % 64} of word {@code row / 64}); the
+ * corresponding primitive slot holds 0 and the string code is -1. The accessors returning
+ * arrays expose the backing storage directly so aggregations can run tight loops over it;
+ * callers must not modify them.
+ */
+public final class ColumnarBatch {
+
+    private final int rowCount;
+    private final int invalidDocuments;
+    private final Map<String, Column> columns;
+
+    ColumnarBatch(int rowCount, int invalidDocuments, Map<String, Column> columns) {
+        this.rowCount = rowCount;
+        this.invalidDocuments = invalidDocuments;
+        this.columns = Collections.unmodifiableMap(new LinkedHashMap<>(columns));
+    }
+
+    /**
+     * @return The number of rows (input documents)
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The number of documents that could not be parsed; all their columns are null
+     */
+    public int invalidDocuments() {
+        return invalidDocuments;
+    }
+
+    /**
+     * @return The columns keyed by name, in declaration order
+     */
+    public Map<String, Column> columns() {
+        return columns;
+    }
+
+    public IntColumn intColumn(String name) {
+        return column(name, IntColumn.class);
+    }
+
+    public LongColumn longColumn(String name) {
+        return column(name, LongColumn.class);
+    }
+
+    public DoubleColumn doubleColumn(String name) {
+        return column(name, DoubleColumn.class);
+    }
+
+    public StringColumn stringColumn(String name) {
+        return column(name, StringColumn.class);
+    }
+
+    private <C extends Column> C column(String name, Class<C> type) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("No column named: " + name);
+        }
+        if (!type.isInstance(column)) {
+            throw new IllegalArgumentException("Column " + name + " is a " + column.getClass().getSimpleName());
+        }
+        return type.cast(column);
+    }
+
+    /**
+     * A column with a null bitmap.
+     */
+    public abstract static class Column {
+        private final String name;
+        final long[] nulls;
+
+        Column(String name, int rows) {
+            this.name = name;
+            this.nulls = new long[(rows + 63) >>> 6];
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public boolean isNull(int row) {
+            return (nulls[row >>> 6] & (1L << row)) != 0;
+        }
+
+        public int nullCount() {
+            int count = 0;
+            for (long word : nulls) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        /**
+         * @return The null bitmap backing this column
+         */
+        public long[] nullBitmap() {
+            return nulls;
+        }
+
+        void setNull(int row) {
+            nulls[row >>> 6] |= 1L << row;
+        }
+    }
+
+    public static final class IntColumn extends Column {
+        final int[] values;
+
+        IntColumn(String name, int rows) {
+            super(name, rows);
+            this.values = new int[rows];
+        }
+
+        public int get(int row) {
+            return values[row];
+        }
+
+        public int[] values() {
+            return values;
+        }
+    }
+
+    public static final class LongColumn extends Column {
+        final long[] values;
+
+        LongColumn(String name, int rows) {
+            super(name, rows);
+            this.values = new long[rows];
+        }
+
+        public long get(int row) {
+            return values[row];
+        }
+
+        public long[] values() {
+            return values;
+        }
+    }
+
+    public static final class DoubleColumn extends Column {
+        final double[] values;
+
+        DoubleColumn(String name, int rows) {
+            super(name, rows);
+            this.values = new double[rows];
+        }
+
+        public double get(int row) {
+            return values[row];
+        }
+
+        public double[] values() {
+            return values;
+        }
+    }
+
+    public static final class StringColumn extends Column {
+        final int[] codes;
+        String[] dictionary = new String[0];
+
+        StringColumn(String name, int rows) {
+            super(name, rows);
+            this.codes = new int[rows];
+        }
+
+        /**
+         * @return The decoded value, or null if the row is null
+         */
+        public String get(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary[code];
+        }
+
+        /**
+         * @return The dictionary code of the row, or -1 if the row is null
+         */
+        public int code(int row) {
+            return codes[row];
+        }
+
+        public int[] codes() {
+            return codes;
+        }
+
+        /**
+         * @return The distinct values, indexed by code
+         */
+        public String[] dictionary() {
+            return dictionary;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.oniox.learn;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Evaluates a fixed list of typed JsonPath columns over a batch of documents and collects the
+ * values into a {@link ColumnarBatch} of primitive arrays, instead of a {@code List<Object>}
+ * of boxed values per document.
+ * <p>
+ * Documents are processed in parallel on a ForkJoinPool in slices of whole 64-row words, so
+ * each worker owns its part of every array and null bitmap. Plain field/index paths are read
+ * by navigating the parsed tree directly ({@link JsonNodePath}); other paths go through
+ * JsonPath evaluation. String columns are dictionary-encoded per slice and merged at the end.
+ *
+ * <pre>
+ * ColumnarExtractor extractor = ColumnarExtractor.builder()
+ *         .intColumn("quantity", "$.order.quantity")
+ *         .doubleColumn("total", "$.order.total")
+ *         .stringColumn("country", "$.order.shipping.country")
+ *         .build();
+ * ColumnarBatch batch = extractor.extract(documents);
+ * </pre>
+ * Instances are immutable and thread-safe.
+ */
+public final class ColumnarExtractor {
+
+    enum ColumnType { INT, LONG, DOUBLE, STRING }
+
+    private static final class ColumnSpec {
+        final String name;
+        final ColumnType type;
+        final JsonPath path;
+        final JsonNodePath nodePath;
+
+        ColumnSpec(String name, ColumnType type, String path) {
+            this.name = name;
+            this.type = type;
+            this.path = JsonPath.compile(path);
+            this.nodePath = JsonNodePath.tryCompile(this.path);
+        }
+    }
+
+    private final ColumnSpec[] specs;
+    private final ForkJoinPool pool;
+
+    private ColumnarExtractor(List<ColumnSpec> specs, ForkJoinPool pool) {
+        this.specs = specs.toArray(new ColumnSpec[0]);
+        this.pool = pool;
+    }
+
+    /**
+     * @return A new builder for a ColumnarExtractor
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Extracts all columns from a batch of JSON strings.
+     *
+     * @param documents The documents, one row each
+     * @return The columnar result
+     */
+    public ColumnarBatch extract(List<String> documents) {
+        return run(documents.size(), row -> JsonCore.TREE_READER.readTree(documents.get(row)));
+    }
+
+    /**
+     * Extracts all columns from a batch of UTF-8 encoded JSON documents.
+     *
+     * @param documents The documents, one row each
+     * @return The columnar result
+     */
+    public ColumnarBatch extractBytes(List<byte[]> documents) {
+        return run(documents.size(), row -> JsonCore.TREE_READER.readTree(documents.get(row)));
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        JsonNode parse(int row) throws IOException;
+    }
+
+    private ColumnarBatch run(int rows, RowParser parser) {
+        ColumnarBatch.Column[] columns = new ColumnarBatch.Column[specs.length];
+        for (int c = 0; c < specs.length; c++) {
+            switch (specs[c].type) {
+                case INT:
+                    columns[c] = new ColumnarBatch.IntColumn(specs[c].name, rows);
+                    break;
+                case LONG:
+                    columns[c] = new ColumnarBatch.LongColumn(specs[c].name, rows);
+                    break;
+                case DOUBLE:
+                    columns[c] = new ColumnarBatch.DoubleColumn(specs[c].name, rows);
+                    break;
+                default:
+                    columns[c] = new ColumnarBatch.StringColumn(specs[c].name, rows);
+            }
+        }
+
+        // Slices are whole multiples of 64 rows so no two workers write the same bitmap word
+        int slices = Math.max(1, pool.getParallelism() * 4);
+        int sliceSize = Math.max(64, ((rows + slices - 1) / slices + 63) & ~63);
+        List<ForkJoinTask<Slice>> tasks = new ArrayList<>();
+        for (int start = 0; start < rows; start += sliceSize) {
+            int from = start;
+            int to = Math.min(rows, start + sliceSize);
+            tasks.add(pool.submit(() -> fill(parser, columns, from, to)));
+        }
+
+        int invalid = 0;
+        List<Slice> results = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<Slice> task : tasks) {
+            Slice slice = task.join();
+            invalid += slice.invalid;
+            results.add(slice);
+        }
+        mergeDictionaries(columns, results);
+
+        Map<String, ColumnarBatch.Column> byName = new LinkedHashMap<>();
+        for (ColumnarBatch.Column column : columns) {
+            byName.put(column.name(), column);
+        }
+        return new ColumnarBatch(rows, invalid, byName);
+    }
+
+    /**
+     * Per-slice output: the count of unparseable documents and the local string dictionaries.
+     */
+    private static final class Slice {
+        final int from;
+        final int to;
+        final List<List<String>> dictionaries;
+        int invalid;
+
+        Slice(int from, int to, int columnCount) {
+            this.from = from;
+            this.to = to;
+            this.dictionaries = new ArrayList<>(columnCount);
+            for (int c = 0; c < columnCount; c++) {
+                dictionaries.add(null);
+            }
+        }
+    }
+
+    private Slice fill(RowParser parser, ColumnarBatch.Column[] columns, int from, int to) {
+        Slice slice = new Slice(from, to, specs.length);
+        List<Map<String, Integer>> localCodes = new ArrayList<>(specs.length);
+        for (int c = 0; c < specs.length; c++) {
+            if (specs[c].type == ColumnType.STRING) {
+                slice.dictionaries.set(c, new ArrayList<>());
+                localCodes.add(new HashMap<>());
+            } else {
+                localCodes.add(null);
+            }
+        }
+
+        for (int row = from; row < to; row++) {
+            JsonNode root;
+            try {
+                root = parser.parse(row);
+            } catch (IOException | RuntimeException e) {
+                root = null;
+            }
+            if (root == null) {
+                slice.invalid++;
+                for (ColumnarBatch.Column column : columns) {
+                    setNull(column, row);
+                }
+                continue;
+            }
+            DocumentContext context = null;
+            for (int c = 0; c < specs.length; c++) {
+                ColumnSpec spec = specs[c];
+                Object value;
+                if (spec.nodePath != null) {
+                    value = spec.nodePath.resolve(root);
+                } else {
+                    if (context == null) {
+                        context = JsonPathUtil.wrap(root);
+                    }
+                    try {
+                        value = context.read(spec.path);
+                    } catch (Exception e) {
+                        value = null;
+                    }
+                }
+                store(columns[c], spec.type, row, value, slice.dictionaries.get(c), localCodes.get(c));
+            }
+        }
+        return slice;
+    }
+
+    private static void store(ColumnarBatch.Column column, ColumnType type, int row, Object value,
+                              List<String> dictionary, Map<String, Integer> codes) {
+        if (type == ColumnType.STRING) {
+            String text = value instanceof JsonNode ? JsonNodePath.textValue((JsonNode) value)
+                    : value instanceof String || value instanceof Number || value instanceof Boolean
+                    ? value.toString() : null;
+            ColumnarBatch.StringColumn strings = (ColumnarBatch.StringColumn) column;
+            if (text == null) {
+                strings.codes[row] = -1;
+                strings.setNull(row);
+                return;
+            }
+            Integer code = codes.get(text);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(text);
+                codes.put(text, code);
+            }
+            strings.codes[row] = code;
+            return;
+        }
+        if (!JsonPathUtil.isNumber(value)) {
+            column.setNull(row);
+            return;
+        }
+        switch (type) {
+            case INT:
+                ((ColumnarBatch.IntColumn) column).values[row] = JsonPathUtil.toInt(value, 0);
+                break;
+            case LONG:
+                ((ColumnarBatch.LongColumn) column).values[row] = JsonPathUtil.toLong(value, 0L);
+                break;
+            default:
+                ((ColumnarBatch.DoubleColumn) column).values[row] = JsonPathUtil.toDouble(value, 0d);
+        }
+    }
+
+    private static void setNull(ColumnarBatch.Column column, int row) {
+        column.setNull(row);
+        if (column instanceof ColumnarBatch.StringColumn) {
+            ((ColumnarBatch.StringColumn) column).codes[row] = -1;
+        }
+    }
+
+    /**
+     * Merges the per-slice dictionaries of every string column into one and rewrites the codes.
+     */
+    private void mergeDictionaries(ColumnarBatch.Column[] columns, List<Slice> slices) {
+        for (int c = 0; c < specs.length; c++) {
+            if (specs[c].type != ColumnType.STRING) {
+                continue;
+            }
+            ColumnarBatch.StringColumn column = (ColumnarBatch.StringColumn) columns[c];
+            Map<String, Integer> global = new HashMap<>();
+            List<String> merged = new ArrayList<>();
+            for (Slice slice : slices) {
+                List<String> local = slice.dictionaries.get(c);
+                int[] remap = new int[local.size()];
+                for (int i = 0; i < remap.length; i++) {
+                    String value = local.get(i);
+                    Integer code = global.get(value);
+                    if (code == null) {
+                        code = merged.size();
+                        merged.add(value);
+                        global.put(value, code);
+                    }
+                    remap[i] = code;
+                }
+                int[] codes = column.codes;
+                for (int row = slice.from; row < slice.to; row++) {
+                    if (codes[row] >= 0) {
+                        codes[row] = remap[codes[row]];
+                    }
+                }
+            }
+            column.dictionary = merged.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * Builder collecting the typed columns to extract.
+     */
+    public static final class Builder {
+
+        private final List<ColumnSpec> specs = new ArrayList<>();
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        private Builder() {
+        }
+
+        public Builder intColumn(String name, String path) {
+            return column(name, ColumnType.INT, path);
+        }
+
+        public Builder longColumn(String name, String path) {
+            return column(name, ColumnType.LONG, path);
+        }
+
+        public Builder doubleColumn(String name, String path) {
+            return column(name, ColumnType.DOUBLE, path);
+        }
+
+        public Builder stringColumn(String name, String path) {
+            return column(name, ColumnType.STRING, path);
+        }
+
+        /**
+         * @param pool The pool documents are processed on (default: the common pool)
+         * @return This builder
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        private Builder column(String name, ColumnType type, String path) {
+            for (ColumnSpec spec : specs) {
+                if (spec.name.equals(name)) {
+                    throw new IllegalArgumentException("Duplicate column name: " + name);
+                }
+            }
+            specs.add(new ColumnSpec(name, type, path));
+            return this;
+        }
+
+        /**
+         * @return The configured extractor
+         * @throws IllegalStateException If no columns were added
+         */
+        public ColumnarExtractor build() {
+            if (specs.isEmpty()) {
+                throw new IllegalStateException("At least one column is required");
+            }
+            return new ColumnarExtractor(specs, pool);
+        }
+    }
+
+    /**
+     * Example usage of the ColumnarExtractor.
+     */
+    public static void main(String[] args) {
+        String[] countries = {"NL", "DE", "FR"};
+        List<String> documents = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i == 500) {
+                documents.add("{not json");
+                continue;
+            }
+            documents.add("{\"order\":{\"quantity\":" + (i % 7) + ",\"total\":" + (i * 1.5)
+                    + ",\"id\":" + (10_000_000_000L + i) + ",\"shipping\":{\"country\":\""
+                    + countries[i % 3] + "\"}" + (i % 10 == 0 ? "" : ",\"items\":[{\"sku\":\"S" + (i % 5) + "\"}]")
+                    + "}}");
+        }
+
+        ColumnarBatch batch = ColumnarExtractor.builder()
+                .intColumn("quantity", "$.order.quantity")
+                .longColumn("id", "$.order.id")
+                .doubleColumn("total", "$.order.total")
+                .stringColumn("country", "$.order.shipping.country")
+                .stringColumn("firstSku", "$.order.items[0].sku")
+                .build()
+                .extract(documents);
+
+        double sum = 0;
+        double[] totals = batch.doubleColumn("total").values();
+        for (int row = 0; row < batch.rowCount(); row++) {
+            sum += totals[row];
+        }
+        System.out.println("Rows: " + batch.rowCount() + ", invalid: " + batch.invalidDocuments());
+        System.out.println("Sum of totals: " + sum);
+        System.out.println("Country dictionary: " + String.join(",", batch.stringColumn("country").dictionary()));
+        System.out.println("Null firstSku rows: " + batch.stringColumn("firstSku").nullCount());
+        System.out.println("Row 1: quantity=" + batch.intColumn("quantity").get(1)
+                + " id=" + batch.longColumn("id").get(1)
+                + " country=" + batch.stringColumn("country").get(1));
+    }
+}
@@ -0,0 +1,144 @@
+package com.oniox.learn;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, named set of JsonPath expressions compiled once up front.
+ * Intended to be built at startup and then evaluated against each DocumentContext
+ * in a hot loop without any per-call compilation or path-string lookups.
+ *
+ * <pre>
+ * CompiledPaths paths = CompiledPaths.builder()
+ *         .path("title", "$.store.book[0].title")
+ *         .path("price", "$.store.bicycle.price")
+ *         .build();
+ *
+ * Map&lt;String, Object&gt; values = paths.readAll(JsonPathUtil.parseJson(json));
+ * </pre>
+ */
+public final class CompiledPaths {
+
+    private final Map<String, JsonPath> paths;
+
+    private CompiledPaths(Map<String, JsonPath> paths) {
+        this.paths = Collections.unmodifiableMap(new LinkedHashMap<>(paths));
+    }
+
+    /**
+     * @return A new builder for a CompiledPaths set
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Compiles all entries of a name-to-path map.
+     *
+     * @param namedPaths The paths to compile, keyed by name
+     * @return The compiled set, preserving the map's iteration order
+     * @throws com.jayway.jsonpath.InvalidPathException If any path cannot be compiled
+     */
+    public static CompiledPaths of(Map<String, String> namedPaths) {
+        Builder builder = builder();
+        namedPaths.forEach(builder::path);
+        return builder.build();
+    }
+
+    /**
+     * @return The names of the paths in this set, in declaration order
+     */
+    public Set<String> names() {
+        return paths.keySet();
+    }
+
+    /**
+     * @return The number of paths in this set
+     */
+    public int size() {
+        return paths.size();
+    }
+
+    /**
+     * Returns the compiled path registered under the given name.
+     *
+     * @param name The path name
+     * @return The compiled JsonPath
+     * @throws IllegalArgumentException If no path is registered under that name
+     */
+    public JsonPath get(String name) {
+        JsonPath path = paths.get(name);
+        if (path == null) {
+            throw new IllegalArgumentException("No compiled path named: " + name);
+        }
+        return path;
+    }
+
+    /**
+     * Reads a single named path from a DocumentContext.
+     *
+     * @param <T> The expected return type
+     * @param context The DocumentContext
+     * @param name The path name
+     * @param returnType The class of the expected return type
+     * @return The extracted value or null if not found
+     */
+    public <T> T read(DocumentContext context, String name, Class<T> returnType) {
+        return JsonPathUtil.read(context, get(name), returnType);
+    }
+
+    /**
+     * Evaluates every path in the set against a DocumentContext.
+     *
+     * @param context The DocumentContext
+     * @return The values keyed by path name, in declaration order; missing paths map to null
+     */
+    public Map<String, Object> readAll(DocumentContext context) {
+        Map<String, Object> result = new LinkedHashMap<>(paths.size() * 2);
+        for (Map.Entry<String, JsonPath> entry : paths.entrySet()) {
+            result.put(entry.getKey(), JsonPathUtil.read(context, entry.getValue(), Object.class));
+        }
+        return result;
+    }
+
+    /**
+     * Builder collecting named paths; each path is compiled as it is added so that
+     * invalid expressions fail at startup rather than on the first document.
+     */
+    public static final class Builder {
+
+        private final Map<String, JsonPath> paths = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a named path to the set.
+         *
+         * @param name The name used to look the value up
+         * @param path The JsonPath expression
+         * @return This builder
+         * @throws IllegalArgumentException If the name is already registered
+         * @throws com.jayway.jsonpath.InvalidPathException If the path cannot be compiled
+         */
+        public Builder path(String name, String path) {
+            if (paths.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate path name: " + name);
+            }
+            paths.put(name, JsonPath.compile(path));
+            return this;
+        }
+
+        /**
+         * @return The immutable compiled path set
+         */
+        public CompiledPaths build() {
+            return new CompiledPaths(paths);
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package com.oniox.learn;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Allocation-free decoding of composite row identifiers.
+ * <p>
+ * Two layouts are supported:
+ * <ul>
+ *   <li>{@code <prefix>_<first>_<second>}, as matched by {@link StringExtractor#extractNumbers}
+ *   (for example {@code id_version_12_2} decodes to 12 and 2). Both numbers are scanned from
+ *   the end of the input and returned packed into one {@code long}; see {@link #first(long)}
+ *   and {@link #second(long)}. Inputs that do not match, including numbers that overflow an
+ *   {@code int}, yield {@link #NO_MATCH}.</li>
+ *   <li>{@code <id>_<domain>_<version>}, the layout the {@code Substr} query splits with
+ *   SUBSTR/INSTR: everything up to the first underscore is the id, everything up to the second
+ *   is the domain and the rest is the version. The parts are reported as offsets into the
+ *   source in a reusable {@link UniqueId} holder.</li>
+ * </ul>
+ * Nothing here throws on malformed input or allocates per call.
+ */
+public final class CompositeIdCodec {
+
+    /** Returned by the decode methods when the input does not match the layout. */
+    public static final long NO_MATCH = -1L;
+
+    // Mapped window for file decoding; ids are short so lines never come close to this
+    private static final int FILE_WINDOW = 64 * 1024 * 1024;
+
+    private CompositeIdCodec() {
+        throw new AssertionError("No instances");
+    }
+
+    /**
+     * Receives one decoded line of an id file.
+     */
+    @FunctionalInterface
+    public interface IdConsumer {
+
+        /**
+         * @param line   The zero-based line number
+         * @param packed The packed numbers, or {@link #NO_MATCH}
+         */
+        void accept(long line, long packed);
+    }
+
+    /**
+     * @return The first number of a packed result
+     */
+    public static int first(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    /**
+     * @return The second number of a packed result
+     */
+    public static int second(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Packs two non-negative numbers the way the decode methods do.
+     */
+    public static long pack(int first, int second) {
+        return (long) first << 32 | (second & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Decodes the trailing {@code _<first>_<second>} numbers of an id.
+     *
+     * @param id The id, e.g. "id_version_12_2"
+     * @return The packed numbers, or {@link #NO_MATCH}
+     */
+    public static long decode(CharSequence id) {
+        return decode(id, 0, id.length());
+    }
+
+    /**
+     * Decodes the trailing {@code _<first>_<second>} numbers of {@code id[start, end)}.
+     *
+     * @param id    The character sequence holding the id
+     * @param start The start of the id, inclusive
+     * @param end   The end of the id, exclusive
+     * @return The packed numbers, or {@link #NO_MATCH}
+     */
+    public static long decode(CharSequence id, int start, int end) {
+        // Like $, allow one line terminator after the second number
+        if (end > start && isLineTerminator(id.charAt(end - 1))) {
+            end -= end - 1 > start && id.charAt(end - 1) == '\n' && id.charAt(end - 2) == '\r' ? 2 : 1;
+        }
+        int secondStart = end;
+        while (secondStart > start && isDigit(id.charAt(secondStart - 1))) {
+            secondStart--;
+        }
+        if (secondStart == end || secondStart - 1 <= start || id.charAt(secondStart - 1) != '_') {
+            return NO_MATCH;
+        }
+        int firstEnd = secondStart - 1;
+        int firstStart = firstEnd;
+        while (firstStart > start && isDigit(id.charAt(firstStart - 1))) {
+            firstStart--;
+        }
+        // The prefix is at least one character other than a line terminator, as with (.+?)
+        if (firstStart == firstEnd || firstStart - 1 <= start || id.charAt(firstStart - 1) != '_'
+                || isLineTerminator(id.charAt(firstStart - 2))) {
+            return NO_MATCH;
+        }
+        int first = parse(id, firstStart, firstEnd);
+        int second = parse(id, secondStart, end);
+        return first < 0 || second < 0 ? NO_MATCH : pack(first, second);
+    }
+
+    /**
+     * Decodes the trailing {@code _<first>_<second>} numbers of an ASCII id in a byte array.
+     *
+     * @param id     The bytes holding the id
+     * @param offset The start of the id
+     * @param length The length of the id
+     * @return The packed numbers, or {@link #NO_MATCH}
+     */
+    public static long decode(byte[] id, int offset, int length) {
+        return decode(id, null, offset, offset + length);
+    }
+
+    /**
+     * Decodes the trailing {@code _<first>_<second>} numbers of an ASCII id in a buffer,
+     * using absolute positions; the buffer's position is not changed.
+     *
+     * @param id    The buffer holding the id
+     * @param start The start of the id, inclusive
+     * @param end   The end of the id, exclusive
+     * @return The packed numbers, or {@link #NO_MATCH}
+     */
+    public static long decode(ByteBuffer id, int start, int end) {
+        return decode(null, id, start, end);
+    }
+
+    private static long decode(byte[] array, ByteBuffer buffer, int start, int end) {
+        int secondStart = end;
+        while (secondStart > start && isDigit(at(array, buffer, secondStart - 1))) {
+            secondStart--;
+        }
+        if (secondStart == end || secondStart - 1 <= start || at(array, buffer, secondStart - 1) != '_') {
+            return NO_MATCH;
+        }
+        int firstEnd = secondStart - 1;
+        int firstStart = firstEnd;
+        while (firstStart > start && isDigit(at(array, buffer, firstStart - 1))) {
+            firstStart--;
+        }
+        if (firstStart == firstEnd || firstStart - 1 <= start || at(array, buffer, firstStart - 1) != '_'
+                || at(array, buffer, firstStart - 2) == '\n' || at(array, buffer, firstStart - 2) == '\r') {
+            return NO_MATCH;
+        }
+        int first = parse(array, buffer, firstStart, firstEnd);
+        int second = parse(array, buffer, secondStart, end);
+        return first < 0 || second < 0 ? NO_MATCH : pack(first, second);
+    }
+
+    /**
+     * Decodes every id of an array.
+     *
+     * @param ids The ids
+     * @param out Receives the packed numbers, or {@link #NO_MATCH}, at the same index; at least as long as ids
+     * @return The number of ids that did not match
+     * @throws IllegalArgumentException If out is shorter than ids
+     */
+    public static int decodeAll(CharSequence[] ids, long[] out) {
+        if (out.length < ids.length) {
+            throw new IllegalArgumentException("Output array is shorter than the input");
+        }
+        int misses = 0;
+        for (int i = 0; i < ids.length; i++) {
+            long packed = ids[i] == null ? NO_MATCH : decode(ids[i], 0, ids[i].length());
+            out[i] = packed;
+            if (packed == NO_MATCH) {
+                misses++;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * Decodes every line of a memory-mapped file of ASCII ids, one id per line. A trailing
+     * carriage return is ignored; a final newline does not start another line.
+     *
+     * @param file     The file to read
+     * @param consumer Receives each line's number and packed result
+     * @return The number of lines decoded
+     * @throws IOException If the file cannot be read or mapped
+     */
+    public static long decodeFile(Path file, IdConsumer consumer) throws IOException {
+        long line = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int window = (int) Math.min(FILE_WINDOW, size - position);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+                boolean last = position + window == size;
+                int lineStart = 0;
+                for (int i = 0; i < window; i++) {
+                    if (mapped.get(i) == '\n') {
+                        consumer.accept(line++, decodeLine(mapped, lineStart, i));
+                        lineStart = i + 1;
+                    }
+                }
+                if (last && lineStart < window) {
+                    consumer.accept(line++, decodeLine(mapped, lineStart, window));
+                    position = size;
+                } else if (lineStart == 0 && !last) {
+                    // A line longer than the window cannot be an id: report it and skip past it
+                    consumer.accept(line++, NO_MATCH);
+                    position = skipLine(channel, position + window, size);
+                } else {
+                    position += lineStart;
+                }
+            }
+        }
+        return line;
+    }
+
+    private static long decodeLine(ByteBuffer buffer, int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        return decode(null, buffer, start, end);
+    }
+
+    private static long skipLine(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(64 * 1024);
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Splits an {@code <id>_<domain>_<version>} unique id into its parts, like the
+     * {@code Substr} query. The id and domain must be non-empty; the version is the rest of
+     * the input and may itself contain underscores.
+     *
+     * @param uniqueId The unique id
+     * @param holder   Receives the offsets of the parts; reused between calls
+     * @return true if the id has the layout, false otherwise (the holder is then left cleared)
+     */
+    public static boolean decodeUniqueId(CharSequence uniqueId, UniqueId holder) {
+        holder.clear();
+        long separators = separators(uniqueId);
+        if (separators == NO_MATCH) {
+            return false;
+        }
+        holder.source = uniqueId;
+        holder.domainStart = first(separators) + 1;
+        holder.versionStart = second(separators) + 1;
+        holder.end = uniqueId.length();
+        holder.version = parseLong(uniqueId, holder.versionStart, holder.end);
+        return true;
+    }
+
+    /**
+     * Finds the two separators of an {@code <id>_<domain>_<version>} unique id.
+     *
+     * @return The positions of the first and second underscore, packed, or {@link #NO_MATCH}
+     */
+    static long separators(CharSequence uniqueId) {
+        int length = uniqueId.length();
+        int firstSeparator = indexOf(uniqueId, '_', 0, length);
+        if (firstSeparator <= 0) {
+            return NO_MATCH;
+        }
+        int secondSeparator = indexOf(uniqueId, '_', firstSeparator + 1, length);
+        if (secondSeparator < 0 || secondSeparator == firstSeparator + 1) {
+            return NO_MATCH;
+        }
+        return pack(firstSeparator, secondSeparator);
+    }
+
+    private static int indexOf(CharSequence s, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A reusable view of a decoded {@code <id>_<domain>_<version>} unique id. The offset
+     * accessors and {@link #version()} do not allocate; the String accessors do.
+     */
+    public static final class UniqueId {
+        CharSequence source;
+        int domainStart;
+        int versionStart;
+        int end;
+        long version = NO_MATCH;
+
+        void clear() {
+            source = null;
+            domainStart = versionStart = end = 0;
+            version = NO_MATCH;
+        }
+
+        /**
+         * @return The decoded input, or null if the last decode failed
+         */
+        public CharSequence source() {
+            return source;
+        }
+
+        /** @return The end of the id part, exclusive; the id starts at 0 */
+        public int idEnd() {
+            return domainStart - 1;
+        }
+
+        public int domainStart() {
+            return domainStart;
+        }
+
+        /** @return The end of the domain part, exclusive */
+        public int domainEnd() {
+            return versionStart - 1;
+        }
+
+        public int versionStart() {
+            return versionStart;
+        }
+
+        /**
+         * @return The version as a number, or {@link #NO_MATCH} if it is not a non-negative decimal
+         */
+        public long version() {
+            return version;
+        }
+
+        public String id() {
+            return source.subSequence(0, idEnd()).toString();
+        }
+
+        public String domain() {
+            return source.subSequence(domainStart, domainEnd()).toString();
+        }
+
+        public String versionText() {
+            return source.subSequence(versionStart, end).toString();
+        }
+
+        /**
+         * @return Whether the id part equals the given text, without allocating
+         */
+        public boolean idEquals(CharSequence text) {
+            return regionEquals(0, idEnd(), text);
+        }
+
+        /**
+         * @return Whether the domain part equals the given text, without allocating
+         */
+        public boolean domainEquals(CharSequence text) {
+            return regionEquals(domainStart, domainEnd(), text);
+        }
+
+        private boolean regionEquals(int from, int to, CharSequence text) {
+            if (to - from != text.length()) {
+                return false;
+            }
+            for (int i = from; i < to; i++) {
+                if (source.charAt(i) != text.charAt(i - from)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return source == null ? "UniqueId[none]"
+                    : "UniqueId[id=" + id() + ", domain=" + domain() + ", version=" + versionText() + "]";
+        }
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLineTerminator(int c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static int at(byte[] array, ByteBuffer buffer, int pos) {
+        return (array != null ? array[pos] : buffer.get(pos)) & 0xFF;
+    }
+
+    /**
+     * Parses decimal digits into a non-negative int, or -1 on overflow.
+     */
+    private static int parse(CharSequence s, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (s.charAt(i) - '0');
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) value;
+    }
+
+    private static int parse(byte[] array, ByteBuffer buffer, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (at(array, buffer, i) - '0');
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses an all-digit range into a non-negative long, or {@link #NO_MATCH}.
+     */
+    static long parseLong(CharSequence s, int start, int end) {
+        if (start == end) {
+            return NO_MATCH;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c) || value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                return NO_MATCH;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Example usage of the CompositeIdCodec.
+     */
+    public static void main(String[] args) throws IOException {
+        long packed = CompositeIdCodec.decode("id_version_12_2");
+        System.out.println("Numbers: " + first(packed) + ", " + second(packed));
+        System.out.println("No match: " + (CompositeIdCodec.decode("id_version_12") == NO_MATCH));
+
+        String[] ids = {"trade_fx_100_3", "trade_rates_7_1", "broken", "x_99999999999_1"};
+        long[] out = new long[ids.length];
+        System.out.println("Misses: " + decodeAll(ids, out));
+
+        UniqueId uniqueId = new UniqueId();
+        if (decodeUniqueId("4711_fx_12", uniqueId)) {
+            System.out.println(uniqueId + " numeric version " + uniqueId.version());
+        }
+
+        Path file = java.nio.file.Files.createTempFile("ids", ".txt");
+        try {
+            java.nio.file.Files.writeString(file, "a_b_1_2\r\nbad\nc_d_30_40");
+            decodeFile(file, (line, value) -> System.out.println("Line " + line + ": "
+                    + (value == NO_MATCH ? "no match" : first(value) + "/" + second(value))));
+        } finally {
+            java.nio.file.Files.delete(file);
+        }
+    }
+}
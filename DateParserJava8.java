@@ -0,0 +1,249 @@
+package com.oniox.learn;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses and formats "yyyy-MM-dd" dates.
+ * <p>
+ * Parsing is hand-rolled and allocation-free: the {@code parseEpochDay} methods return the day
+ * count since 1970-01-01, or {@link #INVALID_DATE} for anything that is not exactly four year
+ * digits (0001-9999), a dash, two month digits, a dash and two day digits naming a day that
+ * exists in that month. Unlike {@code DateTimeFormatter.ofPattern("yyyy-MM-dd")}, which quietly
+ * turns 2025-02-30 into 2025-02-28, days past the end of the month are rejected.
+ * The {@code parseColumn} methods parse a whole column into an {@code int[]} of epoch days
+ * and a bitmap of invalid rows.
+ */
+public class DateParserJava8 {
+
+    /** Returned for input that is not a valid "yyyy-MM-dd" date. */
+    public static final int INVALID_DATE = Integer.MIN_VALUE;
+
+    private static final String DATE_FORMAT = "yyyy-MM-dd";
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DATE_FORMAT);
+
+    private static final int LENGTH = 10;
+    private static final int DAYS_0000_TO_1970 = 719_528;
+    private static final int[] DAYS_IN_MONTH = {0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private static final int CACHE_SIZE = 4096;
+    // Direct-mapped by epoch day; entries are immutable, so racing writers only cost a cache miss
+    private static final FormattedDate[] formatCache = new FormattedDate[CACHE_SIZE];
+
+    private record FormattedDate(long epochDay, String text) {
+    }
+
+    /**
+     * Parses a date string in format "yyyy-MM-dd" to a LocalDate object
+     * @param dateString the date string to parse (e.g., "2025-04-03")
+     * @return the parsed LocalDate object
+     * @throws IllegalArgumentException if the date string is invalid
+     */
+    public static LocalDate parseDate(String dateString) {
+        int epochDay = parseEpochDay(dateString);
+        if (epochDay == INVALID_DATE) {
+            throw new IllegalArgumentException("Invalid date format. Expected format: " + DATE_FORMAT +
+                                           ", received: " + dateString);
+        }
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Parses a "yyyy-MM-dd" date without allocating.
+     * @param text the text to parse
+     * @return the days since 1970-01-01, or {@link #INVALID_DATE}
+     */
+    public static int parseEpochDay(CharSequence text) {
+        return parseEpochDay(text, 0, text.length());
+    }
+
+    /**
+     * Parses a "yyyy-MM-dd" date from a range of a CharSequence without allocating.
+     * @param text the text to parse
+     * @param start the index of the first character
+     * @param end the index after the last character
+     * @return the days since 1970-01-01, or {@link #INVALID_DATE}
+     */
+    public static int parseEpochDay(CharSequence text, int start, int end) {
+        if (end - start != LENGTH || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-') {
+            return INVALID_DATE;
+        }
+        int d0 = text.charAt(start) - '0';
+        int d1 = text.charAt(start + 1) - '0';
+        int d2 = text.charAt(start + 2) - '0';
+        int d3 = text.charAt(start + 3) - '0';
+        int m0 = text.charAt(start + 5) - '0';
+        int m1 = text.charAt(start + 6) - '0';
+        int day0 = text.charAt(start + 8) - '0';
+        int day1 = text.charAt(start + 9) - '0';
+        return toEpochDay(d0, d1, d2, d3, m0, m1, day0, day1);
+    }
+
+    /**
+     * Parses a "yyyy-MM-dd" date from ASCII or UTF-8 bytes without allocating.
+     * @param bytes the bytes to parse
+     * @param offset the index of the first byte
+     * @param length the number of bytes
+     * @return the days since 1970-01-01, or {@link #INVALID_DATE}
+     */
+    public static int parseEpochDay(byte[] bytes, int offset, int length) {
+        if (length != LENGTH || bytes[offset + 4] != '-' || bytes[offset + 7] != '-') {
+            return INVALID_DATE;
+        }
+        return toEpochDay(bytes[offset] - '0', bytes[offset + 1] - '0', bytes[offset + 2] - '0',
+                bytes[offset + 3] - '0', bytes[offset + 5] - '0', bytes[offset + 6] - '0',
+                bytes[offset + 8] - '0', bytes[offset + 9] - '0');
+    }
+
+    private static int toEpochDay(int d0, int d1, int d2, int d3, int m0, int m1, int day0, int day1) {
+        // Negative if any of the values is outside 0-9
+        int digits = d0 | d1 | d2 | d3 | m0 | m1 | day0 | day1
+                | (9 - d0) | (9 - d1) | (9 - d2) | (9 - d3) | (9 - m0) | (9 - m1) | (9 - day0) | (9 - day1);
+        if (digits < 0) {
+            return INVALID_DATE;
+        }
+        int year = d0 * 1000 + d1 * 100 + d2 * 10 + d3;
+        int month = m0 * 10 + m1;
+        int day = day0 * 10 + day1;
+        if (year == 0 || month == 0 || month > 12 || day == 0) {
+            return INVALID_DATE;
+        }
+        boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+        if (day > DAYS_IN_MONTH[month] && !(leap && month == 2 && day == 29)) {
+            return INVALID_DATE;
+        }
+        // Same arithmetic as LocalDate.toEpochDay, in int since years are below 10000
+        int total = 365 * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400
+                + (367 * month - 362) / 12 + day - 1;
+        if (month > 2) {
+            total -= leap ? 1 : 2;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Parses a column of dates. Invalid and null values are stored as {@link #INVALID_DATE}
+     * and flagged in the bitmap.
+     * @param values the values to parse, e.g. a String[]
+     * @param epochDays receives the days since 1970-01-01 of each row
+     * @param invalid receives a bitmap of invalid rows: bit {@code row & 63} of word {@code row >>> 6}
+     * @return the number of invalid rows
+     * @throws IllegalArgumentException if epochDays or invalid is too small for the column
+     */
+    public static int parseColumn(CharSequence[] values, int[] epochDays, long[] invalid) {
+        checkCapacity(values.length, epochDays, invalid);
+        int invalidCount = 0;
+        for (int row = 0; row < values.length; row++) {
+            CharSequence value = values[row];
+            int epochDay = value == null ? INVALID_DATE : parseEpochDay(value, 0, value.length());
+            invalidCount += record(row, epochDay, epochDays, invalid);
+        }
+        return invalidCount;
+    }
+
+    /**
+     * Parses a column of dates. Invalid and null values are stored as {@link #INVALID_DATE}
+     * and flagged in the bitmap.
+     * @param values the values to parse
+     * @param epochDays receives the days since 1970-01-01 of each row
+     * @param invalid receives a bitmap of invalid rows: bit {@code row & 63} of word {@code row >>> 6}
+     * @return the number of invalid rows
+     * @throws IllegalArgumentException if epochDays or invalid is too small for the column
+     */
+    public static int parseColumn(List<? extends CharSequence> values, int[] epochDays, long[] invalid) {
+        checkCapacity(values.size(), epochDays, invalid);
+        int invalidCount = 0;
+        int row = 0;
+        for (CharSequence value : values) {
+            int epochDay = value == null ? INVALID_DATE : parseEpochDay(value, 0, value.length());
+            invalidCount += record(row++, epochDay, epochDays, invalid);
+        }
+        return invalidCount;
+    }
+
+    /**
+     * Parses a column of dates stored one per line, as in a single-column CSV file. Lines end in
+     * "\n" or "\r\n"; a final line terminator is optional. Invalid lines, including empty ones,
+     * are stored as {@link #INVALID_DATE} and flagged in the bitmap.
+     * @param bytes the bytes to parse
+     * @param offset the index of the first byte
+     * @param length the number of bytes
+     * @param epochDays receives the days since 1970-01-01 of each line
+     * @param invalid receives a bitmap of invalid lines: bit {@code row & 63} of word {@code row >>> 6}
+     * @return the number of lines parsed
+     * @throws IllegalArgumentException if epochDays or invalid is too small for the number of lines
+     */
+    public static int parseColumn(byte[] bytes, int offset, int length, int[] epochDays, long[] invalid) {
+        int end = offset + length;
+        int row = 0;
+        for (int lineStart = offset; lineStart < end; row++) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (row >= epochDays.length || row >>> 6 >= invalid.length) {
+                throw new IllegalArgumentException("Arrays too small for more than " + row + " rows");
+            }
+            if ((row & 63) == 0) {
+                invalid[row >>> 6] = 0;
+            }
+            record(row, parseEpochDay(bytes, lineStart, lineEnd - lineStart), epochDays, invalid);
+            lineStart = next;
+        }
+        return row;
+    }
+
+    private static void checkCapacity(int rows, int[] epochDays, long[] invalid) {
+        if (epochDays.length < rows || invalid.length < (rows + 63) >>> 6) {
+            throw new IllegalArgumentException("Arrays too small for " + rows + " rows");
+        }
+        Arrays.fill(invalid, 0, (rows + 63) >>> 6, 0L);
+    }
+
+    private static int record(int row, int epochDay, int[] epochDays, long[] invalid) {
+        epochDays[row] = epochDay;
+        if (epochDay == INVALID_DATE) {
+            invalid[row >>> 6] |= 1L << row;
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Formats a LocalDate object to "yyyy-MM-dd" string format. Recently formatted dates are
+     * served from a small cache, as date columns tend to repeat the same few values.
+     * @param date the LocalDate object to format
+     * @return the formatted date string
+     */
+    public static String formatDate(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        int slot = (int) epochDay & (CACHE_SIZE - 1);
+        FormattedDate cached = formatCache[slot];
+        if (cached != null && cached.epochDay() == epochDay) {
+            return cached.text();
+        }
+        String text = format(date);
+        formatCache[slot] = new FormattedDate(epochDay, text);
+        return text;
+    }
+
+    private static String format(LocalDate date) {
+        int year = date.getYear();
+        if (year < 1 || year > 9999) {
+            return date.format(formatter);
+        }
+        int month = date.getMonthValue();
+        int day = date.getDayOfMonth();
+        char[] chars = {
+                (char) ('0' + year / 1000), (char) ('0' + year / 100 % 10), (char) ('0' + year / 10 % 10),
+                (char) ('0' + year % 10), '-', (char) ('0' + month / 10), (char) ('0' + month % 10), '-',
+                (char) ('0' + day / 10), (char) ('0' + day % 10)};
+        return new String(chars);
+    }
+}
@@ -0,0 +1,224 @@
+package com.oniox.learn;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link BatchLoader.BatchFunction} that looks keys up with
+ * {@code SELECT columns FROM table WHERE key IN (?, ?, ...)} on one connection.
+ * <p>
+ * The number of placeholders is rounded up to a power of two, padded with repeats of the last
+ * key, so however batch sizes vary the driver and server only ever see a handful of statement
+ * texts and keep reusing their parsed plans. Batches above {@code maxInListSize} keys are split
+ * into several queries on the same connection (Oracle refuses more than 1000 expressions in a
+ * list; SQL Server takes at most 2100 parameters).
+ * <p>
+ * A bound array ({@code key = ANY (?)}) would need one statement text for every size, but only
+ * some drivers support it and neither the Oracle nor the SQL Server ones do without vendor types,
+ * so lists are used throughout.
+ *
+ * @param <K> The key type, as read by {@code ResultSet.getObject(keyColumn, keyType)}
+ * @param <V> The value type
+ */
+public final class InListQuery<K, V> implements BatchLoader.BatchFunction<K, V> {
+
+    private static final Pattern COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_#$]*");
+
+    /**
+     * Reads the value of the current row.
+     *
+     * @param <V> The value type
+     */
+    @FunctionalInterface
+    public interface RowReader<V> {
+
+        /**
+         * @param rs A result set positioned on a row; must not be advanced
+         * @return The value for the row's key
+         * @throws SQLException If reading fails
+         */
+        V read(ResultSet rs) throws SQLException;
+    }
+
+    private final DataSource dataSource;
+    private final String prefix;
+    private final String keyColumn;
+    private final Class<K> keyType;
+    private final RowReader<V> reader;
+    private final int maxInListSize;
+
+    private InListQuery(Builder<K, V> builder) {
+        this.dataSource = builder.dataSource;
+        this.keyColumn = builder.keyColumn;
+        this.prefix = "SELECT " + builder.columns + " FROM " + builder.table + " WHERE " + keyColumn + " IN (";
+        this.keyType = builder.keyType;
+        this.reader = builder.reader;
+        this.maxInListSize = builder.maxInListSize;
+    }
+
+    /**
+     * @param keyType The class keys are read as
+     * @param reader  Reads the value of a row
+     * @param <K>     The key type
+     * @param <V>     The value type
+     * @return A new builder for an InListQuery
+     */
+    public static <K, V> Builder<K, V> builder(Class<K> keyType, RowReader<V> reader) {
+        return new Builder<>(keyType, reader);
+    }
+
+    /**
+     * @param keys Distinct keys
+     * @return The value of each key found; where a key matches several rows, the last one read
+     * @throws SQLException If a query fails
+     */
+    @Override
+    public Map<K, V> load(List<K> keys) throws SQLException {
+        Map<K, V> values = new HashMap<>(keys.size() * 2);
+        if (keys.isEmpty()) {
+            return values;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            for (int from = 0; from < keys.size(); from += maxInListSize) {
+                query(connection, keys.subList(from, Math.min(from + maxInListSize, keys.size())), values);
+            }
+        }
+        return values;
+    }
+
+    private void query(Connection connection, List<K> keys, Map<K, V> values) throws SQLException {
+        int placeholders = placeholders(keys.size());
+        try (PreparedStatement statement = connection.prepareStatement(sql(placeholders))) {
+            for (int i = 0; i < placeholders; i++) {
+                statement.setObject(i + 1, keys.get(Math.min(i, keys.size() - 1)));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    values.put(rs.getObject(keyColumn, keyType), reader.read(rs));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The smallest power of two of at least size, capped at maxInListSize
+     */
+    int placeholders(int size) {
+        int rounded = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        return Math.min(rounded, maxInListSize);
+    }
+
+    String sql(int placeholders) {
+        StringBuilder sql = new StringBuilder(prefix.length() + 3 * placeholders).append(prefix).append('?');
+        for (int i = 1; i < placeholders; i++) {
+            sql.append(", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    private static String column(String name) {
+        if (name == null || !COLUMN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Not a column name: " + name);
+        }
+        return name;
+    }
+
+    /**
+     * Builder for {@link InListQuery}.
+     *
+     * @param <K> The key type
+     * @param <V> The value type
+     */
+    public static final class Builder<K, V> {
+
+        private final Class<K> keyType;
+        private final RowReader<V> reader;
+        private DataSource dataSource;
+        private String table;
+        private String keyColumn = "id";
+        private String columns = "*";
+        private int maxInListSize = 1000;
+
+        private Builder(Class<K> keyType, RowReader<V> reader) {
+            this.keyType = keyType;
+            this.reader = reader;
+        }
+
+        /**
+         * @param dataSource The database to query; required
+         * @return This builder
+         */
+        public Builder<K, V> dataSource(DataSource dataSource) {
+            this.dataSource = dataSource;
+            return this;
+        }
+
+        /**
+         * @param table The table to query; required
+         * @return This builder
+         * @throws IllegalArgumentException If table is not a plain or qualified identifier
+         */
+        public Builder<K, V> table(String table) {
+            this.table = StreamingDataSync.identifier(table);
+            return this;
+        }
+
+        /**
+         * @param keyColumn The column keys are matched against (default id)
+         * @return This builder
+         * @throws IllegalArgumentException If keyColumn is not a plain identifier
+         */
+        public Builder<K, V> keyColumn(String keyColumn) {
+            this.keyColumn = column(keyColumn);
+            return this;
+        }
+
+        /**
+         * @param columns The columns to select, which must include the key column (default all)
+         * @return This builder
+         * @throws IllegalArgumentException If columns is empty or a column is not a plain identifier
+         */
+        public Builder<K, V> columns(String... columns) {
+            if (columns.length == 0) {
+                throw new IllegalArgumentException("At least one column is required");
+            }
+            StringBuilder list = new StringBuilder();
+            for (String name : columns) {
+                list.append(list.length() == 0 ? "" : ", ").append(column(name));
+            }
+            this.columns = list.toString();
+            return this;
+        }
+
+        /**
+         * @param maxInListSize The most keys per query (default 1000)
+         * @return This builder
+         * @throws IllegalArgumentException If maxInListSize is not positive
+         */
+        public Builder<K, V> maxInListSize(int maxInListSize) {
+            if (maxInListSize <= 0) {
+                throw new IllegalArgumentException("Max IN list size must be positive");
+            }
+            this.maxInListSize = maxInListSize;
+            return this;
+        }
+
+        /**
+         * @return The configured query
+         * @throws IllegalStateException If the data source or table is missing
+         */
+        public InListQuery<K, V> build() {
+            if (dataSource == null || table == null) {
+                throw new IllegalStateException("Both a data source and a table are required");
+            }
+            return new InListQuery<>(this);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.oniox.learn;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.ParseContext;
+import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+
+/**
+ * The shared, thread-safe parsing core behind the JSON utilities.
+ * <p>
+ * Everything here is created once and is immutable (or thread-safe after construction),
+ * so it can be used concurrently from platform threads, virtual threads and fork-join
+ * workers alike, with no per-thread state to build or clean up.
+ * <p>
+ * Jackson's parser buffers are recycled through a small bounded pool shared by all threads
+ * rather than Jackson's default thread-local recycler, which would allocate fresh buffers
+ * for every short-lived virtual thread.
+ */
+final class JsonCore {
+
+    /** Maximum number of idle buffer sets kept for reuse. */
+    static final int BUFFER_POOL_SIZE = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+    /** Streaming factory used for token-level parsing. */
+    static final JsonFactory FACTORY = JsonFactory.builder()
+            .recyclerPool(JsonRecyclerPools.newBoundedPool(BUFFER_POOL_SIZE))
+            .build();
+
+    /** Mapper used for tree building and value conversion; never reconfigured after creation. */
+    static final ObjectMapper MAPPER = new ObjectMapper(FACTORY);
+
+    /** Immutable reader for building JsonNode trees. */
+    static final ObjectReader TREE_READER = MAPPER.reader();
+
+    /** Immutable JsonPath configuration evaluating paths on JsonNode trees. */
+    static final Configuration CONFIGURATION = Configuration.builder()
+            .jsonProvider(new JacksonJsonNodeJsonProvider(MAPPER))
+            .mappingProvider(new JacksonMappingProvider(MAPPER))
+            .options(Option.SUPPRESS_EXCEPTIONS)
+            .build();
+
+    /** Parse context bound to {@link #CONFIGURATION}. */
+    static final ParseContext PARSE_CONTEXT = JsonPath.using(CONFIGURATION);
+
+    private JsonCore() {
+        throw new AssertionError("JsonCore is a holder class and should not be instantiated");
+    }
+}
@@ -0,0 +1,389 @@
+package com.oniox.learn;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.DocumentContext;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An opt-in cache of parsed documents for payloads that arrive byte-for-byte identical
+ * over and over (reference data, config blobs, retried messages).
+ * <p>
+ * Entries are keyed by a fast 64-bit content hash plus the content length; on a hash match
+ * the retained source is compared as well, so a hash collision can never return the wrong
+ * document. Entries are evicted least-recently-used first once the total approximate
+ * retained size exceeds the configured maximum weight, and expire after the configured
+ * time-to-live.
+ * <p>
+ * Cached documents are shared, so they are handed out as read-only DocumentContexts:
+ * all write operations throw UnsupportedOperationException.
+ *
+ * <pre>
+ * JsonDocumentCache cache = JsonDocumentCache.builder()
+ *         .maximumWeight(64L * 1024 * 1024)
+ *         .expireAfterWrite(Duration.ofMinutes(10))
+ *         .build();
+ * DocumentContext context = cache.parse(json);
+ * </pre>
+ */
+public final class JsonDocumentCache {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long MIX_1 = 0x9E3779B97F4A7C15L;
+    private static final long MIX_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private final long maximumWeight;
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private JsonDocumentCache(long maximumWeight, long ttlNanos) {
+        this.maximumWeight = maximumWeight;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * @return A new builder for a JsonDocumentCache
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the cached document for the given JSON string, parsing and caching it on a miss.
+     *
+     * @param json The JSON string
+     * @return A read-only DocumentContext for the document
+     * @throws IllegalArgumentException If the JSON string is null or empty
+     * @throws com.jayway.jsonpath.InvalidJsonException If the JSON is invalid
+     */
+    public DocumentContext parse(String json) {
+        if (json == null || json.isEmpty()) {
+            throw new IllegalArgumentException("JSON string cannot be null or empty");
+        }
+        Key key = new Key(hash(json), json.length(), false);
+        DocumentContext cached = lookup(key, json);
+        if (cached != null) {
+            return cached;
+        }
+        DocumentContext parsed = JsonPathUtil.parseJson(json);
+        JsonNode root = parsed.json();
+        // Latin-1 compact strings: ~1 byte per char plus header
+        return store(key, json, 40L + json.length(), parsed, root);
+    }
+
+    /**
+     * Returns the cached document for the given UTF-8 JSON bytes, parsing and caching it on a miss.
+     * The bytes are copied when cached, so the caller may reuse the array afterwards.
+     *
+     * @param json The JSON bytes
+     * @return A read-only DocumentContext for the document
+     * @throws IllegalArgumentException If the byte array is null or empty
+     * @throws com.jayway.jsonpath.InvalidJsonException If the JSON is invalid
+     */
+    public DocumentContext parse(byte[] json) {
+        if (json == null || json.length == 0) {
+            throw new IllegalArgumentException("JSON bytes cannot be null or empty");
+        }
+        Key key = new Key(hash(json), json.length, true);
+        DocumentContext cached = lookup(key, json);
+        if (cached != null) {
+            return cached;
+        }
+        DocumentContext parsed = JsonPathUtil.parseJson(json);
+        JsonNode root = parsed.json();
+        return store(key, json.clone(), 16L + json.length, parsed, root);
+    }
+
+    private DocumentContext lookup(Key key, Object source) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (ttlNanos > 0 && System.nanoTime() - entry.createdNanos > ttlNanos) {
+                    remove(key, entry);
+                } else if (sameContent(entry.source, source)) {
+                    hits.increment();
+                    return entry.context;
+                }
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    private DocumentContext store(Key key, Object source, long sourceWeight, DocumentContext parsed, JsonNode root) {
+        DocumentContext context = new ReadOnlyDocumentContext(parsed, root);
+        long weight = sourceWeight + estimateWeight(root);
+        if (weight > maximumWeight) {
+            return context; // too large to ever fit; serve it uncached
+        }
+        Entry entry = new Entry(source, context, weight, System.nanoTime());
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                totalWeight -= previous.weight;
+            }
+            totalWeight += weight;
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (totalWeight > maximumWeight && eldest.hasNext()) {
+                Map.Entry<Key, Entry> victim = eldest.next();
+                totalWeight -= victim.getValue().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+        return context;
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        totalWeight -= entry.weight;
+        evictions.increment();
+    }
+
+    private static boolean sameContent(Object cached, Object source) {
+        if (cached instanceof String) {
+            return cached.equals(source);
+        }
+        return source instanceof byte[] && Arrays.equals((byte[]) cached, (byte[]) source);
+    }
+
+    /**
+     * Rough retained size of a Jackson tree: object headers, field table entries, keys and scalar payloads.
+     */
+    static long estimateWeight(JsonNode node) {
+        if (node.isObject()) {
+            long weight = 64;
+            for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = it.next();
+                weight += 48 + 40 + field.getKey().length() + estimateWeight(field.getValue());
+            }
+            return weight;
+        }
+        if (node.isArray()) {
+            long weight = 40 + 4L * node.size();
+            for (JsonNode element : node) {
+                weight += estimateWeight(element);
+            }
+            return weight;
+        }
+        if (node.isTextual()) {
+            return 16 + 40 + node.textValue().length();
+        }
+        if (node.isBigDecimal() || node.isBigInteger()) {
+            return 64;
+        }
+        return 24;
+    }
+
+    static long hash(String s) {
+        long h = FNV_OFFSET;
+        int length = s.length();
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            long k = s.charAt(i) | (long) s.charAt(i + 1) << 16 | (long) s.charAt(i + 2) << 32 | (long) s.charAt(i + 3) << 48;
+            h = Long.rotateLeft(h ^ k * MIX_1, 31) * MIX_2;
+        }
+        for (; i < length; i++) {
+            h = (h ^ s.charAt(i)) * MIX_1;
+        }
+        return mix(h ^ length);
+    }
+
+    static long hash(byte[] bytes) {
+        long h = FNV_OFFSET;
+        int length = bytes.length;
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            long k = (bytes[i] & 0xFFL) | (bytes[i + 1] & 0xFFL) << 8 | (bytes[i + 2] & 0xFFL) << 16
+                    | (bytes[i + 3] & 0xFFL) << 24 | (bytes[i + 4] & 0xFFL) << 32 | (bytes[i + 5] & 0xFFL) << 40
+                    | (bytes[i + 6] & 0xFFL) << 48 | (bytes[i + 7] & 0xFFL) << 56;
+            h = Long.rotateLeft(h ^ k * MIX_1, 31) * MIX_2;
+        }
+        for (; i < length; i++) {
+            h = (h ^ (bytes[i] & 0xFF)) * MIX_1;
+        }
+        return mix(h ^ length);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Removes all cached documents. Counters are not reset.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            totalWeight = 0;
+        }
+    }
+
+    /**
+     * @return The number of cached documents
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return The approximate retained size of all cached documents, in bytes
+     */
+    public long weight() {
+        synchronized (entries) {
+            return totalWeight;
+        }
+    }
+
+    /**
+     * @return The number of lookups served from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that required parsing
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of documents removed because of the weight limit or expiry
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "JsonDocumentCache[size=" + size() + ", weight=" + weight() + "/" + maximumWeight
+                + ", hits=" + hitCount() + ", misses=" + missCount() + ", evictions=" + evictionCount() + "]";
+    }
+
+    private static final class Key {
+        final long hash;
+        final int length;
+        final boolean bytes;
+
+        Key(long hash, int length, boolean bytes) {
+            this.hash = hash;
+            this.length = length;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && length == other.length && bytes == other.bytes;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hash, length, bytes);
+        }
+    }
+
+    private static final class Entry {
+        final Object source;
+        final DocumentContext context;
+        final long weight;
+        final long createdNanos;
+
+        Entry(Object source, DocumentContext context, long weight, long createdNanos) {
+            this.source = source;
+            this.context = context;
+            this.weight = weight;
+            this.createdNanos = createdNanos;
+        }
+    }
+
+    /**
+     * Builder for {@link JsonDocumentCache}.
+     */
+    public static final class Builder {
+
+        private long maximumWeight = 32L * 1024 * 1024;
+        private Duration expireAfterWrite = Duration.ZERO;
+
+        private Builder() {
+        }
+
+        /**
+         * @param bytes The maximum approximate retained size of all cached documents (default 32 MB)
+         * @return This builder
+         * @throws IllegalArgumentException if bytes is not positive
+         */
+        public Builder maximumWeight(long bytes) {
+            if (bytes <= 0) {
+                throw new IllegalArgumentException("Maximum weight must be positive");
+            }
+            this.maximumWeight = bytes;
+            return this;
+        }
+
+        /**
+         * @param ttl How long a document stays cached after it was parsed; zero disables expiry (default)
+         * @return This builder
+         * @throws IllegalArgumentException if ttl is negative
+         */
+        public Builder expireAfterWrite(Duration ttl) {
+            if (ttl.isNegative()) {
+                throw new IllegalArgumentException("TTL cannot be negative");
+            }
+            this.expireAfterWrite = ttl;
+            return this;
+        }
+
+        /**
+         * @return The configured cache
+         */
+        public JsonDocumentCache build() {
+            return new JsonDocumentCache(maximumWeight, expireAfterWrite.toNanos());
+        }
+    }
+
+    /**
+     * Example usage of the JsonDocumentCache.
+     */
+    public static void main(String[] args) {
+        JsonDocumentCache cache = JsonDocumentCache.builder()
+                .maximumWeight(1024 * 1024)
+                .expireAfterWrite(Duration.ofMinutes(5))
+                .build();
+        String reference = "{\"currency\":\"EUR\",\"rates\":{\"USD\":1.08,\"GBP\":0.85}}";
+
+        DocumentContext first = cache.parse(reference);
+        DocumentContext second = cache.parse(new String(reference.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+        System.out.println("Same cached context: " + (first == second));
+        System.out.println("USD rate: " + JsonPathUtil.getDouble(second, "$.rates.USD", 0.0));
+        try {
+            second.set("$.currency", "USD");
+        } catch (UnsupportedOperationException e) {
+            System.out.println("Write rejected: " + e.getMessage());
+        }
+        System.out.println(cache);
+    }
+}
@@ -0,0 +1,151 @@
+package com.oniox.learn;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.List;
+
+/**
+ * A definite JsonPath made only of child fields and array indices (e.g. {@code $.order.items[0].sku}),
+ * compiled into a form that walks a Jackson JsonNode tree directly.
+ * <p>
+ * Resolving a path allocates nothing and never throws: a missing field, an out-of-range
+ * index or a type mismatch along the way simply resolves to null. The primitive accessors
+ * return the caller's default for missing or mistyped values instead of boxing or throwing.
+ * Instances are immutable and thread-safe.
+ */
+public final class JsonNodePath {
+
+    private final String path;
+    // For each step either fields[i] is a field name, or it is null and indices[i] is an array index
+    private final String[] fields;
+    private final int[] indices;
+
+    private JsonNodePath(String path, List<Object> segments) {
+        this.path = path;
+        this.fields = new String[segments.size()];
+        this.indices = new int[segments.size()];
+        for (int i = 0; i < segments.size(); i++) {
+            Object segment = segments.get(i);
+            if (segment instanceof String) {
+                fields[i] = (String) segment;
+            } else {
+                indices[i] = (Integer) segment;
+            }
+        }
+    }
+
+    /**
+     * Compiles a JsonPath expression for direct JsonNode navigation.
+     *
+     * @param path The JsonPath expression
+     * @return The compiled navigator
+     * @throws IllegalArgumentException If the path uses anything other than child fields and array indices
+     */
+    public static JsonNodePath compile(String path) {
+        JsonNodePath compiled = tryCompile(JsonPath.compile(path));
+        if (compiled == null) {
+            throw new IllegalArgumentException("Not a definite field/index path: " + path);
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns a navigator for the compiled path, or null if it cannot be resolved by direct navigation.
+     */
+    static JsonNodePath tryCompile(JsonPath compiled) {
+        List<Object> segments = StreamingJsonPathExtractor.parseSegments(compiled.getPath());
+        if (segments == null) {
+            return null;
+        }
+        for (Object segment : segments) {
+            if (!(segment instanceof String) && !(segment instanceof Integer)) {
+                return null;
+            }
+        }
+        return new JsonNodePath(compiled.getPath(), segments);
+    }
+
+    /**
+     * Resolves the path against a tree.
+     *
+     * @param root The root node
+     * @return The node at the path, or null if it does not exist
+     */
+    public JsonNode resolve(JsonNode root) {
+        JsonNode current = root;
+        for (int i = 0; i < fields.length && current != null; i++) {
+            current = fields[i] != null ? current.get(fields[i]) : current.get(indices[i]);
+        }
+        return current;
+    }
+
+    /**
+     * @param root The root node
+     * @param defaultValue The value to return when the path is missing or not a number
+     * @return The int value at the path, or defaultValue
+     */
+    public int getInt(JsonNode root, int defaultValue) {
+        return intValue(resolve(root), defaultValue);
+    }
+
+    /**
+     * @param root The root node
+     * @param defaultValue The value to return when the path is missing or not a number
+     * @return The long value at the path, or defaultValue
+     */
+    public long getLong(JsonNode root, long defaultValue) {
+        return longValue(resolve(root), defaultValue);
+    }
+
+    /**
+     * @param root The root node
+     * @param defaultValue The value to return when the path is missing or not a number
+     * @return The double value at the path, or defaultValue
+     */
+    public double getDouble(JsonNode root, double defaultValue) {
+        return doubleValue(resolve(root), defaultValue);
+    }
+
+    /**
+     * @param root The root node
+     * @param defaultValue The value to return when the path is missing or not a boolean
+     * @return The boolean value at the path, or defaultValue
+     */
+    public boolean getBoolean(JsonNode root, boolean defaultValue) {
+        return booleanValue(resolve(root), defaultValue);
+    }
+
+    /**
+     * @param root The root node
+     * @return The text of the scalar at the path, or null if it is missing, null or a container
+     */
+    public String getString(JsonNode root) {
+        return textValue(resolve(root));
+    }
+
+    static int intValue(JsonNode node, int defaultValue) {
+        return node != null && node.isNumber() ? node.intValue() : defaultValue;
+    }
+
+    static long longValue(JsonNode node, long defaultValue) {
+        return node != null && node.isNumber() ? node.longValue() : defaultValue;
+    }
+
+    static double doubleValue(JsonNode node, double defaultValue) {
+        return node != null && node.isNumber() ? node.doubleValue() : defaultValue;
+    }
+
+    static boolean booleanValue(JsonNode node, boolean defaultValue) {
+        return node != null && node.isBoolean() ? node.booleanValue() : defaultValue;
+    }
+
+    static String textValue(JsonNode node) {
+        return node != null && node.isValueNode() && !node.isNull() ? node.asText() : null;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -1,3 +1,5 @@
+package com.oniox.learn;
+
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
@@ -39,13 +41,26 @@ public class JsonParserUtil {
     }
     
     /**
-     * Validates if a string is valid JSON.
+     * Validates if a string is valid JSON, without building a tree.
+     * A document followed by anything other than whitespace is not valid.
      * 
      * @param jsonString The JSON string to validate
      * @return true if the string is valid JSON, false otherwise
+     * @see JsonValidator
      */
     public static boolean isValidJson(String jsonString) {
-        return parseJsonSafely(jsonString) != null;
+        return JsonValidator.defaultValidator().validate(jsonString).isValid();
+    }
+    
+    /**
+     * Validates if UTF-8 encoded bytes are valid JSON, without decoding them to a String first.
+     * 
+     * @param json The JSON bytes to validate
+     * @return true if the bytes are valid JSON, false otherwise
+     * @see JsonValidator
+     */
+    public static boolean isValidJson(byte[] json) {
+        return JsonValidator.defaultValidator().validate(json).isValid();
     }
     
     /**
@@ -0,0 +1,185 @@
+package com.oniox.learn;
+
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe LRU cache of compiled JsonPath expressions.
+ * Compiling a path string is far more expensive than evaluating the compiled form,
+ * so callers that evaluate the same expressions repeatedly should go through this cache
+ * (or precompile them once with {@link CompiledPaths}).
+ * <p>
+ * Lookups take no lock: entries live in a ConcurrentHashMap and are stamped, when used, with
+ * a clock that only inserts advance, so a hit writes nothing shared once its entry carries the
+ * current stamp. An insert that takes the cache over capacity scans for the oldest stamp and
+ * evicts that entry, which is least recently used up to entries last used between the same two
+ * inserts.
+ */
+public final class JsonPathCache {
+
+    /** Default number of compiled paths kept by {@link #defaultCache()}. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final JsonPathCache DEFAULT = new JsonPathCache(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final ConcurrentHashMap<String, CachedPath> entries;
+    private final AtomicLong clock = new AtomicLong();
+    private final Object evictionLock = new Object();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache holding at most {@code capacity} compiled paths.
+     *
+     * @param capacity The maximum number of entries
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public JsonPathCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new ConcurrentHashMap<>(Math.min(capacity, 1024) * 2);
+    }
+
+    /**
+     * Returns the shared cache used by JsonPathUtil and JsonPathExtractor.
+     *
+     * @return The process-wide JsonPathCache
+     */
+    public static JsonPathCache defaultCache() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the compiled form of the given path, compiling and caching it on first use.
+     *
+     * @param path The JsonPath expression
+     * @return The compiled JsonPath
+     * @throws com.jayway.jsonpath.InvalidPathException If the path cannot be compiled
+     */
+    public JsonPath get(String path) {
+        return entry(path).compiled;
+    }
+
+    /**
+     * Returns the direct JsonNode navigator for the given path, if the path is a plain chain of
+     * child fields and array indices.
+     *
+     * @param path The JsonPath expression
+     * @return The navigator, or null if the path needs full JsonPath evaluation
+     * @throws com.jayway.jsonpath.InvalidPathException If the path cannot be compiled
+     */
+    public JsonNodePath getNodePath(String path) {
+        return entry(path).nodePath;
+    }
+
+    private CachedPath entry(String path) {
+        CachedPath entry = entries.get(path);
+        if (entry != null) {
+            hits.increment();
+            entry.touch(clock.get());
+            return entry;
+        }
+        misses.increment();
+        // A concurrent duplicate compile is harmless; the first entry in wins
+        JsonPath compiled = JsonPath.compile(path);
+        CachedPath created = new CachedPath(compiled, JsonNodePath.tryCompile(compiled), clock.incrementAndGet());
+        entry = entries.putIfAbsent(path, created);
+        if (entry != null) {
+            entry.touch(clock.get());
+            return entry;
+        }
+        if (entries.size() > capacity) {
+            evict();
+        }
+        return created;
+    }
+
+    /**
+     * Removes the entries with the oldest stamps until the cache is back within capacity.
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            while (entries.size() > capacity) {
+                Map.Entry<String, CachedPath> eldest = null;
+                for (Map.Entry<String, CachedPath> candidate : entries.entrySet()) {
+                    if (eldest == null || candidate.getValue().lastUsed < eldest.getValue().lastUsed) {
+                        eldest = candidate;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                entries.remove(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return The number of compiled paths currently cached
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The maximum number of compiled paths kept
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of lookups served from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that required compiling the path
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Removes all cached paths and resets the hit/miss counters.
+     */
+    public void clear() {
+        entries.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    private static final class CachedPath {
+        final JsonPath compiled;
+        final JsonNodePath nodePath;
+        volatile long lastUsed;
+
+        CachedPath(JsonPath compiled, JsonNodePath nodePath, long lastUsed) {
+            this.compiled = compiled;
+            this.nodePath = nodePath;
+            this.lastUsed = lastUsed;
+        }
+
+        void touch(long now) {
+            // Write only when the clock has moved, so hot entries are not written on every hit
+            if (lastUsed != now) {
+                lastUsed = now;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JsonPathCache[size=" + size() + ", capacity=" + capacity
+                + ", hits=" + hitCount() + ", misses=" + missCount() + "]";
+    }
+}
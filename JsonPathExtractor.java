@@ -1,5 +1,8 @@
+package com.oniox.learn;
+
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
@@ -41,8 +44,62 @@ public class JsonPathExtractor {
         return JsonParserUtil.parseJson(jsonString);
     }
     
+    /**
+     * Wraps an already-parsed JsonNode in a DocumentContext for repeated path evaluation.
+     * The tree is handed straight to the JacksonJsonNodeJsonProvider, so no serialization
+     * or re-parsing takes place. The context shares the node: write operations on the
+     * context modify the node in place.
+     * 
+     * @param node The JsonNode to wrap
+     * @return A reusable DocumentContext backed by the given node
+     */
+    public DocumentContext context(JsonNode node) {
+        if (node == null) {
+            throw new IllegalArgumentException("JsonNode cannot be null");
+        }
+        return JsonPath.using(jsonPathConfig).parse((Object) node);
+    }
+    
+    /**
+     * Parses a JSON string once and returns a DocumentContext for repeated path evaluation.
+     * 
+     * @param jsonString The JSON string to parse
+     * @return A reusable DocumentContext for the parsed JSON
+     * @throws IOException If parsing fails
+     */
+    public DocumentContext context(String jsonString) throws IOException {
+        return context(parse(jsonString));
+    }
+    
+    /**
+     * Extracts a value from a DocumentContext using a JSON path expression.
+     * 
+     * @param <T> The expected return type
+     * @param context The DocumentContext to extract from
+     * @param jsonPath The JSON path expression
+     * @param returnType The expected return type class
+     * @return The extracted value
+     */
+    public <T> T extractValue(DocumentContext context, String jsonPath, Class<T> returnType) {
+        return context.read(JsonPathUtil.compile(jsonPath), returnType);
+    }
+    
+    /**
+     * Extracts a value from a DocumentContext using a precompiled JSON path.
+     * 
+     * @param <T> The expected return type
+     * @param context The DocumentContext to extract from
+     * @param jsonPath The compiled JSON path
+     * @param returnType The expected return type class
+     * @return The extracted value
+     */
+    public <T> T extractValue(DocumentContext context, JsonPath jsonPath, Class<T> returnType) {
+        return context.read(jsonPath, returnType);
+    }
+    
     /**
      * Extracts a value from a JsonNode using a JSON path expression.
+     * The path is evaluated directly against the node tree.
      * 
      * @param <T> The expected return type
      * @param node The JsonNode to extract from
@@ -51,10 +108,7 @@ public class JsonPathExtractor {
      * @return The extracted value
      */
     public <T> T extractValue(JsonNode node, String jsonPath, Class<T> returnType) {
-        String jsonString = node.toString();
-        return JsonPath.using(jsonPathConfig)
-                .parse(jsonString)
-                .read(jsonPath, returnType);
+        return extractValue(context(node), jsonPath, returnType);
     }
     
     /**
@@ -118,6 +172,71 @@ public class JsonPathExtractor {
         }
     }
     
+    /**
+     * Gets an int value from a JsonNode without boxing or throwing.
+     * 
+     * @param node The JsonNode to extract from
+     * @param jsonPath The JSON path expression
+     * @param defaultValue The value to return when the path is missing or not a number
+     * @return The extracted int or defaultValue
+     */
+    public int getInt(JsonNode node, String jsonPath, int defaultValue) {
+        return JsonPathUtil.toInt(lookup(node, jsonPath), defaultValue);
+    }
+    
+    /**
+     * Gets a long value from a JsonNode without boxing or throwing.
+     * 
+     * @param node The JsonNode to extract from
+     * @param jsonPath The JSON path expression
+     * @param defaultValue The value to return when the path is missing or not a number
+     * @return The extracted long or defaultValue
+     */
+    public long getLong(JsonNode node, String jsonPath, long defaultValue) {
+        return JsonPathUtil.toLong(lookup(node, jsonPath), defaultValue);
+    }
+    
+    /**
+     * Gets a double value from a JsonNode without boxing or throwing.
+     * 
+     * @param node The JsonNode to extract from
+     * @param jsonPath The JSON path expression
+     * @param defaultValue The value to return when the path is missing or not a number
+     * @return The extracted double or defaultValue
+     */
+    public double getDouble(JsonNode node, String jsonPath, double defaultValue) {
+        return JsonPathUtil.toDouble(lookup(node, jsonPath), defaultValue);
+    }
+    
+    /**
+     * Gets a boolean value from a JsonNode without boxing or throwing.
+     * 
+     * @param node The JsonNode to extract from
+     * @param jsonPath The JSON path expression
+     * @param defaultValue The value to return when the path is missing or not a boolean
+     * @return The extracted boolean or defaultValue
+     */
+    public boolean getBoolean(JsonNode node, String jsonPath, boolean defaultValue) {
+        return JsonPathUtil.toBoolean(lookup(node, jsonPath), defaultValue);
+    }
+    
+    private Object lookup(JsonNode node, String jsonPath) {
+        JsonNodePath nodePath;
+        try {
+            nodePath = JsonPathCache.defaultCache().getNodePath(jsonPath);
+        } catch (Exception e) {
+            return null;
+        }
+        if (nodePath != null) {
+            return nodePath.resolve(node);
+        }
+        try {
+            return context(node).read(JsonPathUtil.compile(jsonPath));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
     /**
      * Gets a list of values from a JsonNode using a JSON path.
      * 
@@ -129,9 +248,9 @@ public class JsonPathExtractor {
      */
     public <T> List<T> getList(JsonNode node, String jsonPath, Class<T> elementType) {
         try {
-            return JsonPath.using(jsonPathConfig)
-                    .parse(node.toString())
-                    .read(jsonPath, List.class);
+            @SuppressWarnings("unchecked")
+            List<T> list = (List<T>) context(node).read(JsonPathUtil.compile(jsonPath), List.class);
+            return list;
         } catch (Exception e) {
             return null;
         }
@@ -171,6 +290,13 @@ public class JsonPathExtractor {
             // Parse the JSON string
             JsonNode rootNode = extractor.parse(jsonString);
             
+            // Wrap the parsed tree once and reuse it for several reads
+            DocumentContext context = extractor.context(rootNode);
+            String firstCategory = extractor.extractValue(context, "$.store.book[0].category", String.class);
+            String bicycleColorFromContext = extractor.extractValue(context, "$.store.bicycle.color", String.class);
+            System.out.println("First book category: " + firstCategory);
+            System.out.println("Bicycle color (context): " + bicycleColorFromContext);
+            
             // Extract values using JSON path
             String firstBookTitle = extractor.getString(rootNode, "$.store.book[0].title");
             Integer bookCount = extractor.extractValue(rootNode, "$.store.book.length()", Integer.class);
@@ -0,0 +1,24 @@
+package com.oniox.learn;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a record component or POJO field to a JsonPath expression for use with {@link JsonProjection}.
+ *
+ * <pre>
+ * record Book(&#64;JsonPathField("$.title") String title,
+ *             &#64;JsonPathField("$.price") double price) {}
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT})
+public @interface JsonPathField {
+
+    /**
+     * @return The JsonPath expression whose value is bound to the annotated member
+     */
+    String value();
+}
@@ -1,19 +1,25 @@
+package com.oniox.learn;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.InvalidJsonException;
+import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
-import com.jayway.jsonpath.Option;
-import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
-import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
 
 /**
  * A stateless utility class for parsing JSON and extracting values using JsonPath.
  * Optimized to parse JSON once into a DocumentContext for multiple path evaluations.
+ * All methods are thread-safe and share one immutable parsing core ({@link JsonCore}),
+ * so they are equally cheap on platform threads, virtual threads and fork-join workers.
  */
 public final class JsonPathUtil {
     
@@ -22,19 +28,6 @@ public final class JsonPathUtil {
         throw new AssertionError("JsonPathUtil is a utility class and should not be instantiated");
     }
     
-    // Thread-local ObjectMapper to ensure thread safety while reusing instances
-    private static final ThreadLocal<ObjectMapper> MAPPER_THREAD_LOCAL = ThreadLocal.withInitial(ObjectMapper::new);
-    
-    // Thread-local Configuration to ensure thread safety while reusing instances
-    private static final ThreadLocal<Configuration> CONFIG_THREAD_LOCAL = ThreadLocal.withInitial(() -> {
-        ObjectMapper mapper = MAPPER_THREAD_LOCAL.get();
-        return Configuration.builder()
-                .jsonProvider(new JacksonJsonNodeJsonProvider())
-                .mappingProvider(new JacksonMappingProvider(mapper))
-                .options(Option.SUPPRESS_EXCEPTIONS)
-                .build();
-    });
-    
     /**
      * Parses a JSON string into a DocumentContext for efficient path evaluation.
      *
@@ -46,7 +39,74 @@ public final class JsonPathUtil {
         if (json == null || json.trim().isEmpty()) {
             throw new IllegalArgumentException("JSON string cannot be null or empty");
         }
-        return JsonPath.using(CONFIG_THREAD_LOCAL.get()).parse(json);
+        return JsonCore.PARSE_CONTEXT.parse(json);
+    }
+    
+    /**
+     * Wraps an already-parsed JsonNode in a DocumentContext without serializing it again.
+     * The context shares the node, so write operations on the context modify the node in place.
+     *
+     * @param node The JsonNode to wrap
+     * @return A DocumentContext backed by the given node
+     * @throws IllegalArgumentException If the node is null
+     */
+    public static DocumentContext wrap(JsonNode node) {
+        if (node == null) {
+            throw new IllegalArgumentException("JsonNode cannot be null");
+        }
+        return JsonCore.PARSE_CONTEXT.parse((Object) node);
+    }
+    
+    /**
+     * Parses UTF-8 encoded JSON bytes into a DocumentContext without decoding them to a String first.
+     *
+     * @param json The JSON bytes to parse
+     * @return A DocumentContext for the parsed JSON
+     * @throws IllegalArgumentException If the byte array is null or empty
+     * @throws InvalidJsonException If the JSON is invalid
+     */
+    public static DocumentContext parseJson(byte[] json) {
+        if (json == null || json.length == 0) {
+            throw new IllegalArgumentException("JSON bytes cannot be null or empty");
+        }
+        return parseJson(json, 0, json.length);
+    }
+    
+    /**
+     * Parses a slice of UTF-8 encoded JSON bytes into a DocumentContext.
+     *
+     * @param json The buffer holding the JSON bytes
+     * @param offset The offset of the first byte of the document
+     * @param length The number of bytes in the document
+     * @return A DocumentContext for the parsed JSON
+     * @throws InvalidJsonException If the JSON is invalid
+     */
+    public static DocumentContext parseJson(byte[] json, int offset, int length) {
+        try {
+            JsonNode node = JsonCore.TREE_READER.readTree(json, offset, length);
+            return JsonCore.PARSE_CONTEXT.parse((Object) node);
+        } catch (IOException e) {
+            throw new InvalidJsonException(e);
+        }
+    }
+    
+    /**
+     * Parses JSON from an InputStream into a DocumentContext.
+     *
+     * @param json The stream to read the JSON from
+     * @return A DocumentContext for the parsed JSON
+     * @throws InvalidJsonException If the JSON is invalid or cannot be read
+     */
+    public static DocumentContext parseJson(InputStream json) {
+        if (json == null) {
+            throw new IllegalArgumentException("JSON stream cannot be null");
+        }
+        try {
+            JsonNode node = JsonCore.TREE_READER.readTree(json);
+            return JsonCore.PARSE_CONTEXT.parse((Object) node);
+        } catch (IOException e) {
+            throw new InvalidJsonException(e);
+        }
     }
     
     /**
@@ -60,7 +120,7 @@ public final class JsonPathUtil {
         if (json == null || json.trim().isEmpty()) {
             throw new IllegalArgumentException("JSON string cannot be null or empty");
         }
-        return MAPPER_THREAD_LOCAL.get().readTree(json);
+        return JsonCore.TREE_READER.readTree(json);
     }
     
     /**
@@ -73,6 +133,23 @@ public final class JsonPathUtil {
      * @return The extracted value or null if not found
      */
     public static <T> T read(DocumentContext context, String path, Class<T> returnType) {
+        try {
+            return context.read(compile(path), returnType);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Extracts a value from a DocumentContext using a precompiled JsonPath.
+     *
+     * @param <T> The expected return type
+     * @param context The DocumentContext
+     * @param path The compiled JsonPath
+     * @param returnType The class of the expected return type
+     * @return The extracted value or null if not found
+     */
+    public static <T> T read(DocumentContext context, JsonPath path, Class<T> returnType) {
         try {
             return context.read(path, returnType);
         } catch (Exception e) {
@@ -80,6 +157,26 @@ public final class JsonPathUtil {
         }
     }
     
+    /**
+     * Returns the compiled form of a JsonPath expression from the shared LRU cache.
+     *
+     * @param path The JsonPath expression
+     * @return The compiled JsonPath
+     * @throws com.jayway.jsonpath.InvalidPathException If the path cannot be compiled
+     */
+    public static JsonPath compile(String path) {
+        return JsonPathCache.defaultCache().get(path);
+    }
+    
+    /**
+     * Returns the shared cache of compiled paths, e.g. to inspect its size and hit/miss counts.
+     *
+     * @return The shared JsonPathCache
+     */
+    public static JsonPathCache pathCache() {
+        return JsonPathCache.defaultCache();
+    }
+    
     /**
      * Gets a String value from a DocumentContext using JsonPath.
      *
@@ -124,6 +221,148 @@ public final class JsonPathUtil {
         return read(context, path, Boolean.class);
     }
     
+    /**
+     * Gets an int value from a DocumentContext without boxing or throwing.
+     * Plain field/index paths are resolved by walking the JsonNode tree directly.
+     *
+     * @param context The DocumentContext
+     * @param path The JsonPath expression
+     * @param defaultValue The value to return when the path is missing or not a number
+     * @return The extracted int or defaultValue
+     */
+    public static int getInt(DocumentContext context, String path, int defaultValue) {
+        return toInt(lookup(context, path), defaultValue);
+    }
+    
+    /**
+     * Gets a long value from a DocumentContext without boxing or throwing.
+     *
+     * @param context The DocumentContext
+     * @param path The JsonPath expression
+     * @param defaultValue The value to return when the path is missing or not a number
+     * @return The extracted long or defaultValue
+     */
+    public static long getLong(DocumentContext context, String path, long defaultValue) {
+        return toLong(lookup(context, path), defaultValue);
+    }
+    
+    /**
+     * Gets a double value from a DocumentContext without boxing or throwing.
+     *
+     * @param context The DocumentContext
+     * @param path The JsonPath expression
+     * @param defaultValue The value to return when the path is missing or not a number
+     * @return The extracted double or defaultValue
+     */
+    public static double getDouble(DocumentContext context, String path, double defaultValue) {
+        return toDouble(lookup(context, path), defaultValue);
+    }
+    
+    /**
+     * Gets a boolean value from a DocumentContext without boxing or throwing.
+     *
+     * @param context The DocumentContext
+     * @param path The JsonPath expression
+     * @param defaultValue The value to return when the path is missing or not a boolean
+     * @return The extracted boolean or defaultValue
+     */
+    public static boolean getBoolean(DocumentContext context, String path, boolean defaultValue) {
+        return toBoolean(lookup(context, path), defaultValue);
+    }
+    
+    /**
+     * Finds an int value in a DocumentContext without throwing.
+     *
+     * @param context The DocumentContext
+     * @param path The JsonPath expression
+     * @return The extracted int, or empty if the path is missing or not a number
+     */
+    public static OptionalInt findInt(DocumentContext context, String path) {
+        Object value = lookup(context, path);
+        return isNumber(value) ? OptionalInt.of(toInt(value, 0)) : OptionalInt.empty();
+    }
+    
+    /**
+     * Finds a long value in a DocumentContext without throwing.
+     *
+     * @param context The DocumentContext
+     * @param path The JsonPath expression
+     * @return The extracted long, or empty if the path is missing or not a number
+     */
+    public static OptionalLong findLong(DocumentContext context, String path) {
+        Object value = lookup(context, path);
+        return isNumber(value) ? OptionalLong.of(toLong(value, 0L)) : OptionalLong.empty();
+    }
+    
+    /**
+     * Finds a double value in a DocumentContext without throwing.
+     *
+     * @param context The DocumentContext
+     * @param path The JsonPath expression
+     * @return The extracted double, or empty if the path is missing or not a number
+     */
+    public static OptionalDouble findDouble(DocumentContext context, String path) {
+        Object value = lookup(context, path);
+        return isNumber(value) ? OptionalDouble.of(toDouble(value, 0d)) : OptionalDouble.empty();
+    }
+    
+    /**
+     * Looks a path up for the primitive accessors. Plain field/index paths over a JsonNode tree
+     * return the node found by direct navigation (or null); anything else is evaluated by JsonPath
+     * and returns the raw value (or null if evaluation fails).
+     */
+    static Object lookup(DocumentContext context, String path) {
+        // Read-only contexts copy on json(); navigation never hands the node out, so use the shared root
+        Object root = context instanceof ReadOnlyDocumentContext
+                ? ((ReadOnlyDocumentContext) context).root() : context.json();
+        JsonNodePath nodePath;
+        try {
+            nodePath = root instanceof JsonNode ? JsonPathCache.defaultCache().getNodePath(path) : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (nodePath != null) {
+            return nodePath.resolve((JsonNode) root);
+        }
+        try {
+            return context.read(compile(path));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
+    static boolean isNumber(Object value) {
+        return value instanceof JsonNode ? ((JsonNode) value).isNumber() : value instanceof Number;
+    }
+    
+    static int toInt(Object value, int defaultValue) {
+        if (value instanceof JsonNode) {
+            return JsonNodePath.intValue((JsonNode) value, defaultValue);
+        }
+        return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+    }
+    
+    static long toLong(Object value, long defaultValue) {
+        if (value instanceof JsonNode) {
+            return JsonNodePath.longValue((JsonNode) value, defaultValue);
+        }
+        return value instanceof Number ? ((Number) value).longValue() : defaultValue;
+    }
+    
+    static double toDouble(Object value, double defaultValue) {
+        if (value instanceof JsonNode) {
+            return JsonNodePath.doubleValue((JsonNode) value, defaultValue);
+        }
+        return value instanceof Number ? ((Number) value).doubleValue() : defaultValue;
+    }
+    
+    static boolean toBoolean(Object value, boolean defaultValue) {
+        if (value instanceof JsonNode) {
+            return JsonNodePath.booleanValue((JsonNode) value, defaultValue);
+        }
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+    
     /**
      * Gets a List from a DocumentContext using JsonPath.
      *
@@ -157,7 +396,7 @@ public final class JsonPathUtil {
      */
     public static boolean pathExists(DocumentContext context, String path) {
         try {
-            Object result = context.read(path);
+            Object result = context.read(compile(path));
             return result != null;
         } catch (Exception e) {
             return false;
@@ -184,12 +423,14 @@ public final class JsonPathUtil {
     }
     
     /**
-     * Cleans up thread-local resources. Should be called when done using the utility
-     * in contexts where thread pools are used to prevent memory leaks.
+     * Formerly released the per-thread ObjectMapper and Configuration. The utility now uses a
+     * single shared, immutable parsing core, so there is nothing left to clean up.
+     *
+     * @deprecated No longer needed; retained for source compatibility.
      */
+    @Deprecated
     public static void cleanupThreadLocals() {
-        MAPPER_THREAD_LOCAL.remove();
-        CONFIG_THREAD_LOCAL.remove();
+        // No per-thread state to release
     }
     
     /**
@@ -238,21 +479,34 @@ public final class JsonPathUtil {
             System.out.println("All authors: " + allAuthors);
             System.out.println("Bicycle price: " + bicyclePrice);
             
+            // Primitive accessors: no boxing, and a default instead of an exception for missing paths
+            int firstBookPrice = JsonPathUtil.getInt(context, "$.store.book[0].price", -1);
+            double discount = JsonPathUtil.getDouble(context, "$.store.discount", 0.0);
+            System.out.println("First book price (int): " + firstBookPrice);
+            System.out.println("Discount (default): " + discount);
+            System.out.println("Missing int: " + JsonPathUtil.findInt(context, "$.store.missing"));
+            
             // Check if paths exist
             boolean hasExpensiveFlag = JsonPathUtil.pathExists(context, "$.expensive");
             boolean hasDiscountFlag = JsonPathUtil.pathExists(context, "$.discount");
             System.out.println("Has expensive flag: " + hasExpensiveFlag);
             System.out.println("Has discount flag: " + hasDiscountFlag);
             
+            // Precompile a named set of paths once and evaluate them together
+            CompiledPaths paths = CompiledPaths.builder()
+                    .path("firstTitle", "$.store.book[0].title")
+                    .path("bicycleColor", "$.store.bicycle.color")
+                    .path("expensive", "$.expensive")
+                    .build();
+            System.out.println("Compiled path values: " + paths.readAll(context));
+            System.out.println("Path cache: " + JsonPathUtil.pathCache());
+            
             // Alternative approach - extract a value directly (less efficient for multiple extractions)
             String bicycleColor = JsonPathUtil.extractValue(jsonString, "$.store.bicycle.color", String.class);
             System.out.println("Bicycle color: " + bicycleColor);
             
         } catch (Exception e) {
             System.err.println("Error processing JSON: " + e.getMessage());
-        } finally {
-            // Clean up thread-local resources when done
-            JsonPathUtil.cleanupThreadLocals();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,323 @@
+package com.oniox.learn;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.JsonPathException;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Binds a set of JsonPath expressions to a Java record or POJO and fills instances of it
+ * from a document in one go.
+ * <p>
+ * Members are declared with {@link JsonPathField}. The paths are compiled and the
+ * constructor / fields are resolved once per type, and the resulting projection is cached,
+ * so each call only evaluates the compiled paths and converts the values:
+ *
+ * <pre>
+ * record BookSummary(&#64;JsonPathField("$.store.book[0].title") String title,
+ *                    &#64;JsonPathField("$.store.bicycle.price") double bicyclePrice) {}
+ *
+ * BookSummary summary = JsonProjection.of(BookSummary.class).project(context);
+ * </pre>
+ * <p>
+ * Scalars are converted directly (numbers to the declared numeric type, anything to String);
+ * objects, arrays and other types go through Jackson's {@code convertValue}. A missing value, or
+ * one that cannot be converted to the member's type (such as a string for an int member),
+ * leaves a reference member null and a primitive member at its default, whichever
+ * {@code project} method is used.
+ * Instances are immutable and thread-safe.
+ *
+ * @param <T> The projected type
+ */
+public final class JsonProjection<T> {
+
+    private static final ConcurrentMap<Class<?>, JsonProjection<?>> CACHE = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+    private final String[] names;
+    private final JsonPath[] paths;
+    private final Class<?>[] boxedTypes;
+    private final Object[] defaults;
+    private final JavaType[] javaTypes;
+    private final StreamingJsonPathExtractor streaming;
+
+    // Records are built through the canonical constructor, POJOs through the no-arg constructor + fields
+    private final Constructor<T> constructor;
+    private final int[] constructorSlots;
+    private final Object[] constructorDefaults;
+    private final Field[] fields;
+
+    private JsonProjection(Class<T> type) {
+        this.type = type;
+        List<String> memberNames = new ArrayList<>();
+        List<String> memberPaths = new ArrayList<>();
+        List<Type> memberTypes = new ArrayList<>();
+
+        try {
+            if (type.isRecord()) {
+                RecordComponent[] components = type.getRecordComponents();
+                Class<?>[] parameterTypes = new Class<?>[components.length];
+                constructorSlots = new int[components.length];
+                constructorDefaults = new Object[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    parameterTypes[i] = components[i].getType();
+                    constructorDefaults[i] = defaultValue(parameterTypes[i]);
+                    JsonPathField annotation = components[i].getAnnotation(JsonPathField.class);
+                    if (annotation == null) {
+                        constructorSlots[i] = -1;
+                        continue;
+                    }
+                    constructorSlots[i] = memberNames.size();
+                    memberNames.add(components[i].getName());
+                    memberPaths.add(annotation.value());
+                    memberTypes.add(components[i].getGenericType());
+                }
+                constructor = type.getDeclaredConstructor(parameterTypes);
+                fields = null;
+            } else {
+                List<Field> annotated = new ArrayList<>();
+                for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        JsonPathField annotation = field.getAnnotation(JsonPathField.class);
+                        if (annotation == null || Modifier.isStatic(field.getModifiers())) {
+                            continue;
+                        }
+                        if (Modifier.isFinal(field.getModifiers())) {
+                            throw new IllegalArgumentException("Field " + field + " is final; use a record instead");
+                        }
+                        field.setAccessible(true);
+                        annotated.add(field);
+                        memberNames.add(field.getName());
+                        memberPaths.add(annotation.value());
+                        memberTypes.add(field.getGenericType());
+                    }
+                }
+                constructor = type.getDeclaredConstructor();
+                constructorSlots = null;
+                constructorDefaults = null;
+                fields = annotated.toArray(new Field[0]);
+            }
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " has no usable constructor for projection", e);
+        }
+
+        if (memberNames.isEmpty()) {
+            throw new IllegalArgumentException(type.getName() + " has no @JsonPathField members");
+        }
+
+        int size = memberNames.size();
+        this.names = memberNames.toArray(new String[0]);
+        this.paths = new JsonPath[size];
+        this.boxedTypes = new Class<?>[size];
+        this.defaults = new Object[size];
+        this.javaTypes = new JavaType[size];
+        CompiledPaths.Builder builder = CompiledPaths.builder();
+        for (int i = 0; i < size; i++) {
+            builder.path(names[i], memberPaths.get(i));
+            javaTypes[i] = JsonCore.MAPPER.getTypeFactory().constructType(memberTypes.get(i));
+            Class<?> rawType = javaTypes[i].getRawClass();
+            defaults[i] = defaultValue(rawType);
+            boxedTypes[i] = rawType.isPrimitive() ? defaults[i].getClass() : rawType;
+        }
+        CompiledPaths compiled = builder.build();
+        for (int i = 0; i < size; i++) {
+            paths[i] = compiled.get(names[i]);
+        }
+        this.streaming = new StreamingJsonPathExtractor(compiled);
+    }
+
+    /**
+     * Returns the cached projection for the given type, building it on first use.
+     *
+     * @param <T> The projected type
+     * @param type A record or POJO class with {@link JsonPathField} members
+     * @return The projection for the type
+     * @throws IllegalArgumentException If the type has no annotated members or no usable constructor
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> JsonProjection<T> of(Class<T> type) {
+        return (JsonProjection<T>) CACHE.computeIfAbsent(type, JsonProjection::new);
+    }
+
+    /**
+     * @return The projected type
+     */
+    public Class<T> type() {
+        return type;
+    }
+
+    /**
+     * Fills a new instance from a DocumentContext using the precompiled paths.
+     *
+     * @param context The DocumentContext
+     * @return The projected instance
+     */
+    public T project(DocumentContext context) {
+        Object[] values = new Object[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            Object raw;
+            try {
+                raw = context.read(paths[i]);
+            } catch (JsonPathException e) {
+                // Missing, under a configuration without SUPPRESS_EXCEPTIONS
+                raw = null;
+            }
+            values[i] = value(raw, i);
+        }
+        return instantiate(values);
+    }
+
+    /**
+     * Fills a new instance from an already-parsed JsonNode, without re-serializing it.
+     *
+     * @param node The JsonNode
+     * @return The projected instance
+     */
+    public T project(JsonNode node) {
+        return project(JsonPathUtil.wrap(node));
+    }
+
+    /**
+     * Fills a new instance from UTF-8 encoded JSON bytes in a single streaming pass
+     * (see {@link StreamingJsonPathExtractor}); no tree is built unless a path needs one.
+     *
+     * @param json The JSON bytes
+     * @return The projected instance
+     * @throws com.jayway.jsonpath.InvalidJsonException If the JSON is invalid
+     */
+    public T project(byte[] json) {
+        return fromValues(streaming.extract(json));
+    }
+
+    /**
+     * Fills a new instance from a JSON string in a single streaming pass.
+     *
+     * @param json The JSON string
+     * @return The projected instance
+     * @throws com.jayway.jsonpath.InvalidJsonException If the JSON is invalid
+     */
+    public T project(String json) {
+        return fromValues(streaming.extract(json));
+    }
+
+    private T fromValues(Map<String, Object> extracted) {
+        Object[] values = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            values[i] = value(extracted.get(names[i]), i);
+        }
+        return instantiate(values);
+    }
+
+    /**
+     * @return The raw value converted to the member's type, or the member's default if it is
+     * missing or cannot be converted
+     */
+    private Object value(Object raw, int slot) {
+        try {
+            return convert(raw, slot);
+        } catch (IllegalArgumentException e) {
+            return defaults[slot];
+        }
+    }
+
+    private Object convert(Object raw, int slot) {
+        if (raw == null) {
+            return defaults[slot];
+        }
+        Class<?> boxed = boxedTypes[slot];
+        if (boxed.isInstance(raw) && !(raw instanceof List) && !(raw instanceof Map)) {
+            return raw;
+        }
+        if (raw instanceof Number) {
+            Number number = (Number) raw;
+            if (boxed == Integer.class) {
+                return number.intValue();
+            } else if (boxed == Long.class) {
+                return number.longValue();
+            } else if (boxed == Double.class) {
+                return number.doubleValue();
+            } else if (boxed == Float.class) {
+                return number.floatValue();
+            } else if (boxed == Short.class) {
+                return number.shortValue();
+            } else if (boxed == Byte.class) {
+                return number.byteValue();
+            } else if (boxed == BigDecimal.class) {
+                return new BigDecimal(number.toString());
+            } else if (boxed == BigInteger.class) {
+                return new BigInteger(number.toString());
+            }
+        }
+        if (boxed == String.class && (raw instanceof Number || raw instanceof Boolean)) {
+            return raw.toString();
+        }
+        return JsonCore.MAPPER.convertValue(raw, javaTypes[slot]);
+    }
+
+    private T instantiate(Object[] values) {
+        try {
+            if (constructorSlots != null) {
+                Object[] arguments = new Object[constructorSlots.length];
+                for (int i = 0; i < arguments.length; i++) {
+                    int slot = constructorSlots[i];
+                    arguments[i] = slot >= 0 ? values[slot] : constructorDefaults[i];
+                }
+                return constructor.newInstance(arguments);
+            }
+            T instance = constructor.newInstance();
+            for (int i = 0; i < fields.length; i++) {
+                fields[i].set(instance, values[i]);
+            }
+            return instance;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate " + type.getName(), e);
+        }
+    }
+
+    /**
+     * @return The zero value for primitive types, null for reference types
+     */
+    private static Object defaultValue(Class<?> type) {
+        return type.isPrimitive() && type != void.class ? Array.get(Array.newInstance(type, 1), 0) : null;
+    }
+
+    /**
+     * Example projection used by {@link #main(String[])}.
+     */
+    record StoreSummary(@JsonPathField("$.store.book[0].title") String firstTitle,
+                        @JsonPathField("$.store.book.length()") int bookCount,
+                        @JsonPathField("$.expensive") boolean expensive,
+                        @JsonPathField("$.store.book[*].author") List<String> authors,
+                        @JsonPathField("$.store.bicycle.price") double bicyclePrice) {
+    }
+
+    /**
+     * Example usage of JsonProjection.
+     */
+    public static void main(String[] args) {
+        String jsonString = "{\"store\":{\"book\":[{\"category\":\"reference\",\"author\":\"Nigel Rees\","
+                + "\"title\":\"Sayings of the Century\",\"price\":8.95},{\"category\":\"fiction\","
+                + "\"author\":\"Evelyn Waugh\",\"title\":\"Sword of Honour\",\"price\":12.99}],"
+                + "\"bicycle\":{\"color\":\"red\",\"price\":19.95}},\"expensive\":true}";
+
+        JsonProjection<StoreSummary> projection = JsonProjection.of(StoreSummary.class);
+        System.out.println("From DocumentContext: " + projection.project(JsonPathUtil.parseJson(jsonString)));
+        System.out.println("From String: " + projection.project(jsonString));
+    }
+}
@@ -0,0 +1,607 @@
+package com.oniox.learn;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A streaming structural JSON validator that answers "is this valid JSON?" without building
+ * a tree or throwing exceptions.
+ * <p>
+ * The validator scans UTF-8 input byte by byte (RFC 8259 grammar, including UTF-8 well-formedness
+ * inside strings) and enforces configurable limits on nesting depth, document size, string length
+ * and array length. It allocates nothing for valid input: nesting is tracked on the call stack,
+ * which is why {@link Builder#maxDepth(int)} is capped at {@value #MAX_SUPPORTED_DEPTH}. Invalid
+ * input yields a {@link Result} describing the first problem and its byte offset.
+ *
+ * <pre>
+ * JsonValidator validator = JsonValidator.builder()
+ *         .maxDepth(32)
+ *         .maxDocumentBytes(1024 * 1024)
+ *         .build();
+ * JsonValidator.Result result = validator.validate(body);
+ * if (!result.isValid()) {
+ *     reject(result.errorCode(), result.offset());
+ * }
+ * </pre>
+ * Instances are immutable and thread-safe.
+ */
+public final class JsonValidator {
+
+    /**
+     * The highest supported value for {@link Builder#maxDepth(int)}.
+     */
+    public static final int MAX_SUPPORTED_DEPTH = 2048;
+
+    /**
+     * The kind of problem found in an invalid document.
+     */
+    public enum ErrorCode {
+        EMPTY_INPUT,
+        UNEXPECTED_CHARACTER,
+        UNEXPECTED_END,
+        TRAILING_CONTENT,
+        INVALID_LITERAL,
+        INVALID_NUMBER,
+        INVALID_ESCAPE,
+        INVALID_UTF8,
+        CONTROL_CHARACTER,
+        DEPTH_LIMIT,
+        DOCUMENT_SIZE_LIMIT,
+        STRING_LENGTH_LIMIT,
+        ARRAY_LENGTH_LIMIT
+    }
+
+    /**
+     * The outcome of a validation: valid, or the first error and its byte offset from the
+     * start of the input.
+     */
+    public static final class Result {
+
+        static final Result VALID = new Result(null, -1);
+
+        private final ErrorCode errorCode;
+        private final int offset;
+
+        private Result(ErrorCode errorCode, int offset) {
+            this.errorCode = errorCode;
+            this.offset = offset;
+        }
+
+        public boolean isValid() {
+            return errorCode == null;
+        }
+
+        /**
+         * @return The error, or null if the input is valid
+         */
+        public ErrorCode errorCode() {
+            return errorCode;
+        }
+
+        /**
+         * @return The byte offset of the error relative to the start of the input, or -1 if valid
+         */
+        public int offset() {
+            return offset;
+        }
+
+        @Override
+        public String toString() {
+            return isValid() ? "valid" : errorCode + " at offset " + offset;
+        }
+    }
+
+    // Scanner methods return the next position, or ERROR | code << 32 | position on failure
+    private static final long ERROR = Long.MIN_VALUE;
+    private static final ErrorCode[] CODES = ErrorCode.values();
+
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private static final JsonValidator DEFAULT = builder().build();
+
+    private final int maxDepth;
+    private final int maxDocumentBytes;
+    private final int maxStringLength;
+    private final int maxArrayLength;
+
+    private JsonValidator(Builder builder) {
+        this.maxDepth = builder.maxDepth;
+        this.maxDocumentBytes = builder.maxDocumentBytes;
+        this.maxStringLength = builder.maxStringLength;
+        this.maxArrayLength = builder.maxArrayLength;
+    }
+
+    /**
+     * @return A new builder for a JsonValidator
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The shared validator with the default limits
+     */
+    public static JsonValidator defaultValidator() {
+        return DEFAULT;
+    }
+
+    /**
+     * Validates UTF-8 encoded JSON.
+     *
+     * @param json The JSON bytes; null is reported as {@link ErrorCode#EMPTY_INPUT}
+     * @return The validation result
+     */
+    public Result validate(byte[] json) {
+        return json == null ? error(ErrorCode.EMPTY_INPUT, 0) : validate(json, 0, json.length);
+    }
+
+    /**
+     * Validates a range of a byte array holding UTF-8 encoded JSON.
+     *
+     * @param json   The byte array
+     * @param offset The start of the document
+     * @param length The length of the document
+     * @return The validation result; offsets are relative to {@code offset}
+     * @throws IndexOutOfBoundsException If the range is outside the array
+     */
+    public Result validate(byte[] json, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > json.length - length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + "+" + length
+                    + ") out of bounds for length " + json.length);
+        }
+        return run(json, null, offset, offset + length);
+    }
+
+    /**
+     * Validates the remaining bytes of a buffer holding UTF-8 encoded JSON. Works with heap
+     * and direct buffers; the buffer's position is not changed.
+     *
+     * @param json The buffer; null is reported as {@link ErrorCode#EMPTY_INPUT}
+     * @return The validation result; offsets are relative to the buffer's position
+     */
+    public Result validate(ByteBuffer json) {
+        if (json == null) {
+            return error(ErrorCode.EMPTY_INPUT, 0);
+        }
+        if (json.hasArray()) {
+            int start = json.arrayOffset() + json.position();
+            return run(json.array(), null, start, start + json.remaining());
+        }
+        return run(null, json, json.position(), json.limit());
+    }
+
+    /**
+     * Validates a JSON string. The string is encoded to UTF-8 first, so limits are applied to
+     * the encoded size; prefer the byte overloads when the input has not been decoded yet.
+     *
+     * @param json The JSON string; null is reported as {@link ErrorCode#EMPTY_INPUT}
+     * @return The validation result
+     */
+    public Result validate(String json) {
+        return json == null ? error(ErrorCode.EMPTY_INPUT, 0) : validate(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Result run(byte[] array, ByteBuffer buffer, int start, int end) {
+        if (end - start > maxDocumentBytes) {
+            return error(ErrorCode.DOCUMENT_SIZE_LIMIT, maxDocumentBytes);
+        }
+        int pos = start;
+        if (end - pos >= 3 && at(array, buffer, pos) == 0xEF && at(array, buffer, pos + 1) == 0xBB
+                && at(array, buffer, pos + 2) == 0xBF) {
+            pos += 3; // UTF-8 byte order mark
+        }
+        pos = skipWhitespace(array, buffer, pos, end);
+        if (pos >= end) {
+            return error(ErrorCode.EMPTY_INPUT, pos - start);
+        }
+        long next = value(array, buffer, pos, end, 0);
+        if (next >= 0) {
+            pos = skipWhitespace(array, buffer, (int) next, end);
+            if (pos == end) {
+                return Result.VALID;
+            }
+            next = fail(ErrorCode.TRAILING_CONTENT, pos);
+        }
+        return error(CODES[(int) (next >>> 32) & 0x7FFFFFFF], (int) next - start);
+    }
+
+    private static Result error(ErrorCode code, int offset) {
+        return new Result(code, offset);
+    }
+
+    private static long fail(ErrorCode code, int pos) {
+        return ERROR | (long) code.ordinal() << 32 | pos;
+    }
+
+    private static int at(byte[] array, ByteBuffer buffer, int pos) {
+        return (array != null ? array[pos] : buffer.get(pos)) & 0xFF;
+    }
+
+    private static int skipWhitespace(byte[] array, ByteBuffer buffer, int pos, int end) {
+        while (pos < end) {
+            int c = at(array, buffer, pos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Scans one value starting at a non-whitespace position, inside {@code depth} containers.
+     */
+    private long value(byte[] array, ByteBuffer buffer, int pos, int end, int depth) {
+        int c = at(array, buffer, pos);
+        switch (c) {
+            case '{':
+                return object(array, buffer, pos, end, depth + 1);
+            case '[':
+                return array(array, buffer, pos, end, depth + 1);
+            case '"':
+                return string(array, buffer, pos, end);
+            case 't':
+                return literal(array, buffer, pos, end, TRUE);
+            case 'f':
+                return literal(array, buffer, pos, end, FALSE);
+            case 'n':
+                return literal(array, buffer, pos, end, NULL);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return number(array, buffer, pos, end);
+                }
+                return fail(ErrorCode.UNEXPECTED_CHARACTER, pos);
+        }
+    }
+
+    private long object(byte[] array, ByteBuffer buffer, int pos, int end, int depth) {
+        if (depth > maxDepth) {
+            return fail(ErrorCode.DEPTH_LIMIT, pos);
+        }
+        pos = skipWhitespace(array, buffer, pos + 1, end);
+        if (pos < end && at(array, buffer, pos) == '}') {
+            return pos + 1;
+        }
+        while (true) {
+            if (pos >= end) {
+                return fail(ErrorCode.UNEXPECTED_END, end);
+            }
+            if (at(array, buffer, pos) != '"') {
+                return fail(ErrorCode.UNEXPECTED_CHARACTER, pos);
+            }
+            long next = string(array, buffer, pos, end);
+            if (next < 0) {
+                return next;
+            }
+            pos = skipWhitespace(array, buffer, (int) next, end);
+            if (pos >= end) {
+                return fail(ErrorCode.UNEXPECTED_END, end);
+            }
+            if (at(array, buffer, pos) != ':') {
+                return fail(ErrorCode.UNEXPECTED_CHARACTER, pos);
+            }
+            pos = skipWhitespace(array, buffer, pos + 1, end);
+            if (pos >= end) {
+                return fail(ErrorCode.UNEXPECTED_END, end);
+            }
+            next = value(array, buffer, pos, end, depth);
+            if (next < 0) {
+                return next;
+            }
+            pos = skipWhitespace(array, buffer, (int) next, end);
+            if (pos >= end) {
+                return fail(ErrorCode.UNEXPECTED_END, end);
+            }
+            int c = at(array, buffer, pos);
+            if (c == '}') {
+                return pos + 1;
+            }
+            if (c != ',') {
+                return fail(ErrorCode.UNEXPECTED_CHARACTER, pos);
+            }
+            pos = skipWhitespace(array, buffer, pos + 1, end);
+        }
+    }
+
+    private long array(byte[] array, ByteBuffer buffer, int pos, int end, int depth) {
+        if (depth > maxDepth) {
+            return fail(ErrorCode.DEPTH_LIMIT, pos);
+        }
+        pos = skipWhitespace(array, buffer, pos + 1, end);
+        if (pos < end && at(array, buffer, pos) == ']') {
+            return pos + 1;
+        }
+        int length = 0;
+        while (true) {
+            if (pos >= end) {
+                return fail(ErrorCode.UNEXPECTED_END, end);
+            }
+            if (++length > maxArrayLength) {
+                return fail(ErrorCode.ARRAY_LENGTH_LIMIT, pos);
+            }
+            long next = value(array, buffer, pos, end, depth);
+            if (next < 0) {
+                return next;
+            }
+            pos = skipWhitespace(array, buffer, (int) next, end);
+            if (pos >= end) {
+                return fail(ErrorCode.UNEXPECTED_END, end);
+            }
+            int c = at(array, buffer, pos);
+            if (c == ']') {
+                return pos + 1;
+            }
+            if (c != ',') {
+                return fail(ErrorCode.UNEXPECTED_CHARACTER, pos);
+            }
+            pos = skipWhitespace(array, buffer, pos + 1, end);
+        }
+    }
+
+    /**
+     * Scans a string starting at its opening quote. The length limit counts encoded bytes
+     * between the quotes, with escape sequences counted as written.
+     */
+    private long string(byte[] array, ByteBuffer buffer, int pos, int end) {
+        int start = pos++;
+        while (true) {
+            if (pos >= end) {
+                return fail(ErrorCode.UNEXPECTED_END, end);
+            }
+            if (pos - start - 1 > maxStringLength) {
+                return fail(ErrorCode.STRING_LENGTH_LIMIT, start);
+            }
+            int c = at(array, buffer, pos);
+            if (c == '"') {
+                return pos + 1;
+            }
+            if (c == '\\') {
+                if (pos + 1 >= end) {
+                    return fail(ErrorCode.UNEXPECTED_END, end);
+                }
+                int escaped = at(array, buffer, pos + 1);
+                if (escaped == 'u') {
+                    if (pos + 6 > end) {
+                        return fail(ErrorCode.UNEXPECTED_END, end);
+                    }
+                    for (int i = pos + 2; i < pos + 6; i++) {
+                        if (Character.digit(at(array, buffer, i), 16) < 0) {
+                            return fail(ErrorCode.INVALID_ESCAPE, pos);
+                        }
+                    }
+                    pos += 6;
+                } else if (escaped == '"' || escaped == '\\' || escaped == '/' || escaped == 'b'
+                        || escaped == 'f' || escaped == 'n' || escaped == 'r' || escaped == 't') {
+                    pos += 2;
+                } else {
+                    return fail(ErrorCode.INVALID_ESCAPE, pos);
+                }
+            } else if (c < 0x20) {
+                return fail(ErrorCode.CONTROL_CHARACTER, pos);
+            } else if (c < 0x80) {
+                pos++;
+            } else {
+                int next = utf8(array, buffer, pos, end, c);
+                if (next < 0) {
+                    return fail(ErrorCode.INVALID_UTF8, pos);
+                }
+                pos = next;
+            }
+        }
+    }
+
+    /**
+     * Checks one multi-byte UTF-8 sequence (no overlong forms, surrogates or code points above
+     * U+10FFFF) and returns the position after it, or -1.
+     */
+    private static int utf8(byte[] array, ByteBuffer buffer, int pos, int end, int lead) {
+        int continuation;
+        int low = 0x80;
+        int high = 0xBF;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            continuation = 1;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            continuation = 2;
+            if (lead == 0xE0) {
+                low = 0xA0;
+            } else if (lead == 0xED) {
+                high = 0x9F;
+            }
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            continuation = 3;
+            if (lead == 0xF0) {
+                low = 0x90;
+            } else if (lead == 0xF4) {
+                high = 0x8F;
+            }
+        } else {
+            return -1;
+        }
+        if (pos + continuation >= end) {
+            return -1;
+        }
+        for (int i = 1; i <= continuation; i++) {
+            int c = at(array, buffer, pos + i);
+            if (c < low || c > high) {
+                return -1;
+            }
+            low = 0x80;
+            high = 0xBF;
+        }
+        return pos + continuation + 1;
+    }
+
+    private static long number(byte[] array, ByteBuffer buffer, int pos, int end) {
+        int start = pos;
+        if (at(array, buffer, pos) == '-') {
+            pos++;
+        }
+        if (pos >= end) {
+            return fail(ErrorCode.INVALID_NUMBER, start);
+        }
+        int c = at(array, buffer, pos);
+        if (c == '0') {
+            pos++;
+            if (pos < end && isDigit(at(array, buffer, pos))) {
+                return fail(ErrorCode.INVALID_NUMBER, start); // leading zero
+            }
+        } else if (c >= '1' && c <= '9') {
+            pos = skipDigits(array, buffer, pos + 1, end);
+        } else {
+            return fail(ErrorCode.INVALID_NUMBER, start);
+        }
+        if (pos < end && at(array, buffer, pos) == '.') {
+            int digits = ++pos;
+            pos = skipDigits(array, buffer, pos, end);
+            if (pos == digits) {
+                return fail(ErrorCode.INVALID_NUMBER, start);
+            }
+        }
+        if (pos < end && (at(array, buffer, pos) | 0x20) == 'e') {
+            pos++;
+            if (pos < end && (at(array, buffer, pos) == '+' || at(array, buffer, pos) == '-')) {
+                pos++;
+            }
+            int digits = pos;
+            pos = skipDigits(array, buffer, pos, end);
+            if (pos == digits) {
+                return fail(ErrorCode.INVALID_NUMBER, start);
+            }
+        }
+        return pos;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipDigits(byte[] array, ByteBuffer buffer, int pos, int end) {
+        while (pos < end && isDigit(at(array, buffer, pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static long literal(byte[] array, ByteBuffer buffer, int pos, int end, byte[] expected) {
+        if (end - pos < expected.length) {
+            return fail(ErrorCode.INVALID_LITERAL, pos);
+        }
+        for (int i = 1; i < expected.length; i++) {
+            if (at(array, buffer, pos + i) != expected[i]) {
+                return fail(ErrorCode.INVALID_LITERAL, pos);
+            }
+        }
+        return pos + expected.length;
+    }
+
+    /**
+     * Builder for {@link JsonValidator}. All limits default to unlimited except the nesting
+     * depth, which defaults to 1000.
+     */
+    public static final class Builder {
+
+        private int maxDepth = 1000;
+        private int maxDocumentBytes = Integer.MAX_VALUE;
+        private int maxStringLength = Integer.MAX_VALUE;
+        private int maxArrayLength = Integer.MAX_VALUE;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxDepth The maximum nesting depth of objects and arrays; a top-level container has depth 1
+         * @return This builder
+         * @throws IllegalArgumentException If maxDepth is not between 1 and {@value JsonValidator#MAX_SUPPORTED_DEPTH}
+         */
+        public Builder maxDepth(int maxDepth) {
+            if (maxDepth < 1 || maxDepth > MAX_SUPPORTED_DEPTH) {
+                throw new IllegalArgumentException("Maximum depth must be between 1 and " + MAX_SUPPORTED_DEPTH);
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * @param bytes The maximum document size in bytes
+         * @return This builder
+         * @throws IllegalArgumentException If bytes is not positive
+         */
+        public Builder maxDocumentBytes(int bytes) {
+            this.maxDocumentBytes = positive(bytes, "Maximum document size");
+            return this;
+        }
+
+        /**
+         * @param bytes The maximum encoded length of a string or field name, in bytes
+         * @return This builder
+         * @throws IllegalArgumentException If bytes is negative
+         */
+        public Builder maxStringLength(int bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("Maximum string length cannot be negative");
+            }
+            this.maxStringLength = bytes;
+            return this;
+        }
+
+        /**
+         * @param elements The maximum number of elements in a single array
+         * @return This builder
+         * @throws IllegalArgumentException If elements is not positive
+         */
+        public Builder maxArrayLength(int elements) {
+            this.maxArrayLength = positive(elements, "Maximum array length");
+            return this;
+        }
+
+        private static int positive(int value, String what) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(what + " must be positive");
+            }
+            return value;
+        }
+
+        /**
+         * @return The configured validator
+         */
+        public JsonValidator build() {
+            return new JsonValidator(this);
+        }
+    }
+
+    /**
+     * Example usage of the JsonValidator.
+     */
+    public static void main(String[] args) {
+        JsonValidator validator = JsonValidator.builder()
+                .maxDepth(4)
+                .maxStringLength(16)
+                .maxArrayLength(3)
+                .maxDocumentBytes(256)
+                .build();
+
+        String[] inputs = {
+                "{\"name\":\"John\",\"age\":30,\"tags\":[\"a\",\"b\"]}",
+                "{name:John}",
+                "{\"age\":01}",
+                "{\"a\":[1,2,3,4]}",
+                "[[[[[1]]]]]",
+                "{\"name\":\"a very long name indeed\"}",
+                "{\"ok\":true} trailing",
+                "{\"escape\":\"\\x\"}",
+                "{\"open\":[1,2",
+                "   "
+        };
+        for (String input : inputs) {
+            System.out.println(validator.validate(input) + "  <-  " + input);
+        }
+
+        byte[] invalidUtf8 = {'"', (byte) 0xC3, '"'};
+        System.out.println("Invalid UTF-8: " + validator.validate(invalidUtf8));
+        ByteBuffer direct = ByteBuffer.allocateDirect(32);
+        direct.put("  [true, false, null]".getBytes(StandardCharsets.UTF_8)).flip();
+        System.out.println("Direct buffer: " + validator.validate(direct));
+    }
+}
@@ -0,0 +1,266 @@
+package com.oniox.learn;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Utility class for generating unique keys in hexadecimal format.
+ * <p>
+ * Random bytes come from a fixed set of striped SecureRandom instances (DRBG where available).
+ * Each stripe pulls entropy in 4 KB blocks and hands out slices of the block, so a key costs
+ * a buffer read instead of a {@code nextBytes} call and many threads rarely contend on the same
+ * generator. Every byte is used for one key only, so keys are exactly as unpredictable as bytes
+ * read from SecureRandom directly.
+ * <p>
+ * Random 32-bit keys are expected to collide after about 65k keys; where keys must never
+ * collide, use {@link UniqueKeyGenerator}.
+ */
+public class KeyGenerator {
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final EntropyStripe[] STRIPES = createStripes();
+    private static final int STRIPE_MASK = STRIPES.length - 1;
+
+    /**
+     * A SecureRandom with a block of bytes drawn from it but not yet handed out.
+     * All access is under {@link #lock}.
+     */
+    private static final class EntropyStripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final SecureRandom random = newSecureRandom();
+        final byte[] block = new byte[BLOCK_SIZE];
+        int position = BLOCK_SIZE;
+
+        int nextInt() {
+            if (position > BLOCK_SIZE - Integer.BYTES) {
+                refill();
+            }
+            int value = (int) INT_VIEW.get(block, position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        long nextLong() {
+            if (position > BLOCK_SIZE - Long.BYTES) {
+                refill();
+            }
+            long value = (long) LONG_VIEW.get(block, position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        void nextBytes(byte[] bytes) {
+            if (bytes.length > BLOCK_SIZE) {
+                random.nextBytes(bytes);
+                return;
+            }
+            int copied = 0;
+            while (copied < bytes.length) {
+                if (position == BLOCK_SIZE) {
+                    refill();
+                }
+                int n = Math.min(bytes.length - copied, BLOCK_SIZE - position);
+                System.arraycopy(block, position, bytes, copied, n);
+                position += n;
+                copied += n;
+            }
+        }
+
+        private void refill() {
+            random.nextBytes(block);
+            position = 0;
+        }
+    }
+
+    private static EntropyStripe[] createStripes() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int count = Integer.highestOneBit(Math.max(4, 2 * processors - 1)) << 1;
+        EntropyStripe[] stripes = new EntropyStripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new EntropyStripe();
+        }
+        return stripes;
+    }
+
+    private static SecureRandom newSecureRandom() {
+        // DRBG instances keep independent state; NativePRNG instances share one global lock
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    /**
+     * Locks a stripe, preferring the calling thread's home stripe and moving on to the next
+     * free one instead of waiting.
+     */
+    private static EntropyStripe lockStripe() {
+        long id = Thread.currentThread().getId();
+        int home = (int) (id ^ (id >>> 32)) * 0x9E3779B9 >>> 16;
+        for (int i = 0; i <= STRIPE_MASK; i++) {
+            EntropyStripe stripe = STRIPES[(home + i) & STRIPE_MASK];
+            if (stripe.lock.tryLock()) {
+                return stripe;
+            }
+        }
+        EntropyStripe stripe = STRIPES[home & STRIPE_MASK];
+        stripe.lock.lock();
+        return stripe;
+    }
+
+    /**
+     * Generates a unique key in hexadecimal format (8 characters long, like "60fe4ec6").
+     * @return The generated key as a String
+     */
+    public static String generateKey() {
+        char[] key = new char[8];
+        writeHex(nextInt(), key, 0);
+        return new String(key);
+    }
+
+    /**
+     * Generates a unique key in hexadecimal format with custom length.
+     * @param byteLength The number of bytes to use for the key (each byte = 2 hex chars)
+     * @return The generated key as a String
+     * @throws IllegalArgumentException if byteLength is not positive
+     */
+    public static String generateKey(int byteLength) {
+        if (byteLength <= 0) {
+            throw new IllegalArgumentException("Byte length must be positive");
+        }
+
+        byte[] randomBytes = new byte[byteLength];
+        EntropyStripe stripe = lockStripe();
+        try {
+            stripe.nextBytes(randomBytes);
+        } finally {
+            stripe.lock.unlock();
+        }
+        char[] key = new char[byteLength * 2];
+        for (int i = 0; i < byteLength; i++) {
+            key[2 * i] = HEX[(randomBytes[i] >> 4) & 0xF];
+            key[2 * i + 1] = HEX[randomBytes[i] & 0xF];
+        }
+        return new String(key);
+    }
+
+    /**
+     * Writes an 8-character key into a caller-supplied array, without allocating.
+     * @param destination The array to write to
+     * @param offset The index of the first character
+     * @throws IndexOutOfBoundsException if fewer than 8 characters fit after offset
+     */
+    public static void generateKey(char[] destination, int offset) {
+        if (offset < 0 || offset > destination.length - 8) {
+            throw new IndexOutOfBoundsException("No room for 8 characters at offset " + offset);
+        }
+        writeHex(nextInt(), destination, offset);
+    }
+
+    /**
+     * Appends an 8-character key to a StringBuilder, without allocating beyond the builder's growth.
+     * @param destination The builder to append to
+     * @return The builder
+     */
+    public static StringBuilder appendKey(StringBuilder destination) {
+        int value = nextInt();
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            destination.append(HEX[(value >>> shift) & 0xF]);
+        }
+        return destination;
+    }
+
+    /**
+     * Generates a key as a primitive; its hex form is what {@link #generateKey()} returns.
+     * @return 32 random bits
+     */
+    public static int nextInt() {
+        EntropyStripe stripe = lockStripe();
+        try {
+            return stripe.nextInt();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Generates a 64-bit key as a primitive.
+     * @return 64 random bits
+     */
+    public static long nextLong() {
+        EntropyStripe stripe = lockStripe();
+        try {
+            return stripe.nextLong();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Generates many 8-character keys at once, taking each stripe's lock once per block
+     * rather than once per key.
+     * @param count The number of keys
+     * @return The generated keys
+     * @throws IllegalArgumentException if count is negative
+     */
+    public static String[] generateKeys(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        String[] keys = new String[count];
+        int[] values = new int[Math.min(count, BLOCK_SIZE / Integer.BYTES)];
+        char[] key = new char[8];
+        for (int done = 0; done < count; ) {
+            int n = Math.min(values.length, count - done);
+            EntropyStripe stripe = lockStripe();
+            try {
+                for (int i = 0; i < n; i++) {
+                    values[i] = stripe.nextInt();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+            for (int i = 0; i < n; i++) {
+                writeHex(values[i], key, 0);
+                keys[done + i] = new String(key);
+            }
+            done += n;
+        }
+        return keys;
+    }
+
+    /**
+     * Writes the 8 lowercase hex digits of a value.
+     */
+    static void writeHex(int value, char[] destination, int offset) {
+        for (int i = 7; i >= 0; i--) {
+            destination[offset + i] = HEX[value & 0xF];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * Example usage of the KeyGenerator.
+     */
+    public static void main(String[] args) {
+        System.out.println("Key: " + generateKey());
+        System.out.println("16-byte key: " + generateKey(16));
+        char[] buffer = new char[10];
+        buffer[0] = '[';
+        buffer[9] = ']';
+        generateKey(buffer, 1);
+        System.out.println("Into char[]: " + new String(buffer));
+        System.out.println("Appended: " + appendKey(new StringBuilder("key-")));
+        System.out.println("Primitive: " + Long.toHexString(nextLong()));
+        System.out.println("Bulk: " + String.join(",", generateKeys(5)));
+    }
+}
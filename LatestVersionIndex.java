@@ -0,0 +1,410 @@
+package com.oniox.learn;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * An in-memory index of the latest version of every {@code <id>_<domain>_<version>} unique id,
+ * replacing the {@code Substr} / {@code rankedcte} round trips to the database.
+ * <p>
+ * Keys are (id, domain) pairs. The table is split into stripes, each an open-addressing hash
+ * table of parallel arrays guarded by its own StampedLock, so ingest threads only contend when
+ * they hit the same stripe. Lookups hash and compare the caller's characters in place, so
+ * {@link #latestVersion} and offers of stale or newer versions of known keys do not allocate
+ * (apart from the prior id, if one is given); reads use optimistic stamps and normally take no
+ * lock at all. Key strings are only created when a new key is inserted.
+ * <p>
+ * Each entry may carry the {@code priorId} of its latest version, from which
+ * {@link #snapshot()} derives the same priority and {@code RANK() OVER (ORDER BY priority, id)}
+ * as the {@code rankedcte} query: 1 when there is no prior id, 2 when the prior id is the id
+ * itself and 3 otherwise.
+ */
+public final class LatestVersionIndex {
+
+    /** Returned by {@link #latestVersion} for unknown keys. */
+    public static final long NO_VERSION = -1L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * One row of a {@link #snapshot()}.
+     *
+     * @param id       The id part of the key
+     * @param domain   The domain part of the key
+     * @param version  The latest version seen
+     * @param priorId  The prior id offered with that version, or null
+     * @param priority 1, 2 or 3 as in the rankedcte query
+     * @param rank     {@code RANK() OVER (ORDER BY priority, id)}: equal for ties, with gaps after them
+     */
+    public record Entry(String id, String domain, long version, String priorId, int priority, long rank) {
+    }
+
+    /**
+     * A hash table generation; replaced as a whole when the stripe grows.
+     */
+    private static final class Table {
+        final String[] ids;
+        final String[] domains;
+        final String[] priorIds;
+        final long[] versions;
+        final int mask;
+
+        Table(int capacity) {
+            ids = new String[capacity];
+            domains = new String[capacity];
+            priorIds = new String[capacity];
+            versions = new long[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private static final class Stripe {
+        final StampedLock lock = new StampedLock();
+        volatile Table table = new Table(INITIAL_CAPACITY);
+        int size;
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    /**
+     * Creates an index with four stripes per available processor.
+     */
+    public LatestVersionIndex() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stripes The number of independently locked stripes; rounded up to a power of two
+     * @throws IllegalArgumentException If stripes is not positive
+     */
+    public LatestVersionIndex(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        int count = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeShift = 32 - Integer.numberOfTrailingZeros(count);
+    }
+
+    /**
+     * Records a unique id without a prior id.
+     *
+     * @param uniqueId An {@code <id>_<domain>_<version>} id with a numeric version
+     * @return true if this raised the latest version of its key (or added the key)
+     */
+    public boolean offer(CharSequence uniqueId) {
+        return offer(uniqueId, null);
+    }
+
+    /**
+     * Records a unique id and the prior id that belongs to it.
+     *
+     * @param uniqueId An {@code <id>_<domain>_<version>} id with a numeric version
+     * @param priorId  The prior id, or null
+     * @return true if this raised the latest version of its key (or added the key); false if a
+     * newer or equal version is already known or the id is malformed
+     */
+    public boolean offer(CharSequence uniqueId, CharSequence priorId) {
+        long separators = CompositeIdCodec.separators(uniqueId);
+        if (separators == CompositeIdCodec.NO_MATCH) {
+            return false;
+        }
+        int idEnd = CompositeIdCodec.first(separators);
+        int domainEnd = CompositeIdCodec.second(separators);
+        long version = CompositeIdCodec.parseLong(uniqueId, domainEnd + 1, uniqueId.length());
+        if (version == CompositeIdCodec.NO_MATCH) {
+            return false;
+        }
+        return offer(uniqueId, 0, idEnd, uniqueId, idEnd + 1, domainEnd, version, priorId);
+    }
+
+    /**
+     * Records a version for an (id, domain) key.
+     *
+     * @param id      The id
+     * @param domain  The domain
+     * @param version The version; must not be negative
+     * @param priorId The prior id, or null
+     * @return true if this raised the latest version of the key (or added the key)
+     * @throws IllegalArgumentException If version is negative
+     */
+    public boolean offer(CharSequence id, CharSequence domain, long version, CharSequence priorId) {
+        if (version < 0) {
+            throw new IllegalArgumentException("Version cannot be negative");
+        }
+        return offer(id, 0, id.length(), domain, 0, domain.length(), version, priorId);
+    }
+
+    private boolean offer(CharSequence id, int idStart, int idEnd, CharSequence domain, int domainStart,
+                          int domainEnd, long version, CharSequence priorId) {
+        int hash = hash(id, idStart, idEnd, domain, domainStart, domainEnd);
+        Stripe stripe = stripe(hash);
+
+        // Most offers for known keys are stale; settle those without taking the write lock
+        if (readVersion(stripe, hash, id, idStart, idEnd, domain, domainStart, domainEnd) >= version) {
+            return false;
+        }
+        long stamp = stripe.lock.writeLock();
+        try {
+            Table table = stripe.table;
+            int slot = find(table, hash, id, idStart, idEnd, domain, domainStart, domainEnd);
+            if (table.ids[slot] != null) {
+                if (table.versions[slot] >= version) {
+                    return false;
+                }
+                table.versions[slot] = version;
+                table.priorIds[slot] = priorId == null ? null : priorId.toString();
+                return true;
+            }
+            if ((stripe.size + 1) * 2 > table.ids.length) {
+                table = grow(stripe);
+                slot = find(table, hash, id, idStart, idEnd, domain, domainStart, domainEnd);
+            }
+            table.versions[slot] = version;
+            table.priorIds[slot] = priorId == null ? null : priorId.toString();
+            table.domains[slot] = domain.subSequence(domainStart, domainEnd).toString();
+            table.ids[slot] = id.subSequence(idStart, idEnd).toString();
+            stripe.size++;
+            return true;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param id     The id
+     * @param domain The domain
+     * @return The highest version offered for the key, or {@link #NO_VERSION}
+     */
+    public long latestVersion(CharSequence id, CharSequence domain) {
+        int hash = hash(id, 0, id.length(), domain, 0, domain.length());
+        return readVersion(stripe(hash), hash, id, 0, id.length(), domain, 0, domain.length());
+    }
+
+    /**
+     * @return Whether a unique id is the latest known version of its key
+     */
+    public boolean isLatest(CharSequence uniqueId) {
+        long separators = CompositeIdCodec.separators(uniqueId);
+        if (separators == CompositeIdCodec.NO_MATCH) {
+            return false;
+        }
+        int idEnd = CompositeIdCodec.first(separators);
+        int domainEnd = CompositeIdCodec.second(separators);
+        long version = CompositeIdCodec.parseLong(uniqueId, domainEnd + 1, uniqueId.length());
+        int hash = hash(uniqueId, 0, idEnd, uniqueId, idEnd + 1, domainEnd);
+        return version != CompositeIdCodec.NO_MATCH && version == readVersion(stripe(hash),
+                hash, uniqueId, 0, idEnd, uniqueId, idEnd + 1, domainEnd);
+    }
+
+    private Stripe stripe(int hash) {
+        // The high bits pick the stripe; a long shift so a single stripe (shift 32) yields 0
+        return stripes[(int) ((hash & 0xFFFFFFFFL) >>> stripeShift)];
+    }
+
+    private static long readVersion(Stripe stripe, int hash, CharSequence id, int idStart, int idEnd,
+                                    CharSequence domain, int domainStart, int domainEnd) {
+        long stamp = stripe.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            long version = probe(stripe.table, hash, id, idStart, idEnd, domain, domainStart, domainEnd);
+            if (stripe.lock.validate(stamp)) {
+                return version;
+            }
+        }
+        stamp = stripe.lock.readLock();
+        try {
+            return probe(stripe.table, hash, id, idStart, idEnd, domain, domainStart, domainEnd);
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Looks a key up. Safe to run concurrently with a writer: every read is null-checked and the
+     * probe is bounded, and the caller discards the result unless the stamp validates.
+     */
+    private static long probe(Table table, int hash, CharSequence id, int idStart, int idEnd,
+                              CharSequence domain, int domainStart, int domainEnd) {
+        int mask = table.mask;
+        for (int i = 0, slot = hash & mask; i <= mask; i++, slot = (slot + 1) & mask) {
+            String storedId = table.ids[slot];
+            if (storedId == null) {
+                return NO_VERSION;
+            }
+            String storedDomain = table.domains[slot];
+            if (storedDomain != null && matches(storedId, id, idStart, idEnd)
+                    && matches(storedDomain, domain, domainStart, domainEnd)) {
+                return table.versions[slot];
+            }
+        }
+        return NO_VERSION;
+    }
+
+    /**
+     * @return The slot holding the key, or the empty slot where it belongs; called under the write lock
+     */
+    private static int find(Table table, int hash, CharSequence id, int idStart, int idEnd,
+                            CharSequence domain, int domainStart, int domainEnd) {
+        int slot = hash & table.mask;
+        while (table.ids[slot] != null && !(matches(table.ids[slot], id, idStart, idEnd)
+                && matches(table.domains[slot], domain, domainStart, domainEnd))) {
+            slot = (slot + 1) & table.mask;
+        }
+        return slot;
+    }
+
+    private static Table grow(Stripe stripe) {
+        Table old = stripe.table;
+        Table table = new Table(old.ids.length * 2);
+        for (int i = 0; i < old.ids.length; i++) {
+            String id = old.ids[i];
+            if (id != null) {
+                String domain = old.domains[i];
+                int slot = hash(id, 0, id.length(), domain, 0, domain.length()) & table.mask;
+                while (table.ids[slot] != null) {
+                    slot = (slot + 1) & table.mask;
+                }
+                table.ids[slot] = id;
+                table.domains[slot] = domain;
+                table.priorIds[slot] = old.priorIds[i];
+                table.versions[slot] = old.versions[i];
+            }
+        }
+        stripe.table = table;
+        return table;
+    }
+
+    private static boolean matches(String stored, CharSequence s, int start, int end) {
+        if (stored.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (stored.charAt(i - start) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence id, int idStart, int idEnd, CharSequence domain, int domainStart, int domainEnd) {
+        int h = 0;
+        for (int i = idStart; i < idEnd; i++) {
+            h = 31 * h + id.charAt(i);
+        }
+        h = 31 * h + '_';
+        for (int i = domainStart; i < domainEnd; i++) {
+            h = 31 * h + domain.charAt(i);
+        }
+        // Spread the bits: the high bits pick the stripe, the low bits the slot
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return The number of distinct (id, domain) keys
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                size += stripe.size;
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Exports every key with its latest version, ordered by priority, id and domain, and ranked
+     * like {@code RANK() OVER (ORDER BY priority, id)} in rankedcte. Each stripe is copied
+     * under its read lock, so offers are not blocked for the duration of the sort; the result
+     * is consistent per stripe rather than a single point in time.
+     *
+     * @return The ranked entries
+     */
+    public List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                Table table = stripe.table;
+                for (int i = 0; i < table.ids.length; i++) {
+                    String id = table.ids[i];
+                    if (id != null) {
+                        String priorId = table.priorIds[i];
+                        entries.add(new Entry(id, table.domains[i], table.versions[i], priorId, priority(id, priorId), 0));
+                    }
+                }
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        entries.sort(Comparator.comparingInt(Entry::priority).thenComparing(Entry::id).thenComparing(Entry::domain));
+
+        List<Entry> ranked = new ArrayList<>(entries.size());
+        long rank = 0;
+        Entry previous = null;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (previous == null || previous.priority() != entry.priority() || !previous.id().equals(entry.id())) {
+                rank = i + 1;
+            }
+            ranked.add(new Entry(entry.id(), entry.domain(), entry.version(), entry.priorId(), entry.priority(), rank));
+            previous = entry;
+        }
+        return ranked;
+    }
+
+    static int priority(String id, String priorId) {
+        if (priorId == null) {
+            return 1;
+        }
+        return priorId.equals(id) ? 2 : 3;
+    }
+
+    /**
+     * Example usage of the LatestVersionIndex.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        LatestVersionIndex index = new LatestVersionIndex();
+        index.offer("A_fx_1");
+        index.offer("A_fx_3");
+        index.offer("A_fx_2");
+        index.offer("A1_fx_1");
+        index.offer("B_rates_4", "B");
+        index.offer("C_rates_2", "A");
+        index.offer("D_fx_7", "B");
+        index.offer("D_rates_5", "B");
+
+        System.out.println("Latest A/fx: " + index.latestVersion("A", "fx"));
+        System.out.println("A_fx_2 is latest: " + index.isLatest("A_fx_2"));
+        System.out.println("Unknown: " + index.latestVersion("Z", "fx"));
+        for (Entry entry : index.snapshot()) {
+            System.out.println(entry);
+        }
+
+        LatestVersionIndex concurrent = new LatestVersionIndex();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    concurrent.offer("trade" + (i % 1000) + "_fx_" + (i + offset));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.out.println("Keys: " + concurrent.size() + ", latest trade999/fx: " + concurrent.latestVersion("trade999", "fx"));
+    }
+}
@@ -0,0 +1,358 @@
+package com.oniox.learn;
+
+import com.jayway.jsonpath.InvalidJsonException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Extracts a fixed set of JsonPath expressions from every record of a newline-delimited
+ * JSON (NDJSON) file, in parallel.
+ * <p>
+ * The file is split into chunks at newline boundaries and each chunk is memory-mapped and
+ * processed on a ForkJoinPool. Records are parsed straight from the mapped bytes with a
+ * {@link StreamingJsonPathExtractor}; no String is created per line. Each record is parsed to
+ * its end, so a malformed record, including one that is truncated or followed by trailing
+ * content, is reported to the handler with its byte offset and the run carries on with the
+ * next line.
+ * <p>
+ * In ordered mode records are delivered on the calling thread in file order. In unordered
+ * mode records are delivered from the worker threads as soon as each one is extracted, so
+ * the handler must be thread-safe.
+ */
+public class NdjsonBulkExtractor {
+
+    /** Default target size of a chunk handed to a single worker. */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int BOUNDARY_SCAN_SIZE = 64 * 1024;
+
+    /**
+     * Receives the results of a bulk extraction.
+     */
+    public interface RecordHandler {
+
+        /**
+         * Called for every successfully extracted record.
+         *
+         * @param offset The byte offset of the record's first byte in the file
+         * @param values The extracted values keyed by path name
+         */
+        void onRecord(long offset, Map<String, Object> values);
+
+        /**
+         * Called for every record that could not be parsed.
+         *
+         * @param offset The byte offset of the record's first byte in the file
+         * @param cause The parse failure
+         */
+        void onError(long offset, Exception cause);
+    }
+
+    /**
+     * Totals for a completed run.
+     */
+    public static final class Summary {
+        private final long records;
+        private final long errors;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        Summary(long records, long errors, long bytes, long elapsedNanos) {
+            this.records = records;
+            this.errors = errors;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Summary[records=" + records + ", errors=" + errors + ", bytes=" + bytes
+                    + ", elapsedMs=" + elapsedNanos / 1_000_000 + "]";
+        }
+    }
+
+    private final StreamingJsonPathExtractor extractor;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Creates a bulk extractor running on the common ForkJoinPool with the default chunk size.
+     *
+     * @param extractor The per-record extractor
+     */
+    public NdjsonBulkExtractor(StreamingJsonPathExtractor extractor) {
+        this(extractor, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a bulk extractor.
+     *
+     * @param extractor The per-record extractor; used {@link StreamingJsonPathExtractor#validating() validating}
+     * @param pool The pool the chunks are processed on
+     * @param chunkSize The target chunk size in bytes; chunks are extended to the next newline
+     * @throws IllegalArgumentException if chunkSize is not positive
+     */
+    public NdjsonBulkExtractor(StreamingJsonPathExtractor extractor, ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.extractor = extractor.validating();
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Extracts the configured paths from every record in the file.
+     *
+     * @param file The NDJSON file
+     * @param ordered true to deliver records in file order on the calling thread,
+     *                false to deliver them from worker threads as they complete
+     * @param handler The receiver of records and errors
+     * @return The totals for the run
+     * @throws IOException If the file cannot be read or mapped
+     */
+    public Summary extract(Path file, boolean ordered, RecordHandler handler) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel);
+            AtomicLong records = new AtomicLong();
+            AtomicLong errors = new AtomicLong();
+
+            try {
+                if (ordered) {
+                    runOrdered(channel, chunks, handler, records, errors);
+                } else {
+                    runUnordered(channel, chunks, handler, records, errors);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return new Summary(records.get(), errors.get(), channel.size(), System.nanoTime() - start);
+        }
+    }
+
+    private void runOrdered(FileChannel channel, List<long[]> chunks, RecordHandler handler,
+                            AtomicLong records, AtomicLong errors) {
+        // Bound the number of completed-but-undelivered chunks held in memory
+        int window = Math.max(2, pool.getParallelism() * 2);
+        Deque<ForkJoinTask<List<Object[]>>> inFlight = new ArrayDeque<>(window);
+        int next = 0;
+        while (next < chunks.size() || !inFlight.isEmpty()) {
+            while (next < chunks.size() && inFlight.size() < window) {
+                long[] chunk = chunks.get(next++);
+                inFlight.add(pool.submit(() -> {
+                    List<Object[]> buffered = new ArrayList<>();
+                    processChunk(channel, chunk[0], chunk[1], new RecordHandler() {
+                        @Override
+                        public void onRecord(long offset, Map<String, Object> values) {
+                            buffered.add(new Object[]{offset, values});
+                        }
+
+                        @Override
+                        public void onError(long offset, Exception cause) {
+                            buffered.add(new Object[]{offset, cause});
+                        }
+                    });
+                    return buffered;
+                }));
+            }
+            for (Object[] result : inFlight.removeFirst().join()) {
+                deliver(handler, result, records, errors);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void deliver(RecordHandler handler, Object[] result, AtomicLong records, AtomicLong errors) {
+        long offset = (Long) result[0];
+        if (result[1] instanceof Exception) {
+            errors.incrementAndGet();
+            handler.onError(offset, (Exception) result[1]);
+        } else {
+            records.incrementAndGet();
+            handler.onRecord(offset, (Map<String, Object>) result[1]);
+        }
+    }
+
+    private void runUnordered(FileChannel channel, List<long[]> chunks, RecordHandler handler,
+                              AtomicLong records, AtomicLong errors) {
+        RecordHandler counting = new RecordHandler() {
+            @Override
+            public void onRecord(long offset, Map<String, Object> values) {
+                records.incrementAndGet();
+                handler.onRecord(offset, values);
+            }
+
+            @Override
+            public void onError(long offset, Exception cause) {
+                errors.incrementAndGet();
+                handler.onError(offset, cause);
+            }
+        };
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.size());
+        for (long[] chunk : chunks) {
+            tasks.add(pool.submit(() -> processChunk(channel, chunk[0], chunk[1], counting)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    /**
+     * Splits the file into [start, end) ranges of roughly chunkSize bytes, each ending just
+     * after a newline (or at end of file).
+     */
+    private List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            if (end < size) {
+                end = nextLineStart(channel, end, size, scan);
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer scan)
+            throws IOException {
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private void processChunk(FileChannel channel, long chunkStart, long chunkEnd, RecordHandler handler) {
+        MappedByteBuffer mapped;
+        try {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int limit = mapped.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && mapped.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int recordStart = lineStart;
+            int recordEnd = lineEnd;
+            while (recordStart < recordEnd && isWhitespace(mapped.get(recordStart))) {
+                recordStart++;
+            }
+            while (recordEnd > recordStart && isWhitespace(mapped.get(recordEnd - 1))) {
+                recordEnd--;
+            }
+            if (recordEnd > recordStart) {
+                extractRecord(mapped.slice(recordStart, recordEnd - recordStart), chunkStart + recordStart, handler);
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private void extractRecord(ByteBuffer record, long offset, RecordHandler handler) {
+        Map<String, Object> values;
+        try {
+            values = extractor.extract(record);
+        } catch (InvalidJsonException | IllegalArgumentException e) {
+            handler.onError(offset, e);
+            return;
+        }
+        handler.onRecord(offset, values);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Example usage of the NdjsonBulkExtractor.
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("events", ".ndjson");
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 10; i++) {
+                if (i == 4) {
+                    sb.append("{\"id\": 4, \"broken\": \n");
+                } else if (i == 5) {
+                    sb.append("{\"id\": 5} garbage ]]\n");
+                } else {
+                    sb.append("{\"id\":").append(i).append(",\"user\":{\"name\":\"user-").append(i)
+                      .append("\"},\"tags\":[\"a\",\"b\"]}\n");
+                }
+            }
+            Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+            Map<String, String> paths = new LinkedHashMap<>();
+            paths.put("id", "$.id");
+            paths.put("name", "$.user.name");
+            paths.put("tags", "$.tags[*]");
+            NdjsonBulkExtractor bulk = new NdjsonBulkExtractor(
+                    StreamingJsonPathExtractor.of(paths), ForkJoinPool.commonPool(), 64);
+
+            Summary summary = bulk.extract(file, true, new RecordHandler() {
+                @Override
+                public void onRecord(long offset, Map<String, Object> values) {
+                    System.out.println(offset + ": " + values);
+                }
+
+                @Override
+                public void onError(long offset, Exception cause) {
+                    System.out.println(offset + ": malformed record (" + cause.getMessage().split("\n")[0] + ")");
+                }
+            });
+            System.out.println(summary);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
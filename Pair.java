@@ -0,0 +1,15 @@
+package com.oniox.learn;
+
+/**
+ * An immutable pair of values.
+ *
+ * @param first  The first value
+ * @param second The second value
+ */
+public record Pair<A, B>(A first, B second) {
+
+    @Override
+    public String toString() {
+        return "(" + first + ", " + second + ")";
+    }
+}
@@ -0,0 +1,616 @@
+package com.oniox.learn;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Synchronizes the source table into the target table in many partitions at once, keeping a
+ * checkpoint per partition in a control table on the target so that a failed or stopped run
+ * resumes where each partition stopped instead of starting over.
+ * <p>
+ * The source is split either by hash ({@code MOD(ABS(id), n)}) or into id ranges computed from the
+ * source on the first run. Partition definitions and checkpoints live in the control table;
+ * running again with a different partition count or scheme fails until those rows are removed.
+ * Each partition reads its rows in {@code (last_update, id)} order from its checkpoint onwards,
+ * merges them batch by batch and moves its checkpoint in the same target transaction as the
+ * batch, so the checkpoint never runs ahead of the data.
+ * <p>
+ * As many partitions run at once as the smaller of the two connection pools allows, each
+ * holding one source and one target connection. There are several partitions per worker by
+ * default, and workers take the next pending partition when they finish one, so a partition
+ * with a large delta occupies one worker while the others carry on with the rest.
+ * <p>
+ * The control table, for SQL Server:
+ * <pre>
+ * CREATE TABLE sync_control (
+ *     sync_name       VARCHAR(100) NOT NULL,
+ *     partition_id    INT          NOT NULL,
+ *     partition_count INT          NOT NULL,
+ *     lower_id        INT,
+ *     upper_id        INT,
+ *     watermark       DATETIME2    NOT NULL,
+ *     watermark_id    INT          NOT NULL,
+ *     rows_synced     BIGINT       NOT NULL,
+ *     PRIMARY KEY (sync_name, partition_id)
+ * );
+ * </pre>
+ * New partitions start from the target's newest {@code last_update}, like
+ * {@code DataSyncService.syncData}, so switching an existing target over re-sends nothing.
+ * <p>
+ * With a {@link RowHashIndex} for change detection, each partition reads from its checkpoint's
+ * timestamp inclusively, less the lookback, instead of strictly after the checkpoint row, and
+ * only merges rows the index does not already hold with the same content. This picks up rows
+ * committed late with a timestamp at or before the checkpoint, which the keyset read misses.
+ */
+public final class PartitionedDataSync {
+
+    private final DataSource source;
+    private final DataSource target;
+    private final String sourceTable;
+    private final String targetTable;
+    private final String controlTable;
+    private final String syncName;
+    private final boolean rangePartitioned;
+    private final int partitionCount;
+    private final int workers;
+    private final int fetchSize;
+    private final int batchSize;
+    private final RowHashIndex index;
+    private final Duration lookback;
+    private final SyncMetrics metrics;
+
+    private PartitionedDataSync(Builder builder) {
+        this.source = builder.source;
+        this.target = builder.target;
+        this.sourceTable = builder.sourceTable;
+        this.targetTable = builder.targetTable;
+        this.controlTable = builder.controlTable;
+        this.syncName = builder.syncName;
+        this.rangePartitioned = builder.rangePartitioned;
+        this.workers = Math.min(builder.sourcePoolSize, builder.targetPoolSize);
+        this.partitionCount = builder.partitionCount > 0 ? builder.partitionCount : 4 * workers;
+        this.fetchSize = builder.fetchSize;
+        this.batchSize = builder.batchSize;
+        this.index = builder.index;
+        this.lookback = builder.lookback;
+        this.metrics = builder.metrics;
+    }
+
+    /**
+     * @return A new builder for a PartitionedDataSync
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A partition and its checkpoint: every row before {@code (watermark, watermarkId)} in
+     * {@code (last_update, id)} order has been merged.
+     *
+     * @param id          The partition number, from 0
+     * @param lowerId     The lowest id of a range partition, or null for a hash partition
+     * @param upperId     The highest id of a range partition, or null for a hash partition
+     * @param watermark   The {@code last_update} of the last merged row
+     * @param watermarkId The id of the last merged row
+     * @param rowsSynced  The number of rows merged over all runs
+     */
+    public record Partition(int id, Integer lowerId, Integer upperId, Timestamp watermark, int watermarkId,
+                            long rowsSynced) {
+    }
+
+    /**
+     * The outcome of a run.
+     *
+     * @param rowsWritten The number of rows merged in this run, not counting rows dropped as unchanged
+     * @param partitions  The partitions with their checkpoints at the end of the run
+     */
+    public record Result(long rowsWritten, List<Partition> partitions) {
+    }
+
+    /**
+     * Runs one synchronization of all partitions. If a partition fails, no further partitions
+     * are started and running ones stop after their current batch; the next run resumes every
+     * partition from its checkpoint.
+     *
+     * @return The number of rows merged and the new checkpoints
+     * @throws SQLException          If a partition failed, with the failures of other partitions suppressed
+     * @throws IllegalStateException If the control table holds a different partitioning for this sync
+     */
+    public Result sync() throws SQLException {
+        List<Partition> partitions = loadPartitions();
+        ConcurrentLinkedQueue<Partition> pending = new ConcurrentLinkedQueue<>(partitions);
+        Partition[] finished = partitions.toArray(new Partition[0]);
+        AtomicLong written = new AtomicLong();
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger threadNumber = new AtomicInteger();
+        List<SQLException> failures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, partitions.size()), r -> {
+            Thread thread = new Thread(r, "datasync-partition-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < Math.min(workers, partitions.size()); i++) {
+                futures.add(executor.submit(() -> {
+                    for (Partition partition = pending.poll(); partition != null && !stop.get(); partition = pending.poll()) {
+                        try {
+                            finished[partition.id()] = syncPartition(partition, written, stop);
+                        } catch (SQLException e) {
+                            synchronized (failures) {
+                                failures.add(e);
+                            }
+                            stop.set(true);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for partitions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Partition worker failed", e.getCause());
+        } finally {
+            stop.set(true);
+            executor.shutdownNow();
+        }
+        if (!failures.isEmpty()) {
+            SQLException failure = failures.get(0);
+            for (int i = 1; i < failures.size(); i++) {
+                failure.addSuppressed(failures.get(i));
+            }
+            throw failure;
+        }
+        return new Result(written.get(), List.of(finished));
+    }
+
+    /**
+     * Streams one partition from its checkpoint, merging and checkpointing batch by batch.
+     *
+     * @return The partition with its final checkpoint
+     */
+    private Partition syncPartition(Partition partition, AtomicLong written, AtomicBoolean stop) throws SQLException {
+        String predicate = partition.lowerId() != null
+                ? "id BETWEEN " + partition.lowerId() + " AND " + partition.upperId()
+                : "MOD(ABS(id), " + partitionCount + ") = " + partition.id();
+        String query = "SELECT id, col1, col2, last_update FROM " + sourceTable + " WHERE " + predicate
+                + (index != null ? " AND last_update >= ?" : " AND last_update >= ? AND (last_update > ? OR id > ?)")
+                + " ORDER BY last_update, id";
+        String checkpointSql = "UPDATE " + controlTable
+                + " SET watermark = ?, watermark_id = ?, rows_synced = rows_synced + ?"
+                + " WHERE sync_name = ? AND partition_id = ?";
+        Partition current = partition;
+        try (Connection sourceConnection = source.getConnection();
+             Connection targetConnection = target.getConnection()) {
+            sourceConnection.setReadOnly(true);
+            sourceConnection.setAutoCommit(false);
+            targetConnection.setAutoCommit(false);
+            try (PreparedStatement select = sourceConnection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                 PreparedStatement merge = targetConnection.prepareStatement(
+                         StreamingDataSync.mergeSql(targetTable, StreamingDataSync.SINGLE_ROW_SOURCE));
+                 PreparedStatement checkpoint = targetConnection.prepareStatement(checkpointSql)) {
+                select.setFetchSize(fetchSize);
+                if (index != null) {
+                    select.setTimestamp(1, StreamingDataSync.minus(partition.watermark(), lookback));
+                } else {
+                    // Keyset (last_update, id) > checkpoint, written so an index on last_update applies
+                    select.setTimestamp(1, partition.watermark());
+                    select.setTimestamp(2, partition.watermark());
+                    select.setInt(3, partition.watermarkId());
+                }
+                long start = System.nanoTime();
+                try (ResultSet rs = select.executeQuery()) {
+                    List<SyncRecord> batch = new ArrayList<>(batchSize);
+                    long bytes = 0;
+                    boolean more = rs.next();
+                    while (more) {
+                        SyncRecord record = new SyncRecord(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getTimestamp(4));
+                        batch.add(record);
+                        bytes += record.estimatedBytes();
+                        more = rs.next();
+                        if (batch.size() == batchSize || !more) {
+                            metrics.recordBatch(SyncMetrics.Stage.FETCH, batch.size(), bytes, System.nanoTime() - start);
+                            long before = current.rowsSynced();
+                            current = write(targetConnection, merge, checkpoint, current, batch);
+                            written.addAndGet(current.rowsSynced() - before);
+                            batch.clear();
+                            bytes = 0;
+                            start = System.nanoTime();
+                            if (stop.get()) {
+                                break;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                sourceConnection.rollback();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Merges the changed rows of a batch and moves the checkpoint past the whole batch, in one
+     * transaction. Rows read again below the checkpoint, through the lookback, never move it back.
+     */
+    private Partition write(Connection connection, PreparedStatement merge, PreparedStatement checkpoint,
+                            Partition partition, List<SyncRecord> batch) throws SQLException {
+        long start = System.nanoTime();
+        List<SyncRecord> changed = batch;
+        if (index != null) {
+            changed = index.changedRows(batch);
+            long filtered = System.nanoTime();
+            metrics.recordBatch(SyncMetrics.Stage.TRANSFORM, changed.size(), StreamingDataSync.bytes(changed), filtered - start);
+            start = filtered;
+        }
+        SyncRecord last = batch.get(batch.size() - 1);
+        int order = last.lastUpdate().compareTo(partition.watermark());
+        boolean advances = order > 0 || (order == 0 && last.id() > partition.watermarkId());
+        if (changed.isEmpty() && !advances) {
+            return partition;
+        }
+        Timestamp watermark = advances ? last.lastUpdate() : partition.watermark();
+        int watermarkId = advances ? last.id() : partition.watermarkId();
+        long bytes = 0;
+        long bound;
+        try {
+            bytes = changed.isEmpty() ? 0 : StreamingDataSync.bind(merge, changed);
+            bound = System.nanoTime();
+            if (!changed.isEmpty()) {
+                merge.executeBatch();
+            }
+            checkpoint.setTimestamp(1, watermark);
+            checkpoint.setInt(2, watermarkId);
+            checkpoint.setLong(3, changed.size());
+            checkpoint.setString(4, syncName);
+            checkpoint.setInt(5, partition.id());
+            checkpoint.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            StreamingDataSync.rollback(connection, e);
+            throw e;
+        }
+        metrics.recordBatch(SyncMetrics.Stage.BUILD, changed.size(), bytes, bound - start);
+        metrics.recordBatch(SyncMetrics.Stage.EXECUTE, changed.size(), bytes, System.nanoTime() - bound);
+        if (index != null) {
+            index.record(changed);
+        }
+        return new Partition(partition.id(), partition.lowerId(), partition.upperId(), watermark, watermarkId,
+                partition.rowsSynced() + changed.size());
+    }
+
+    /**
+     * Reads this sync's partitions from the control table, creating them on the first run.
+     */
+    private List<Partition> loadPartitions() throws SQLException {
+        try (Connection connection = target.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                List<Partition> partitions = readPartitions(connection);
+                if (partitions.isEmpty()) {
+                    partitions = createPartitions(connection);
+                }
+                connection.commit();
+                return partitions;
+            } catch (SQLException e) {
+                StreamingDataSync.rollback(connection, e);
+                throw e;
+            }
+        }
+    }
+
+    private List<Partition> readPartitions(Connection connection) throws SQLException {
+        List<Partition> partitions = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT partition_id, partition_count, lower_id, upper_id, watermark, watermark_id, rows_synced FROM "
+                        + controlTable + " WHERE sync_name = ? ORDER BY partition_id")) {
+            statement.setString(1, syncName);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    int lower = rs.getInt(3);
+                    Integer lowerId = rs.wasNull() ? null : lower;
+                    int upper = rs.getInt(4);
+                    Integer upperId = rs.wasNull() ? null : upper;
+                    if (rs.getInt(2) != partitionCount || rs.getInt(1) != partitions.size()
+                            || (lowerId != null) != rangePartitioned) {
+                        throw new IllegalStateException("Control table " + controlTable + " holds a different partitioning for sync "
+                                + syncName + "; remove its rows to repartition");
+                    }
+                    partitions.add(new Partition(rs.getInt(1), lowerId, upperId, rs.getTimestamp(5), rs.getInt(6), rs.getLong(7)));
+                }
+            }
+        }
+        if (!partitions.isEmpty() && partitions.size() != partitionCount) {
+            throw new IllegalStateException("Control table " + controlTable + " is missing partitions of sync " + syncName);
+        }
+        return partitions;
+    }
+
+    private List<Partition> createPartitions(Connection connection) throws SQLException {
+        Timestamp watermark;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MAX(last_update) FROM " + targetTable)) {
+            watermark = rs.next() ? rs.getTimestamp(1) : null;
+        }
+        // Strictly after the newest target row, as in DataSyncService.syncData
+        int watermarkId = Integer.MAX_VALUE;
+        if (watermark == null) {
+            watermark = new Timestamp(0);
+            watermarkId = Integer.MIN_VALUE;
+        }
+        long[] bounds = rangePartitioned ? rangeBounds() : null;
+        List<Partition> partitions = new ArrayList<>(partitionCount);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + controlTable
+                + " (sync_name, partition_id, partition_count, lower_id, upper_id, watermark, watermark_id, rows_synced)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, 0)")) {
+            for (int i = 0; i < partitionCount; i++) {
+                Integer lowerId = bounds == null ? null : (int) bounds[i];
+                Integer upperId = bounds == null ? null : (int) (bounds[i + 1] - 1);
+                insert.setString(1, syncName);
+                insert.setInt(2, i);
+                insert.setInt(3, partitionCount);
+                insert.setObject(4, lowerId, Types.INTEGER);
+                insert.setObject(5, upperId, Types.INTEGER);
+                insert.setTimestamp(6, watermark);
+                insert.setInt(7, watermarkId);
+                insert.addBatch();
+                partitions.add(new Partition(i, lowerId, upperId, watermark, watermarkId, 0));
+            }
+            insert.executeBatch();
+        }
+        return partitions;
+    }
+
+    /**
+     * Splits the source's current id span evenly; the first and last ranges are open-ended so
+     * that ids outside today's span still belong to a partition.
+     *
+     * @return partitionCount + 1 boundaries, partition i covering [bounds[i], bounds[i + 1])
+     */
+    private long[] rangeBounds() throws SQLException {
+        long min = 0;
+        long max = 0;
+        try (Connection connection = source.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MIN(id), MAX(id) FROM " + sourceTable)) {
+            if (rs.next()) {
+                min = rs.getLong(1);
+                max = rs.getLong(2);
+            }
+        }
+        long[] bounds = new long[partitionCount + 1];
+        long span = max - min + 1;
+        for (int i = 1; i < partitionCount; i++) {
+            bounds[i] = min + span * i / partitionCount;
+        }
+        bounds[0] = Integer.MIN_VALUE;
+        bounds[partitionCount] = Integer.MAX_VALUE + 1L;
+        return bounds;
+    }
+
+    /**
+     * Builder for {@link PartitionedDataSync}.
+     */
+    public static final class Builder {
+
+        private DataSource source;
+        private DataSource target;
+        private String sourceTable = "source_table";
+        private String targetTable = "target_table";
+        private String controlTable = "sync_control";
+        private String syncName = "default";
+        private boolean rangePartitioned;
+        private int partitionCount;
+        private int sourcePoolSize = 10;
+        private int targetPoolSize = 10;
+        private int fetchSize = 1000;
+        private int batchSize = 500;
+        private RowHashIndex index;
+        private Duration lookback = Duration.ZERO;
+        private SyncMetrics metrics = SyncMetrics.NONE;
+
+        private Builder() {
+        }
+
+        /**
+         * @param source The database to read changed rows from; required
+         * @return This builder
+         */
+        public Builder source(DataSource source) {
+            this.source = source;
+            return this;
+        }
+
+        /**
+         * @param target The database to merge rows into, which also holds the control table; required
+         * @return This builder
+         */
+        public Builder target(DataSource target) {
+            this.target = target;
+            return this;
+        }
+
+        /**
+         * @param sourceTable The table to read (default source_table)
+         * @return This builder
+         * @throws IllegalArgumentException If sourceTable is not a plain or qualified identifier
+         */
+        public Builder sourceTable(String sourceTable) {
+            this.sourceTable = StreamingDataSync.identifier(sourceTable);
+            return this;
+        }
+
+        /**
+         * @param targetTable The table to merge into (default target_table)
+         * @return This builder
+         * @throws IllegalArgumentException If targetTable is not a plain or qualified identifier
+         */
+        public Builder targetTable(String targetTable) {
+            this.targetTable = StreamingDataSync.identifier(targetTable);
+            return this;
+        }
+
+        /**
+         * @param controlTable The table holding the partition checkpoints (default sync_control)
+         * @return This builder
+         * @throws IllegalArgumentException If controlTable is not a plain or qualified identifier
+         */
+        public Builder controlTable(String controlTable) {
+            this.controlTable = StreamingDataSync.identifier(controlTable);
+            return this;
+        }
+
+        /**
+         * @param syncName The name this sync's checkpoints are stored under (default "default"),
+         *                 so that several syncs can share one control table
+         * @return This builder
+         */
+        public Builder syncName(String syncName) {
+            this.syncName = syncName;
+            return this;
+        }
+
+        /**
+         * Splits the source by {@code MOD(ABS(id), partitions)} (the default scheme).
+         *
+         * @param partitions The number of partitions (default four per worker)
+         * @return This builder
+         * @throws IllegalArgumentException If partitions is not positive
+         */
+        public Builder hashPartitions(int partitions) {
+            this.partitionCount = positive(partitions, "Partition count");
+            this.rangePartitioned = false;
+            return this;
+        }
+
+        /**
+         * Splits the source into contiguous id ranges, fixed on the first run from the source's
+         * lowest and highest id.
+         *
+         * @param partitions The number of partitions
+         * @return This builder
+         * @throws IllegalArgumentException If partitions is not positive
+         */
+        public Builder rangePartitions(int partitions) {
+            this.partitionCount = positive(partitions, "Partition count");
+            this.rangePartitioned = true;
+            return this;
+        }
+
+        /**
+         * The number of partitions synchronized at once is the smaller of the two pool sizes.
+         * Pass less than the pools' maximumPoolSize to leave connections for other work.
+         *
+         * @param sourcePoolSize The connections the sync may take from the source pool (default 10)
+         * @param targetPoolSize The connections the sync may take from the target pool (default 10)
+         * @return This builder
+         * @throws IllegalArgumentException If either size is not positive
+         */
+        public Builder poolSizes(int sourcePoolSize, int targetPoolSize) {
+            this.sourcePoolSize = positive(sourcePoolSize, "Source pool size");
+            this.targetPoolSize = positive(targetPoolSize, "Target pool size");
+            return this;
+        }
+
+        /**
+         * @param fetchSize The number of rows each source cursor fetches per round trip (default 1000)
+         * @return This builder
+         * @throws IllegalArgumentException If fetchSize is not positive
+         */
+        public Builder fetchSize(int fetchSize) {
+            this.fetchSize = positive(fetchSize, "Fetch size");
+            return this;
+        }
+
+        /**
+         * @param batchSize The number of rows per JDBC batch and per checkpoint (default 500)
+         * @return This builder
+         * @throws IllegalArgumentException If batchSize is not positive
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = positive(batchSize, "Batch size");
+            return this;
+        }
+
+        /**
+         * @param index The content of the target rows, used to drop unchanged rows and to read from
+         *              the checkpoints inclusively; by default every row read is merged
+         * @return This builder
+         */
+        public Builder changeDetection(RowHashIndex index) {
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * @param lookback How far before each checkpoint to read again, for source transactions that
+         *                 commit rows with a timestamp older than rows already synced (default none);
+         *                 requires change detection
+         * @return This builder
+         * @throws IllegalArgumentException If lookback is negative
+         */
+        public Builder lookback(Duration lookback) {
+            if (lookback.isNegative()) {
+                throw new IllegalArgumentException("Lookback cannot be negative");
+            }
+            this.lookback = lookback;
+            return this;
+        }
+
+        /**
+         * @param metrics Receives per-stage batch measurements (default none); partitions have no
+         *                queue, so no queue depths are reported
+         * @return This builder
+         */
+        public Builder metrics(SyncMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        private static int positive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be positive");
+            }
+            return value;
+        }
+
+        /**
+         * @return The configured sync
+         * @throws IllegalStateException If the source or target is missing, or a lookback is set
+         *                               without change detection
+         */
+        public PartitionedDataSync build() {
+            if (source == null || target == null) {
+                throw new IllegalStateException("Both a source and a target are required");
+            }
+            if (!lookback.isZero() && index == null) {
+                throw new IllegalStateException("A lookback requires change detection");
+            }
+            return new PartitionedDataSync(this);
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package com.oniox.learn;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs one single-row query per key concurrently, with a bulkhead sized to the connection pool.
+ * This replaces {@code ConcurrentQueryService.executeConcurrentQueries}, which builds a new
+ * ten-thread pool per call, waits on each future in submission order and lets any number of
+ * calls compete for the pool's connections until {@code getConnection} times out.
+ * <p>
+ * Each query runs on its own virtual thread when the runtime has them (Java 21 and later; they
+ * are looked up reflectively, as this code targets Java 17), and otherwise on a shared cached
+ * pool of daemon threads. A semaphore with one permit per pooled connection is held by every
+ * query from before it borrows a connection until after it returns it, so the pool is never
+ * asked for more connections than it has. A call launches its queries as permits allow: when the
+ * bulkhead is full and the call already holds permits it waits for its own queries to finish,
+ * and when it holds none it waits at most {@code maxWait} (by default not at all) and then
+ * rejects its remaining keys rather than queueing behind other calls.
+ * <p>
+ * {@link #fanOut} returns the outcomes in completion order through a {@link Results} that acts
+ * as a structured scope: once the call's deadline passes, or the results are closed early,
+ * statements still running are cancelled with {@code Statement.cancel()}, their threads are
+ * interrupted, and closing waits until they have finished. {@code StructuredTaskScope} would
+ * express the same scope, but it is a preview API in every release this code can target.
+ *
+ * <pre>
+ * QueryFanOut fanOut = QueryFanOut.builder()
+ *         .dataSource(hikariDataSource)
+ *         .poolSize(hikariDataSource.getMaximumPoolSize())
+ *         .build();
+ * try (QueryFanOut.Results&lt;Integer, String&gt; results = fanOut.fanOut(
+ *         "SELECT column_name FROM some_table WHERE id = ?", ids, rs -&gt; rs.getString(1), Duration.ofSeconds(2))) {
+ *     results.forEachRemaining(outcome -&gt; ...);
+ * }
+ * </pre>
+ */
+public final class QueryFanOut implements AutoCloseable {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * How a query ended.
+     */
+    public enum Status {
+        /** The query ran; the value is null if it found no row. */
+        COMPLETED,
+        /** The query threw; see the error. */
+        FAILED,
+        /** The deadline passed before the query finished, or before it started. */
+        TIMED_OUT,
+        /** The bulkhead was full and the query never started. */
+        REJECTED
+    }
+
+    /**
+     * The outcome of the query for one key.
+     *
+     * @param key    The key
+     * @param status How the query ended
+     * @param value  The value read from the first row, if the query completed and found one
+     * @param error  Why the query did not complete, otherwise null
+     */
+    public record Outcome<K, T>(K key, Status status, T value, Throwable error) {
+    }
+
+    private final DataSource dataSource;
+    private final int poolSize;
+    private final Duration maxWait;
+    private final Semaphore bulkhead;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    private QueryFanOut(Builder builder) {
+        this.dataSource = builder.dataSource;
+        this.poolSize = builder.poolSize;
+        this.maxWait = builder.maxWait;
+        this.bulkhead = new Semaphore(poolSize);
+        ExecutorService virtual = virtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "query-fanout-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return A new builder for a QueryFanOut
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Whether queries run on virtual threads
+     */
+    public boolean virtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return The number of queries running across all calls
+     */
+    public int inFlight() {
+        return poolSize - bulkhead.availablePermits();
+    }
+
+    /**
+     * Starts running {@code sql} once per key, with the key bound to its single parameter.
+     *
+     * @param sql      A query with one parameter
+     * @param keys     The keys
+     * @param reader   Reads the value from the first row of a result
+     * @param deadline How long the whole call may take
+     * @return The outcomes, one per key, in completion order; must be closed
+     */
+    public <K, T> Results<K, T> fanOut(String sql, List<K> keys, InListQuery.RowReader<T> reader, Duration deadline) {
+        return new Results<>(sql, keys, reader, System.nanoTime() + deadline.toNanos());
+    }
+
+    /**
+     * Stops the threads. Calls still open should be closed first.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The outcomes of one {@link #fanOut} call, in completion order. Iterating launches queries
+     * as bulkhead permits become available and blocks until the next one finishes or the deadline
+     * passes; after the deadline the remaining keys come out as {@link Status#TIMED_OUT}.
+     * Not thread-safe: one thread iterates.
+     */
+    public final class Results<K, T> implements Iterator<Outcome<K, T>>, AutoCloseable {
+
+        private final String sql;
+        private final List<K> keys;
+        private final InListQuery.RowReader<T> reader;
+        private final long deadline;
+        private final BlockingQueue<Outcome<K, T>> completed = new LinkedBlockingQueue<>();
+        private final List<Query> running = new ArrayList<>();
+        private final List<Outcome<K, T>> unreported = new ArrayList<>();
+        private int launched;
+        private int reported;
+        private int inFlight;
+        private boolean cancelled;
+
+        private Results(String sql, List<K> keys, InListQuery.RowReader<T> reader, long deadline) {
+            this.sql = sql;
+            this.keys = keys;
+            this.reader = reader;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return reported < keys.size();
+        }
+
+        @Override
+        public Outcome<K, T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            reported++;
+            if (unreported.isEmpty()) {
+                launch();
+            }
+            if (!unreported.isEmpty()) {
+                return unreported.remove(unreported.size() - 1);
+            }
+            Outcome<K, T> outcome = completed.poll();
+            if (outcome == null) {
+                return await();
+            }
+            inFlight--;
+            return outcome;
+        }
+
+        /**
+         * Collects the remaining outcomes.
+         *
+         * @return The outcomes not yet returned by {@link #next()}, in completion order
+         */
+        public List<Outcome<K, T>> toList() {
+            List<Outcome<K, T>> outcomes = new ArrayList<>(keys.size() - reported);
+            forEachRemaining(outcomes::add);
+            return outcomes;
+        }
+
+        /**
+         * Cancels the queries still running and waits for their threads to finish.
+         */
+        @Override
+        public void close() {
+            cancel();
+            boolean interrupted = false;
+            for (Query query : running) {
+                while (true) {
+                    try {
+                        query.finished.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Starts queries while permits are free; if none are and this call holds none, waits up to
+        // maxWait and then rejects the remaining keys
+        private void launch() {
+            while (launched < keys.size() && !cancelled && deadline - System.nanoTime() > 0) {
+                if (!bulkhead.tryAcquire()) {
+                    if (inFlight > 0) {
+                        return;
+                    }
+                    if (!acquireWithin(Math.min(maxWait.toNanos(), deadline - System.nanoTime()))) {
+                        reject();
+                        return;
+                    }
+                }
+                Query query = new Query(keys.get(launched++));
+                inFlight++;
+                running.add(query);
+                try {
+                    executor.execute(query);
+                } catch (RejectedExecutionException e) {
+                    bulkhead.release();
+                    query.report(Status.FAILED, null, e);
+                    query.finished.countDown();
+                }
+            }
+        }
+
+        private boolean acquireWithin(long nanos) {
+            try {
+                return nanos > 0 && bulkhead.tryAcquire(nanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private void reject() {
+            RejectedExecutionException full = new RejectedExecutionException(
+                    "Bulkhead full: " + poolSize + " queries in flight");
+            while (launched < keys.size()) {
+                unreported.add(new Outcome<>(keys.get(launched++), Status.REJECTED, null, full));
+            }
+        }
+
+        private Outcome<K, T> await() {
+            try {
+                Outcome<K, T> outcome = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (outcome != null) {
+                    inFlight--;
+                    return outcome;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // The deadline passed (or this thread was interrupted): report everything left as timed out
+            cancel();
+            TimeoutException timeout = new TimeoutException("Deadline passed");
+            while (launched < keys.size()) {
+                unreported.add(new Outcome<>(keys.get(launched++), Status.TIMED_OUT, null, timeout));
+            }
+            int cancelledQueries = 0;
+            for (Query query : running) {
+                if (query.cancelledUnreported()) {
+                    unreported.add(new Outcome<>(query.key, Status.TIMED_OUT, null, timeout));
+                    cancelledQueries++;
+                }
+            }
+            // The others settled themselves before the cancellation, so their outcomes are on the
+            // queue or about to be
+            boolean interrupted = false;
+            for (int i = inFlight - cancelledQueries; i > 0; ) {
+                try {
+                    unreported.add(completed.take());
+                    i--;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight = 0;
+            return unreported.remove(unreported.size() - 1);
+        }
+
+        private void cancel() {
+            cancelled = true;
+            for (Query query : running) {
+                query.cancel();
+            }
+        }
+
+        /**
+         * One key's query. Exactly one of the query itself and a cancellation settles it, and only
+         * a query that settles itself puts its outcome on the queue.
+         */
+        private final class Query implements Runnable {
+            private final K key;
+            private final AtomicBoolean settled = new AtomicBoolean();
+            private final CountDownLatch finished = new CountDownLatch(1);
+            private volatile PreparedStatement statement;
+            private Thread thread;
+            private boolean cancelledUnreported;
+
+            Query(K key) {
+                this.key = key;
+            }
+
+            @Override
+            public void run() {
+                synchronized (this) {
+                    thread = Thread.currentThread();
+                }
+                Status status = Status.COMPLETED;
+                T value = null;
+                Throwable error = null;
+                try (Connection connection = dataSource.getConnection();
+                     PreparedStatement prepared = connection.prepareStatement(sql)) {
+                    statement = prepared;
+                    long remaining = deadline - System.nanoTime();
+                    if (settled.get() || remaining <= 0) {
+                        status = Status.TIMED_OUT;
+                        error = new TimeoutException("Deadline passed");
+                        return;
+                    }
+                    // A server-side backstop in case cancel() arrives before the statement starts
+                    prepared.setQueryTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + 999_999_999)));
+                    prepared.setObject(1, key);
+                    try (ResultSet rs = prepared.executeQuery()) {
+                        if (rs.next()) {
+                            value = reader.read(rs);
+                        }
+                    }
+                } catch (Throwable t) {
+                    status = Status.FAILED;
+                    error = t;
+                } finally {
+                    synchronized (this) {
+                        thread = null;
+                    }
+                    // Clears an interrupt from a cancellation that raced with the end of the query,
+                    // so it cannot reach the next task on a pooled thread
+                    Thread.interrupted();
+                    // The permit goes back before the outcome is visible, so a call that takes the
+                    // outcome can reuse the permit rather than find the bulkhead full
+                    bulkhead.release();
+                    report(status, value, error);
+                    finished.countDown();
+                }
+            }
+
+            void report(Status status, T value, Throwable error) {
+                if (settled.compareAndSet(false, true)) {
+                    completed.add(new Outcome<>(key, status, value, error));
+                }
+            }
+
+            void cancel() {
+                if (!settled.compareAndSet(false, true)) {
+                    return;
+                }
+                cancelledUnreported = true;
+                PreparedStatement running = statement;
+                if (running != null) {
+                    try {
+                        running.cancel();
+                    } catch (SQLException ignored) {
+                        // The statement may already be closed
+                    }
+                }
+                synchronized (this) {
+                    if (thread != null) {
+                        thread.interrupt();
+                    }
+                }
+            }
+
+            boolean cancelledUnreported() {
+                boolean result = cancelledUnreported;
+                cancelledUnreported = false;
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link QueryFanOut}.
+     */
+    public static final class Builder {
+
+        private DataSource dataSource;
+        private int poolSize = 10;
+        private Duration maxWait = Duration.ZERO;
+
+        private Builder() {
+        }
+
+        /**
+         * @param dataSource The pooled database to query; required
+         * @return This builder
+         */
+        public Builder dataSource(DataSource dataSource) {
+            this.dataSource = dataSource;
+            return this;
+        }
+
+        /**
+         * @param poolSize The pool's maximum size (Hikari's maximumPoolSize), less any connections
+         *                 to keep for other work; the number of queries run at once (default 10)
+         * @return This builder
+         * @throws IllegalArgumentException If poolSize is not positive
+         */
+        public Builder poolSize(int poolSize) {
+            if (poolSize <= 0) {
+                throw new IllegalArgumentException("Pool size must be positive");
+            }
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        /**
+         * @param maxWait How long a call holding no permits waits for one before rejecting its
+         *                keys (default zero: reject at once)
+         * @return This builder
+         * @throws IllegalArgumentException If maxWait is negative
+         */
+        public Builder maxWait(Duration maxWait) {
+            if (maxWait.isNegative()) {
+                throw new IllegalArgumentException("Max wait cannot be negative");
+            }
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        /**
+         * @return The configured fan-out
+         * @throws IllegalStateException If the data source is missing
+         */
+        public QueryFanOut build() {
+            if (dataSource == null) {
+                throw new IllegalStateException("A data source is required");
+            }
+            return new QueryFanOut(this);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.oniox.learn;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.EvaluationListener;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.MapFunction;
+import com.jayway.jsonpath.Predicate;
+import com.jayway.jsonpath.ReadContext;
+import com.jayway.jsonpath.TypeRef;
+
+/**
+ * A DocumentContext over a JsonNode tree that may be shared between callers (see
+ * {@link JsonDocumentCache}), guarding the tree against modification.
+ * <p>
+ * Every write operation throws UnsupportedOperationException. Reads that would hand out a
+ * live object or array node of the shared tree, including {@link #json()}, return a deep
+ * copy instead; scalar results and values converted by the mapping provider are returned
+ * as-is. Library code that only navigates the tree uses {@link #root()} to avoid the copy.
+ */
+final class ReadOnlyDocumentContext implements DocumentContext {
+
+    private final ReadContext delegate;
+    private final JsonNode root;
+
+    ReadOnlyDocumentContext(ReadContext delegate, JsonNode root) {
+        this.delegate = delegate;
+        this.root = root;
+    }
+
+    /**
+     * @return The shared root node; must not be modified or handed to callers
+     */
+    JsonNode root() {
+        return root;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T guard(Object value) {
+        return value instanceof ContainerNode ? (T) ((ContainerNode<?>) value).deepCopy() : (T) value;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Cached documents are read-only");
+    }
+
+    @Override
+    public Configuration configuration() {
+        return delegate.configuration();
+    }
+
+    @Override
+    public <T> T json() {
+        return guard(root);
+    }
+
+    @Override
+    public String jsonString() {
+        return delegate.jsonString();
+    }
+
+    @Override
+    public <T> T read(String path, Predicate... filters) {
+        return guard(delegate.read(path, filters));
+    }
+
+    @Override
+    public <T> T read(String path, Class<T> type, Predicate... filters) {
+        return guard(delegate.read(path, type, filters));
+    }
+
+    @Override
+    public <T> T read(JsonPath path) {
+        return guard(delegate.read(path));
+    }
+
+    @Override
+    public <T> T read(JsonPath path, Class<T> type) {
+        return guard(delegate.read(path, type));
+    }
+
+    @Override
+    public <T> T read(JsonPath path, TypeRef<T> typeRef) {
+        return guard(delegate.read(path, typeRef));
+    }
+
+    @Override
+    public <T> T read(String path, TypeRef<T> typeRef) {
+        return guard(delegate.read(path, typeRef));
+    }
+
+    @Override
+    public ReadContext limit(int maxResults) {
+        return new ReadOnlyDocumentContext(delegate.limit(maxResults), root);
+    }
+
+    @Override
+    public ReadContext withListeners(EvaluationListener... listeners) {
+        return new ReadOnlyDocumentContext(delegate.withListeners(listeners), root);
+    }
+
+    @Override
+    public DocumentContext set(String path, Object newValue, Predicate... filters) {
+        throw readOnly();
+    }
+
+    @Override
+    public DocumentContext set(JsonPath path, Object newValue) {
+        throw readOnly();
+    }
+
+    @Override
+    public DocumentContext map(String path, MapFunction mapFunction, Predicate... filters) {
+        throw readOnly();
+    }
+
+    @Override
+    public DocumentContext map(JsonPath path, MapFunction mapFunction) {
+        throw readOnly();
+    }
+
+    @Override
+    public DocumentContext delete(String path, Predicate... filters) {
+        throw readOnly();
+    }
+
+    @Override
+    public DocumentContext delete(JsonPath path) {
+        throw readOnly();
+    }
+
+    @Override
+    public DocumentContext add(String path, Object value, Predicate... filters) {
+        throw readOnly();
+    }
+
+    @Override
+    public DocumentContext add(JsonPath path, Object value) {
+        throw readOnly();
+    }
+
+    @Override
+    public DocumentContext put(String path, String key, Object value, Predicate... filters) {
+        throw readOnly();
+    }
+
+    @Override
+    public DocumentContext put(JsonPath path, String key, Object value) {
+        throw readOnly();
+    }
+
+    @Override
+    public DocumentContext renameKey(String path, String oldKeyName, String newKeyName, Predicate... filters) {
+        throw readOnly();
+    }
+
+    @Override
+    public DocumentContext renameKey(JsonPath path, String oldKeyName, String newKeyName) {
+        throw readOnly();
+    }
+}
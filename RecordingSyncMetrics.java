@@ -0,0 +1,151 @@
+package com.oniox.learn;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps sync measurements in memory: per stage, the batches, rows, bytes and time, plus a
+ * histogram of batch latencies in power-of-two microsecond buckets; and the mean and maximum
+ * queue depth. Counters are LongAdders, so recording from many threads does not contend.
+ *
+ * <pre>
+ * RecordingSyncMetrics metrics = new RecordingSyncMetrics();
+ * StreamingDataSync.builder()...metrics(metrics).build().sync();
+ * System.out.println(metrics.report());
+ * </pre>
+ */
+public final class RecordingSyncMetrics implements SyncMetrics {
+
+    // Bucket i counts latencies below 2^i microseconds; the last one everything above
+    private static final int BUCKETS = 32;
+
+    /**
+     * The measurements of one stage.
+     */
+    public static final class StageStats {
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        void record(int rows, long bytes, long nanos) {
+            this.batches.increment();
+            this.rows.add(rows);
+            this.bytes.add(bytes);
+            this.nanos.add(nanos);
+            long micros = nanos / 1000;
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            histogram.incrementAndGet(bucket);
+        }
+
+        public long batches() {
+            return batches.sum();
+        }
+
+        public long rows() {
+            return rows.sum();
+        }
+
+        public long bytes() {
+            return bytes.sum();
+        }
+
+        /**
+         * @return The total time spent in the stage
+         */
+        public long nanos() {
+            return nanos.sum();
+        }
+
+        /**
+         * @return Rows per second of time spent in the stage, or 0 if none was
+         */
+        public double rowsPerSecond() {
+            long nanos = nanos();
+            return nanos == 0 ? 0 : rows() * 1e9 / nanos;
+        }
+
+        /**
+         * @param percentile Between 0 and 100
+         * @return The upper bound, in microseconds, of the histogram bucket holding the percentile
+         *         batch latency, or 0 if no batch was recorded
+         */
+        public long latencyMicros(double percentile) {
+            long total = batches();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram.get(i);
+                if (seen >= Math.max(1, rank)) {
+                    return 1L << i;
+                }
+            }
+            return 1L << (BUCKETS - 1);
+        }
+    }
+
+    private final Map<Stage, StageStats> stages = new EnumMap<>(Stage.class);
+    private final LongAdder queueSamples = new LongAdder();
+    private final LongAdder queueDepthSum = new LongAdder();
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+
+    public RecordingSyncMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new StageStats());
+        }
+    }
+
+    @Override
+    public void recordBatch(Stage stage, int rows, long bytes, long nanos) {
+        stages.get(stage).record(rows, bytes, nanos);
+    }
+
+    @Override
+    public void recordQueueDepth(int depth) {
+        queueSamples.increment();
+        queueDepthSum.add(depth);
+        maxQueueDepth.accumulate(depth);
+    }
+
+    /**
+     * @return The measurements of a stage
+     */
+    public StageStats stage(Stage stage) {
+        return stages.get(stage);
+    }
+
+    /**
+     * @return The mean queue depth seen by the reader, or 0 if nothing was queued
+     */
+    public double meanQueueDepth() {
+        long samples = queueSamples.sum();
+        return samples == 0 ? 0 : (double) queueDepthSum.sum() / samples;
+    }
+
+    public long maxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return A table of the measurements, one line per stage
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder(String.format("%-10s %8s %10s %12s %12s %9s %9s %9s%n",
+                "stage", "batches", "rows", "MB", "rows/s", "p50 us", "p99 us", "max us"));
+        for (Map.Entry<Stage, StageStats> entry : stages.entrySet()) {
+            StageStats stats = entry.getValue();
+            report.append(String.format("%-10s %8d %10d %12.1f %12.0f %9d %9d %9d%n", entry.getKey(), stats.batches(),
+                    stats.rows(), stats.bytes() / 1e6, stats.rowsPerSecond(), stats.latencyMicros(50),
+                    stats.latencyMicros(99), stats.latencyMicros(100)));
+        }
+        return report.append(String.format("queue depth: mean %.1f, max %d%n", meanQueueDepth(), maxQueueDepth()))
+                .toString();
+    }
+}
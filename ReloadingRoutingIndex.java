@@ -0,0 +1,186 @@
+package com.oniox.learn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link RoutingIndex} kept current with a YAML file on disk.
+ * <p>
+ * The index in use sits in a volatile field. A reload parses and compiles a complete new index
+ * off to the side and then replaces the reference in one write, so lookups never wait for a
+ * reload and always see either the old index or the new one, never a mixture. A file that fails
+ * to parse or compile leaves the current index in place; the error is kept in
+ * {@link #lastError()}.
+ * <p>
+ * A daemon thread watches the file's directory and reloads once changes to the file have been
+ * quiet for {@code settle}, so an editor's several writes, or a write to a temporary file and a
+ * rename over the original, cause one reload. A reload that yields the configuration already in
+ * use keeps the current index.
+ *
+ * <pre>
+ * try (ReloadingRoutingIndex routing = ReloadingRoutingIndex.open(Path.of("gateways.yaml"))) {
+ *     RoutingIndex.Match match = routing.current().route("GET", requestUrl);
+ * }
+ * </pre>
+ */
+public final class ReloadingRoutingIndex implements AutoCloseable {
+
+    private static final Duration DEFAULT_SETTLE = Duration.ofMillis(100);
+
+    private final Path file;
+    private final long settleNanos;
+    private final WatchService watcher;
+    private volatile RoutingIndex current;
+    private volatile Exception lastError;
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private ReloadingRoutingIndex(Path file, Duration settle) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.settleNanos = settle.toNanos();
+        this.current = load();
+        this.watcher = FileSystems.getDefault().newWatchService();
+        try {
+            this.file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            watcher.close();
+            throw e;
+        }
+        Thread thread = new Thread(this::watch, "routing-index-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Loads the file and starts watching it, reloading 100 ms after changes stop.
+     *
+     * @param file The YAML configuration
+     * @return The index
+     * @throws IOException              If the file cannot be read or parsed
+     * @throws IllegalArgumentException If the configuration does not compile
+     */
+    public static ReloadingRoutingIndex open(Path file) throws IOException {
+        return open(file, DEFAULT_SETTLE);
+    }
+
+    /**
+     * Loads the file and starts watching it.
+     *
+     * @param file   The YAML configuration
+     * @param settle How long changes to the file must stop before it is reloaded
+     * @return The index
+     * @throws IOException              If the file cannot be read or parsed
+     * @throws IllegalArgumentException If the configuration does not compile
+     */
+    public static ReloadingRoutingIndex open(Path file, Duration settle) throws IOException {
+        if (settle.isNegative()) {
+            throw new IllegalArgumentException("Settle time cannot be negative");
+        }
+        return new ReloadingRoutingIndex(file, settle);
+    }
+
+    /**
+     * @return The index in use; hold on to it for a consistent view across several lookups
+     */
+    public RoutingIndex current() {
+        return current;
+    }
+
+    /**
+     * Reloads the file now.
+     *
+     * @return Whether the index was replaced; false if the file failed to load or had not changed
+     */
+    public synchronized boolean reload() {
+        RoutingIndex next;
+        try {
+            next = load();
+        } catch (IOException | RuntimeException e) {
+            lastError = e;
+            failures.increment();
+            return false;
+        }
+        lastError = null;
+        if (next.config().equals(current.config())) {
+            return false;
+        }
+        current = next;
+        reloads.increment();
+        return true;
+    }
+
+    /**
+     * @return Why the latest reload failed, or null if it succeeded
+     */
+    public Exception lastError() {
+        return lastError;
+    }
+
+    /**
+     * @return The number of times the index has been replaced
+     */
+    public long reloads() {
+        return reloads.sum();
+    }
+
+    /**
+     * @return The number of reloads that failed
+     */
+    public long failures() {
+        return failures.sum();
+    }
+
+    /**
+     * Stops watching the file. The current index stays usable.
+     */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+    }
+
+    private RoutingIndex load() throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return RoutingIndex.compile(ApiGatewayConfig.parse(in));
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!changed(watcher.take())) {
+                    continue;
+                }
+                // Wait for the writes to settle, taking further events as they come
+                WatchKey key;
+                while ((key = watcher.poll(settleNanos, TimeUnit.NANOSECONDS)) != null) {
+                    changed(key);
+                }
+                reload();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Closed
+        }
+    }
+
+    // Drains and resets the key; true if any of its events concern the file
+    private boolean changed(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,251 @@
+package com.oniox.learn;
+
+import com.oniox.learn.ApiGatewayConfig.ApiGateway;
+import com.oniox.learn.ApiGatewayConfig.Link;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable index of an {@link ApiGatewayConfig}, compiled once, in place of
+ * {@code ApiGatewayParser.getApiGatewayMap} and {@code getLinksByDisplayName}, which rebuild
+ * their maps with streams over the whole configuration on every call.
+ * <p>
+ * Gateways and links are found by name with one hash lookup. Requests are routed by HTTP
+ * action and URL through a trie of URL template segments per action, so the cost depends on
+ * the number of segments in the URL, not on the number of links. A URL is split into segments
+ * after dropping its scheme, query and fragment, and empty segments are ignored, so
+ * {@code https://api.example.com/users/} has the segments {@code api.example.com} and
+ * {@code users}. A template segment in braces, such as {@code {userId}}, matches any one
+ * segment; literal segments take precedence over it.
+ * <p>
+ * Where display names or route templates repeat, the first link in file order wins, as in
+ * {@code getLinksByDisplayName}. {@link ReloadingRoutingIndex} keeps an index current with a
+ * file on disk.
+ */
+public final class RoutingIndex {
+
+    /**
+     * A routed request.
+     *
+     * @param gateway   The gateway the link belongs to
+     * @param link      The link whose template matched
+     * @param variables The values of the template's variables, by name; unmodifiable
+     */
+    public record Match(ApiGateway gateway, Link link, Map<String, String> variables) {
+    }
+
+    /**
+     * A link at the end of a trie path.
+     */
+    private record Route(ApiGateway gateway, Link link, String[] variableNames) {
+    }
+
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<>(4);
+        Node variable;
+        Route route;
+    }
+
+    private final ApiGatewayConfig config;
+    private final Map<String, ApiGateway> gateways;
+    private final Map<String, Link> linksByDisplayName;
+    private final Map<String, Map<String, Link>> linksByGateway;
+    private final Map<String, Node> routes;
+    private final int linkCount;
+
+    private RoutingIndex(ApiGatewayConfig config) {
+        this.config = config;
+        Map<String, ApiGateway> gateways = new LinkedHashMap<>();
+        Map<String, Link> linksByDisplayName = new LinkedHashMap<>();
+        Map<String, Map<String, Link>> linksByGateway = new HashMap<>();
+        Map<String, Node> routes = new HashMap<>();
+        int linkCount = 0;
+        for (ApiGateway gateway : config.apiGateways()) {
+            if (gateways.putIfAbsent(gateway.name(), gateway) != null) {
+                throw new IllegalArgumentException("Duplicate gateway name: " + gateway.name());
+            }
+            Map<String, Link> byName = new LinkedHashMap<>();
+            for (Link link : gateway.links()) {
+                linkCount++;
+                if (link.displayName() != null) {
+                    linksByDisplayName.putIfAbsent(link.displayName(), link);
+                    byName.putIfAbsent(link.displayName(), link);
+                }
+                if (link.httpAction() != null && link.url() != null) {
+                    insert(routes.computeIfAbsent(link.httpAction().toUpperCase(Locale.ROOT), action -> new Node()),
+                            gateway, link);
+                }
+            }
+            linksByGateway.put(gateway.name(), Collections.unmodifiableMap(byName));
+        }
+        this.gateways = Collections.unmodifiableMap(gateways);
+        this.linksByDisplayName = Collections.unmodifiableMap(linksByDisplayName);
+        this.linksByGateway = linksByGateway;
+        this.routes = routes;
+        this.linkCount = linkCount;
+    }
+
+    /**
+     * Compiles a configuration.
+     *
+     * @param config The configuration
+     * @return The index
+     * @throws IllegalArgumentException If two gateways have the same name
+     */
+    public static RoutingIndex compile(ApiGatewayConfig config) {
+        return new RoutingIndex(config);
+    }
+
+    /**
+     * @return The configuration the index was compiled from
+     */
+    public ApiGatewayConfig config() {
+        return config;
+    }
+
+    /**
+     * @return The number of links in the configuration
+     */
+    public int linkCount() {
+        return linkCount;
+    }
+
+    /**
+     * @return The gateways by name, in file order; unmodifiable
+     */
+    public Map<String, ApiGateway> gateways() {
+        return gateways;
+    }
+
+    /**
+     * @return The first link with each display name across all gateways, in file order; unmodifiable
+     */
+    public Map<String, Link> linksByDisplayName() {
+        return linksByDisplayName;
+    }
+
+    /**
+     * @param name A gateway name
+     * @return The gateway, or null if there is none of that name
+     */
+    public ApiGateway gateway(String name) {
+        return gateways.get(name);
+    }
+
+    /**
+     * @param displayName A display name
+     * @return The first link with that display name in any gateway, or null if there is none
+     */
+    public Link link(String displayName) {
+        return linksByDisplayName.get(displayName);
+    }
+
+    /**
+     * @param gateway     A gateway name
+     * @param displayName A display name
+     * @return The gateway's first link with that display name, or null if there is none
+     */
+    public Link link(String gateway, String displayName) {
+        Map<String, Link> links = linksByGateway.get(gateway);
+        return links == null ? null : links.get(displayName);
+    }
+
+    /**
+     * Routes a request.
+     *
+     * @param httpAction The request's HTTP method; case is ignored
+     * @param url        The request's URL, with the same host (if any) as the templates
+     * @return The match, or null if no link's action and template match
+     */
+    public Match route(String httpAction, String url) {
+        Node root = routes.get(httpAction.toUpperCase(Locale.ROOT));
+        if (root == null) {
+            return null;
+        }
+        List<String> segments = segments(url);
+        String[] values = new String[segments.size()];
+        Route route = match(root, segments, 0, values, 0);
+        if (route == null) {
+            return null;
+        }
+        if (route.variableNames.length == 0) {
+            return new Match(route.gateway, route.link, Map.of());
+        }
+        Map<String, String> variables = new LinkedHashMap<>(route.variableNames.length * 2);
+        for (int i = 0; i < route.variableNames.length; i++) {
+            variables.put(route.variableNames[i], values[i]);
+        }
+        return new Match(route.gateway, route.link, Collections.unmodifiableMap(variables));
+    }
+
+    // Literal children first, then the variable child, backtracking on a dead end
+    private static Route match(Node node, List<String> segments, int index, String[] values, int captured) {
+        if (index == segments.size()) {
+            return node.route;
+        }
+        String segment = segments.get(index);
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            Route route = match(literal, segments, index + 1, values, captured);
+            if (route != null) {
+                return route;
+            }
+        }
+        if (node.variable != null) {
+            values[captured] = segment;
+            return match(node.variable, segments, index + 1, values, captured + 1);
+        }
+        return null;
+    }
+
+    private static void insert(Node root, ApiGateway gateway, Link link) {
+        Node node = root;
+        List<String> names = new ArrayList<>();
+        for (String segment : segments(link.url())) {
+            if (segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}') {
+                names.add(segment.substring(1, segment.length() - 1));
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+            } else {
+                node = node.literals.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        if (node.route == null) {
+            node.route = new Route(gateway, link, names.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * @return The URL's path segments, after the scheme and before any query or fragment
+     */
+    static List<String> segments(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = url.length();
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                end = i;
+            }
+        }
+        List<String> segments = new ArrayList<>(8);
+        int from = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || url.charAt(i) == '/') {
+                if (i > from) {
+                    segments.add(url.substring(from, i));
+                }
+                from = i + 1;
+            }
+        }
+        return segments;
+    }
+}
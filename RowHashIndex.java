@@ -0,0 +1,301 @@
+package com.oniox.learn;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A 64-bit hash of the synced content ({@code col1}, {@code col2}) of every target row, keyed by
+ * id, so a sync can drop rows whose content the target already holds before they reach the
+ * writer. Only new rows and rows whose content changed are then merged; a row whose
+ * {@code last_update} moved without a content change is skipped.
+ * <p>
+ * The index lets a sync read with an inclusive, overlapping watermark (see the
+ * {@code changeDetection} and {@code lookback} options of {@link StreamingDataSync} and
+ * {@link PartitionedDataSync}): rows sharing the boundary timestamp, or committed late with an
+ * earlier one, are read again but only written if they are new or changed.
+ * <p>
+ * The index describes the target, so it is either {@link #load loaded} from the target before
+ * the first sync of a process or starts empty, in which case the first sync merges everything
+ * it reads, as it would without an index. The syncs record rows only after their batch
+ * committed. Memory is about 24 bytes per target row. As with {@link LatestVersionIndex}, the
+ * table is split into stripes of parallel arrays, each guarded by its own StampedLock.
+ */
+public final class RowHashIndex {
+
+    /** Returned by {@link #hashOf} for unknown ids; {@link #hash} never returns it. */
+    public static final long NO_HASH = 0L;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * A hash table generation; replaced as a whole when the stripe grows. Slots whose hash is
+     * {@link #NO_HASH} are empty.
+     */
+    private static final class Table {
+        final int[] ids;
+        final long[] hashes;
+        final int mask;
+
+        Table(int capacity) {
+            ids = new int[capacity];
+            hashes = new long[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private static final class Stripe {
+        final StampedLock lock = new StampedLock();
+        volatile Table table = new Table(INITIAL_CAPACITY);
+        int size;
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    /**
+     * Creates an empty index with four stripes per available processor.
+     */
+    public RowHashIndex() {
+        int count = Integer.highestOneBit(Math.max(1, 4 * Runtime.getRuntime().availableProcessors() - 1)) << 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeShift = 32 - Integer.numberOfTrailingZeros(count);
+    }
+
+    /**
+     * Builds an index of a table's current content, streaming it with a forward-only cursor.
+     *
+     * @param dataSource The database holding the table, normally the sync target
+     * @param table      The table, with id, col1 and col2 columns
+     * @param fetchSize  The number of rows the cursor fetches per round trip
+     * @return The index
+     * @throws SQLException If the table cannot be read
+     */
+    public static RowHashIndex load(DataSource dataSource, String table, int fetchSize) throws SQLException {
+        RowHashIndex index = new RowHashIndex();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, col1, col2 FROM " + StreamingDataSync.identifier(table),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        index.put(rs.getInt(1), hash(rs.getString(2), rs.getString(3)));
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Hashes a row's synced content. Null and empty values hash differently, as do values that
+     * only differ in where col1 ends and col2 starts.
+     *
+     * @return A 64-bit hash, never {@link #NO_HASH}
+     */
+    public static long hash(String col1, String col2) {
+        long h = mix(0x9E3779B97F4A7C15L, col1);
+        h = mix(h, col2);
+        // Murmur3 finalizer, as FNV leaves the high bits poorly mixed
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h == NO_HASH ? 1 : h;
+    }
+
+    private static long mix(long h, String value) {
+        if (value == null) {
+            return (h ^ 0xFFFFFFFFFFL) * 0x100000001B3L;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        // A length terminator keeps ("ab", "c") apart from ("a", "bc")
+        return (h ^ (0x10000L + value.length())) * 0x100000001B3L;
+    }
+
+    /**
+     * @return The hash recorded for an id, or {@link #NO_HASH}
+     */
+    public long hashOf(int id) {
+        int spread = spread(id);
+        Stripe stripe = stripe(spread);
+        long stamp = stripe.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            long hash = probe(stripe.table, id, spread);
+            if (stripe.lock.validate(stamp)) {
+                return hash;
+            }
+        }
+        stamp = stripe.lock.readLock();
+        try {
+            return probe(stripe.table, id, spread);
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return true if the index holds this row's id with the same content
+     */
+    public boolean isUnchanged(SyncRecord record) {
+        return hashOf(record.id()) == hash(record.col1(), record.col2());
+    }
+
+    /**
+     * @return The rows of a batch that are new or changed; the batch itself if that is all of them
+     */
+    public List<SyncRecord> changedRows(List<SyncRecord> batch) {
+        List<SyncRecord> changed = null;
+        for (int i = 0; i < batch.size(); i++) {
+            SyncRecord record = batch.get(i);
+            if (isUnchanged(record)) {
+                if (changed == null) {
+                    changed = new ArrayList<>(batch.subList(0, i));
+                }
+            } else if (changed != null) {
+                changed.add(record);
+            }
+        }
+        return changed == null ? batch : changed;
+    }
+
+    /**
+     * Records rows as held by the target; call once they are committed.
+     */
+    public void record(List<SyncRecord> rows) {
+        for (SyncRecord record : rows) {
+            put(record.id(), hash(record.col1(), record.col2()));
+        }
+    }
+
+    /**
+     * Records the content hash of an id.
+     *
+     * @param id   The row id
+     * @param hash A hash from {@link #hash}
+     * @throws IllegalArgumentException If hash is {@link #NO_HASH}
+     */
+    public void put(int id, long hash) {
+        if (hash == NO_HASH) {
+            throw new IllegalArgumentException("Not a row hash: " + hash);
+        }
+        int spread = spread(id);
+        Stripe stripe = stripe(spread);
+        long stamp = stripe.lock.writeLock();
+        try {
+            Table table = stripe.table;
+            int slot = find(table, id, spread);
+            if (table.hashes[slot] == NO_HASH) {
+                if (++stripe.size > table.hashes.length * 3 / 4) {
+                    table = grow(stripe);
+                    slot = find(table, id, spread);
+                }
+                table.ids[slot] = id;
+            }
+            table.hashes[slot] = hash;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Forgets every row, e.g. when the target may no longer match what was recorded.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.writeLock();
+            try {
+                stripe.table = new Table(INITIAL_CAPACITY);
+                stripe.size = 0;
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * @return The number of ids in the index
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                size += stripe.size;
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    private static int spread(int id) {
+        // The high bits pick the stripe, the low bits the slot
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Stripe stripe(int spread) {
+        // A long shift so a single stripe (shift 32) yields 0
+        return stripes[(int) ((spread & 0xFFFFFFFFL) >>> stripeShift)];
+    }
+
+    /**
+     * Looks an id up. Safe to run concurrently with a writer, as the probe is bounded and the
+     * caller discards the result unless the stamp validates.
+     */
+    private static long probe(Table table, int id, int spread) {
+        int mask = table.mask;
+        for (int i = 0, slot = spread & mask; i <= mask; i++, slot = (slot + 1) & mask) {
+            long hash = table.hashes[slot];
+            if (hash == NO_HASH) {
+                return NO_HASH;
+            }
+            if (table.ids[slot] == id) {
+                return hash;
+            }
+        }
+        return NO_HASH;
+    }
+
+    /**
+     * @return The slot holding the id, or the empty slot where it belongs; called under the write lock
+     */
+    private static int find(Table table, int id, int spread) {
+        int slot = spread & table.mask;
+        while (table.hashes[slot] != NO_HASH && table.ids[slot] != id) {
+            slot = (slot + 1) & table.mask;
+        }
+        return slot;
+    }
+
+    private static Table grow(Stripe stripe) {
+        Table old = stripe.table;
+        Table table = new Table(old.hashes.length * 2);
+        for (int i = 0; i < old.hashes.length; i++) {
+            if (old.hashes[i] != NO_HASH) {
+                int slot = find(table, old.ids[i], spread(old.ids[i]));
+                table.ids[slot] = old.ids[i];
+                table.hashes[slot] = old.hashes[i];
+            }
+        }
+        stripe.table = table;
+        return table;
+    }
+}
@@ -0,0 +1,603 @@
+package com.oniox.learn;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Copies rows changed since the target's newest {@code last_update} from the source table to the
+ * target table, in constant memory whatever the size of the delta. This is the streaming
+ * counterpart of {@code DataSyncService.syncData}, which holds the whole delta in a list and
+ * sends each 500 rows as one literal-valued MERGE statement.
+ * <p>
+ * A reader thread walks a forward-only, read-only cursor over the source with the configured
+ * fetch size and hands batches to the calling thread through a bounded queue, so reading and
+ * writing overlap and at most {@code (queueCapacity + 2) * batchSize} rows are in memory.
+ * The writer works in one of two modes:
+ * <ul>
+ *     <li>Batched (default): one parameterized single-row MERGE, executed as a JDBC batch per
+ *     {@code batchSize} rows and committed per batch. The statement text never changes, so the
+ *     server parses it once.</li>
+ *     <li>Staged, when a staging table is set: rows are batch-inserted into the staging table,
+ *     then merged into the target with one set-based MERGE. The staging table must have the
+ *     target's four columns and is emptied before and after the run.</li>
+ * </ul>
+ * Source rows are read and committed in {@code (last_update, id)} order, and the watermark is
+ * the target's newest {@code last_update} together with the highest {@code id} at it. By default
+ * rows after that key are read, so a batched run that fails part-way, even in the middle of rows
+ * sharing one {@code last_update}, is resumed by the next run after its last committed row.
+ * Rows committed later with the watermark's own timestamp and a lower {@code id} are missed.
+ * <p>
+ * With a {@link RowHashIndex} for change detection,
+ * rows at or after the watermark minus the lookback are read instead, and rows whose content
+ * the index says the target already holds are dropped before the writer. Rows skipped because
+ * only their {@code last_update} changed do not move the target's watermark, so later runs read
+ * them again (and skip them again) until a newer row is written.
+ *
+ * <pre>
+ * StreamingDataSync sync = StreamingDataSync.builder()
+ *         .source(oracleDataSource)
+ *         .target(sqlServerDataSource)
+ *         .fetchSize(5_000)
+ *         .build();
+ * StreamingDataSync.Result result = sync.sync();
+ * </pre>
+ */
+public final class StreamingDataSync {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_#][A-Za-z0-9_#$]*(\\.[A-Za-z_][A-Za-z0-9_#$]*)*");
+    // The using clause of a MERGE of one parameterized row
+    static final String SINGLE_ROW_SOURCE = "(VALUES (?, ?, ?, ?)) AS source (id, col1, col2, last_update)";
+    // Marks the end of the source rows in the queue; compared by identity
+    private static final List<SyncRecord> END = new ArrayList<>(0);
+
+    private final DataSource source;
+    private final DataSource target;
+    private final String sourceTable;
+    private final String targetTable;
+    private final String stagingTable;
+    private final int fetchSize;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final RowHashIndex index;
+    private final Duration lookback;
+    private final SyncMetrics metrics;
+
+    private StreamingDataSync(Builder builder) {
+        this.source = builder.source;
+        this.target = builder.target;
+        this.sourceTable = builder.sourceTable;
+        this.targetTable = builder.targetTable;
+        this.stagingTable = builder.stagingTable;
+        this.fetchSize = builder.fetchSize;
+        this.batchSize = builder.batchSize;
+        this.queueCapacity = builder.queueCapacity;
+        this.index = builder.index;
+        this.lookback = builder.lookback;
+        this.metrics = builder.metrics;
+    }
+
+    /**
+     * @return A new builder for a StreamingDataSync
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The outcome of a run.
+     *
+     * @param rowsRead    The number of changed rows read from the source
+     * @param rowsWritten The number of rows merged into the target, less than rowsRead when change
+     *                    detection dropped unchanged rows
+     * @param watermark   The newest {@code last_update} committed to the target by this run, or the
+     *                    starting watermark if that is newer or nothing was written
+     */
+    public record Result(long rowsRead, long rowsWritten, Timestamp watermark) {
+    }
+
+    /**
+     * Runs one synchronization.
+     *
+     * @return The number of rows read and written
+     * @throws SQLException If reading or writing fails. In batched mode the batches committed before
+     *                      the failure stay committed and the next run reads on from the last of them;
+     *                      in staged mode nothing reaches the target.
+     */
+    public Result sync() throws SQLException {
+        Watermark watermark = fetchWatermark();
+        BlockingQueue<List<SyncRecord>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Reader reader = new Reader(watermark, queue);
+        Thread readerThread = new Thread(reader, "datasync-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+        boolean finished = false;
+        try (Connection connection = target.getConnection()) {
+            connection.setAutoCommit(false);
+            Written written = stagingTable == null ? writeBatched(connection, queue) : writeStaged(connection, queue);
+            finished = true;
+            rethrow(reader.failure);
+            Timestamp latest = written.latest() != null && written.latest().after(watermark.lastUpdate())
+                    ? written.latest() : watermark.lastUpdate();
+            return new Result(reader.rowsRead, written.rows(), latest);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for source rows", e);
+        } finally {
+            if (!finished) {
+                readerThread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return The target's newest {@code last_update} and the highest {@code id} at it
+     */
+    private Watermark fetchWatermark() throws SQLException {
+        try (Connection connection = target.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT last_update, MAX(id) FROM " + targetTable
+                     + " WHERE last_update = (SELECT MAX(last_update) FROM " + targetTable + ") GROUP BY last_update")) {
+            return rs.next() ? new Watermark(rs.getTimestamp(1), rs.getInt(2)) : new Watermark(new Timestamp(0), Integer.MIN_VALUE);
+        }
+    }
+
+    private static void rethrow(Throwable failure) throws SQLException {
+        if (failure instanceof SQLException e) {
+            throw e;
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (failure instanceof Error e) {
+            throw e;
+        }
+    }
+
+    private Written writeBatched(Connection connection, BlockingQueue<List<SyncRecord>> queue)
+            throws SQLException, InterruptedException {
+        long written = 0;
+        Timestamp latest = null;
+        try (PreparedStatement merge = connection.prepareStatement(mergeSql(targetTable, SINGLE_ROW_SOURCE))) {
+            for (List<SyncRecord> batch = queue.take(); batch != END; batch = queue.take()) {
+                List<SyncRecord> changed = write(connection, merge, batch, false);
+                if (index != null) {
+                    index.record(changed);
+                }
+                written += changed.size();
+                latest = latest(changed, latest);
+            }
+        } catch (SQLException e) {
+            rollback(connection, e);
+            throw e;
+        }
+        return new Written(written, latest);
+    }
+
+    private Written writeStaged(Connection connection, BlockingQueue<List<SyncRecord>> queue)
+            throws SQLException, InterruptedException {
+        long written = 0;
+        Timestamp latest = null;
+        // Staged rows reach the target only with the MERGE, so they are recorded in the index after it
+        StagedHashes staged = index != null ? new StagedHashes() : null;
+        try (Statement statement = connection.createStatement();
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO " + stagingTable + " (id, col1, col2, last_update) VALUES (?, ?, ?, ?)")) {
+            statement.execute("TRUNCATE TABLE " + stagingTable);
+            connection.commit();
+            for (List<SyncRecord> batch = queue.take(); batch != END; batch = queue.take()) {
+                List<SyncRecord> changed = write(connection, insert, batch, true);
+                if (staged != null) {
+                    staged.add(changed);
+                }
+                written += changed.size();
+                latest = latest(changed, latest);
+            }
+            long start = System.nanoTime();
+            statement.executeUpdate(mergeSql(targetTable, stagingTable + " AS source"));
+            statement.execute("TRUNCATE TABLE " + stagingTable);
+            connection.commit();
+            if (staged != null) {
+                staged.recordIn(index);
+            }
+            metrics.recordBatch(SyncMetrics.Stage.EXECUTE, (int) Math.min(written, Integer.MAX_VALUE), 0,
+                    System.nanoTime() - start);
+        } catch (SQLException e) {
+            rollback(connection, e);
+            throw e;
+        }
+        return new Written(written, latest);
+    }
+
+    // Rows arrive in last_update order, so the last written row is the newest
+    private static Timestamp latest(List<SyncRecord> written, Timestamp latest) {
+        return written.isEmpty() ? latest : written.get(written.size() - 1).lastUpdate();
+    }
+
+    /**
+     * Drops unchanged rows from a batch, then executes and commits the rest.
+     *
+     * @param staging true if the statement loads the staging table, which is timed as part of
+     *                BUILD so that EXECUTE counts each row once, in the MERGE
+     * @return The rows written
+     */
+    private List<SyncRecord> write(Connection connection, PreparedStatement statement, List<SyncRecord> batch,
+                                   boolean staging) throws SQLException {
+        long start = System.nanoTime();
+        List<SyncRecord> changed = batch;
+        if (index != null) {
+            changed = index.changedRows(batch);
+            long filtered = System.nanoTime();
+            metrics.recordBatch(SyncMetrics.Stage.TRANSFORM, changed.size(), bytes(changed), filtered - start);
+            start = filtered;
+        }
+        if (changed.isEmpty()) {
+            return changed;
+        }
+        long bytes = bind(statement, changed);
+        long bound = System.nanoTime();
+        statement.executeBatch();
+        connection.commit();
+        long executed = System.nanoTime();
+        if (staging) {
+            metrics.recordBatch(SyncMetrics.Stage.BUILD, changed.size(), bytes, executed - start);
+        } else {
+            metrics.recordBatch(SyncMetrics.Stage.BUILD, changed.size(), bytes, bound - start);
+            metrics.recordBatch(SyncMetrics.Stage.EXECUTE, changed.size(), bytes, executed - bound);
+        }
+        return changed;
+    }
+
+    /**
+     * Adds each row of a batch to a statement's batch.
+     *
+     * @return The estimated size of the rows
+     */
+    static long bind(PreparedStatement statement, List<SyncRecord> batch) throws SQLException {
+        long bytes = 0;
+        for (SyncRecord record : batch) {
+            statement.setInt(1, record.id());
+            statement.setString(2, record.col1());
+            statement.setString(3, record.col2());
+            statement.setTimestamp(4, record.lastUpdate());
+            statement.addBatch();
+            bytes += record.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    static long bytes(List<SyncRecord> rows) {
+        long bytes = 0;
+        for (SyncRecord record : rows) {
+            bytes += record.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    static void rollback(Connection connection, SQLException cause) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Builds the upsert of the four synced columns into a table, reading from {@code using},
+     * which must expose the columns under the alias {@code source}.
+     */
+    static String mergeSql(String targetTable, String using) {
+        return "MERGE INTO " + targetTable + " AS target"
+                + " USING " + using
+                + " ON target.id = source.id"
+                + " WHEN MATCHED THEN UPDATE SET col1 = source.col1, col2 = source.col2, last_update = source.last_update"
+                + " WHEN NOT MATCHED THEN INSERT (id, col1, col2, last_update)"
+                + " VALUES (source.id, source.col1, source.col2, source.last_update);";
+    }
+
+    static Timestamp minus(Timestamp timestamp, Duration duration) {
+        return duration.isZero() ? timestamp : Timestamp.from(timestamp.toInstant().minus(duration));
+    }
+
+    /**
+     * @return The name, if it is a plain or qualified identifier safe to splice into SQL
+     * @throws IllegalArgumentException If it is not
+     */
+    static String identifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Not a table name: " + name);
+        }
+        return name;
+    }
+
+    /**
+     * The ids and content hashes of the rows of a staged run, 12 bytes a row, held until the
+     * MERGE commits.
+     */
+    private static final class StagedHashes {
+        private int[] ids = new int[1024];
+        private long[] hashes = new long[1024];
+        private int size;
+
+        void add(List<SyncRecord> rows) {
+            if (size + rows.size() > ids.length) {
+                int capacity = Math.max(ids.length * 2, size + rows.size());
+                ids = Arrays.copyOf(ids, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+            }
+            for (SyncRecord record : rows) {
+                ids[size] = record.id();
+                hashes[size++] = RowHashIndex.hash(record.col1(), record.col2());
+            }
+        }
+
+        void recordIn(RowHashIndex index) {
+            for (int i = 0; i < size; i++) {
+                index.put(ids[i], hashes[i]);
+            }
+        }
+    }
+
+    /**
+     * What a writer committed: the number of rows and the newest {@code last_update} among them.
+     */
+    private record Written(long rows, Timestamp latest) {
+    }
+
+    /**
+     * The key of the newest row in the target.
+     */
+    private record Watermark(Timestamp lastUpdate, int id) {
+    }
+
+    /**
+     * Streams changed source rows into the queue in batches, ending with {@link #END}.
+     */
+    private final class Reader implements Runnable {
+        private final Watermark watermark;
+        private final BlockingQueue<List<SyncRecord>> queue;
+        volatile long rowsRead;
+        // Set before END is queued
+        volatile Throwable failure;
+
+        Reader(Watermark watermark, BlockingQueue<List<SyncRecord>> queue) {
+            this.watermark = watermark;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            String query = "SELECT id, col1, col2, last_update FROM " + sourceTable
+                    + (index != null ? " WHERE last_update >= ?" : " WHERE last_update >= ? AND (last_update > ? OR id > ?)")
+                    + " ORDER BY last_update, id";
+            try (Connection connection = source.getConnection()) {
+                connection.setReadOnly(true);
+                // Some drivers only honour the fetch size outside auto-commit
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement(query,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    statement.setFetchSize(fetchSize);
+                    if (index != null) {
+                        statement.setTimestamp(1, minus(watermark.lastUpdate(), lookback));
+                    } else {
+                        // Keyset (last_update, id) > watermark, written so an index on last_update applies
+                        statement.setTimestamp(1, watermark.lastUpdate());
+                        statement.setTimestamp(2, watermark.lastUpdate());
+                        statement.setInt(3, watermark.id());
+                    }
+                    long start = System.nanoTime();
+                    try (ResultSet rs = statement.executeQuery()) {
+                        List<SyncRecord> batch = new ArrayList<>(batchSize);
+                        long count = 0;
+                        long bytes = 0;
+                        while (rs.next()) {
+                            SyncRecord record = new SyncRecord(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getTimestamp(4));
+                            batch.add(record);
+                            bytes += record.estimatedBytes();
+                            if (batch.size() == batchSize) {
+                                metrics.recordBatch(SyncMetrics.Stage.FETCH, batch.size(), bytes, System.nanoTime() - start);
+                                count += handOff(batch);
+                                batch = new ArrayList<>(batchSize);
+                                bytes = 0;
+                                start = System.nanoTime();
+                            }
+                        }
+                        if (!batch.isEmpty()) {
+                            metrics.recordBatch(SyncMetrics.Stage.FETCH, batch.size(), bytes, System.nanoTime() - start);
+                            count += handOff(batch);
+                        }
+                        rowsRead = count;
+                    }
+                } finally {
+                    connection.rollback();
+                }
+            } catch (SQLException | RuntimeException | Error e) {
+                // The writer rethrows it once it takes END
+                failure = e;
+            } catch (InterruptedException e) {
+                // The writer failed and gave up on the remaining rows
+                return;
+            }
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                // The writer is gone
+            }
+        }
+
+        private int handOff(List<SyncRecord> batch) throws InterruptedException {
+            queue.put(batch);
+            metrics.recordQueueDepth(queue.size());
+            return batch.size();
+        }
+    }
+
+    /**
+     * Builder for {@link StreamingDataSync}.
+     */
+    public static final class Builder {
+
+        private DataSource source;
+        private DataSource target;
+        private String sourceTable = "source_table";
+        private String targetTable = "target_table";
+        private String stagingTable;
+        private int fetchSize = 1000;
+        private int batchSize = 500;
+        private int queueCapacity = 4;
+        private RowHashIndex index;
+        private Duration lookback = Duration.ZERO;
+        private SyncMetrics metrics = SyncMetrics.NONE;
+
+        private Builder() {
+        }
+
+        /**
+         * @param source The database to read changed rows from; required
+         * @return This builder
+         */
+        public Builder source(DataSource source) {
+            this.source = source;
+            return this;
+        }
+
+        /**
+         * @param target The database to merge rows into; required
+         * @return This builder
+         */
+        public Builder target(DataSource target) {
+            this.target = target;
+            return this;
+        }
+
+        /**
+         * @param sourceTable The table to read (default source_table)
+         * @return This builder
+         * @throws IllegalArgumentException If sourceTable is not a plain or qualified identifier
+         */
+        public Builder sourceTable(String sourceTable) {
+            this.sourceTable = identifier(sourceTable);
+            return this;
+        }
+
+        /**
+         * @param targetTable The table to merge into (default target_table)
+         * @return This builder
+         * @throws IllegalArgumentException If targetTable is not a plain or qualified identifier
+         */
+        public Builder targetTable(String targetTable) {
+            this.targetTable = identifier(targetTable);
+            return this;
+        }
+
+        /**
+         * @param stagingTable A table to load rows into before one set-based MERGE; by default
+         *                     rows are merged batch by batch
+         * @return This builder
+         * @throws IllegalArgumentException If stagingTable is not a plain or qualified identifier
+         */
+        public Builder stagingTable(String stagingTable) {
+            this.stagingTable = identifier(stagingTable);
+            return this;
+        }
+
+        /**
+         * @param fetchSize The number of rows the source cursor fetches per round trip (default 1000)
+         * @return This builder
+         * @throws IllegalArgumentException If fetchSize is not positive
+         */
+        public Builder fetchSize(int fetchSize) {
+            if (fetchSize <= 0) {
+                throw new IllegalArgumentException("Fetch size must be positive");
+            }
+            this.fetchSize = fetchSize;
+            return this;
+        }
+
+        /**
+         * @param batchSize The number of rows per JDBC batch and per commit (default 500)
+         * @return This builder
+         * @throws IllegalArgumentException If batchSize is not positive
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("Batch size must be positive");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param queueCapacity The number of batches read ahead of the writer (default 4)
+         * @return This builder
+         * @throws IllegalArgumentException If queueCapacity is not positive
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("Queue capacity must be positive");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param index The content of the target rows, used to drop unchanged rows and to read from
+         *              the watermark inclusively; by default every row read is merged
+         * @return This builder
+         */
+        public Builder changeDetection(RowHashIndex index) {
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * @param lookback How far before the watermark to read again, for source transactions that
+         *                 commit rows with a timestamp older than rows already synced (default none);
+         *                 requires change detection
+         * @return This builder
+         * @throws IllegalArgumentException If lookback is negative
+         */
+        public Builder lookback(Duration lookback) {
+            if (lookback.isNegative()) {
+                throw new IllegalArgumentException("Lookback cannot be negative");
+            }
+            this.lookback = lookback;
+            return this;
+        }
+
+        /**
+         * @param metrics Receives per-stage batch measurements and queue depths (default none)
+         * @return This builder
+         */
+        public Builder metrics(SyncMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @return The configured sync
+         * @throws IllegalStateException If the source or target is missing, or a lookback is set
+         *                               without change detection
+         */
+        public StreamingDataSync build() {
+            if (source == null || target == null) {
+                throw new IllegalStateException("Both a source and a target are required");
+            }
+            if (!lookback.isZero() && index == null) {
+                throw new IllegalStateException("A lookback requires change detection");
+            }
+            return new StreamingDataSync(this);
+        }
+    }
+}
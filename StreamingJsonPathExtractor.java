@@ -0,0 +1,610 @@
+package com.oniox.learn;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.InvalidJsonException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts a fixed set of JsonPath expressions from a document in a single pass over
+ * Jackson's token stream, without building a tree for the whole document.
+ * <p>
+ * Streaming is supported for definite paths made of child fields and array indices,
+ * plus {@code [*]} / {@code .*} wildcards. Subtrees that no path refers to are skipped
+ * token by token, and when every requested value is a definite path the parse stops as
+ * soon as all of them have been found (the rest of the document is not validated, unless the
+ * extractor is {@link #validating()}).
+ * <p>
+ * If any path in the set cannot be streamed (filters, deep scans, functions, slices,
+ * negative indices, unions) the whole set is evaluated on a tree-based DocumentContext
+ * instead, so results are the same either way: definite paths yield a single value or
+ * null, wildcard paths yield a (possibly empty) list. Objects and arrays are returned
+ * as {@code Map}/{@code List}.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class StreamingJsonPathExtractor {
+
+    private static final int[] NO_TARGETS = new int[0];
+
+    private final CompiledPaths paths;
+    private final String[] names;
+    private final boolean[] indefinite;
+    private final Node root;
+    private final boolean validate;
+
+    /**
+     * Creates an extractor for a precompiled set of paths.
+     *
+     * @param paths The named paths to extract
+     */
+    public StreamingJsonPathExtractor(CompiledPaths paths) {
+        this.validate = false;
+        this.paths = paths;
+        this.names = paths.names().toArray(new String[0]);
+        this.indefinite = new boolean[names.length];
+
+        Node trie = new Node();
+        for (int i = 0; i < names.length; i++) {
+            List<Object> segments = parseSegments(paths.get(names[i]).getPath());
+            if (segments == null) {
+                trie = null;
+                break;
+            }
+            indefinite[i] = segments.contains(Wildcard.INSTANCE);
+            trie.add(segments, 0, i);
+        }
+        this.root = trie;
+    }
+
+    private StreamingJsonPathExtractor(StreamingJsonPathExtractor extractor) {
+        this.paths = extractor.paths;
+        this.names = extractor.names;
+        this.indefinite = extractor.indefinite;
+        this.root = extractor.root;
+        this.validate = true;
+    }
+
+    /**
+     * Returns an extractor for the same paths that parses every document to its end, so a
+     * truncated document, or one followed by anything but whitespace, is rejected even when all
+     * requested values were found before the problem.
+     *
+     * @return The validating extractor; this one if it already validates
+     */
+    public StreamingJsonPathExtractor validating() {
+        return validate ? this : new StreamingJsonPathExtractor(this);
+    }
+
+    /**
+     * Compiles the given name-to-path map and creates an extractor for it.
+     *
+     * @param namedPaths The paths to extract, keyed by name
+     * @return A new extractor
+     */
+    public static StreamingJsonPathExtractor of(Map<String, String> namedPaths) {
+        return new StreamingJsonPathExtractor(CompiledPaths.of(namedPaths));
+    }
+
+    /**
+     * @return true if the path set is evaluated on the token stream, false if it falls back to a tree
+     */
+    public boolean isStreamable() {
+        return root != null;
+    }
+
+    /**
+     * Extracts all paths from a JSON string.
+     *
+     * @param json The JSON string
+     * @return The values keyed by path name, in declaration order
+     * @throws IllegalArgumentException If the JSON string is null or empty
+     * @throws InvalidJsonException If the JSON is invalid
+     */
+    public Map<String, Object> extract(String json) {
+        if (json == null || json.isEmpty()) {
+            throw new IllegalArgumentException("JSON string cannot be null or empty");
+        }
+        if (root == null && !validate) {
+            return paths.readAll(JsonPathUtil.parseJson(json));
+        }
+        try (JsonParser parser = JsonCore.FACTORY.createParser(json)) {
+            return read(parser);
+        } catch (IOException e) {
+            throw new InvalidJsonException(e);
+        }
+    }
+
+    /**
+     * Extracts all paths from UTF-8 encoded JSON bytes.
+     *
+     * @param json The JSON bytes
+     * @return The values keyed by path name, in declaration order
+     * @throws IllegalArgumentException If the byte array is null or empty
+     * @throws InvalidJsonException If the JSON is invalid
+     */
+    public Map<String, Object> extract(byte[] json) {
+        if (json == null || json.length == 0) {
+            throw new IllegalArgumentException("JSON bytes cannot be null or empty");
+        }
+        return extract(json, 0, json.length);
+    }
+
+    /**
+     * Extracts all paths from a slice of UTF-8 encoded JSON bytes.
+     *
+     * @param json The buffer holding the JSON bytes
+     * @param offset The offset of the first byte of the document
+     * @param length The number of bytes in the document
+     * @return The values keyed by path name, in declaration order
+     * @throws InvalidJsonException If the JSON is invalid
+     */
+    public Map<String, Object> extract(byte[] json, int offset, int length) {
+        if (root == null && !validate) {
+            return paths.readAll(JsonPathUtil.parseJson(json, offset, length));
+        }
+        try (JsonParser parser = JsonCore.FACTORY.createParser(json, offset, length)) {
+            return read(parser);
+        } catch (IOException e) {
+            throw new InvalidJsonException(e);
+        }
+    }
+
+    /**
+     * Extracts all paths from a stream of UTF-8 encoded JSON.
+     *
+     * @param json The stream to read the JSON from
+     * @return The values keyed by path name, in declaration order
+     * @throws InvalidJsonException If the JSON is invalid or cannot be read
+     */
+    public Map<String, Object> extract(InputStream json) {
+        if (json == null) {
+            throw new IllegalArgumentException("JSON stream cannot be null");
+        }
+        if (root == null && !validate) {
+            return paths.readAll(JsonPathUtil.parseJson(json));
+        }
+        try (JsonParser parser = JsonCore.FACTORY.createParser(json)) {
+            return read(parser);
+        } catch (IOException e) {
+            throw new InvalidJsonException(e);
+        }
+    }
+
+    /**
+     * Extracts all paths from the remaining bytes of a buffer holding UTF-8 encoded JSON.
+     * The buffer's position is not modified.
+     *
+     * @param json The buffer holding the JSON bytes
+     * @return The values keyed by path name, in declaration order
+     * @throws InvalidJsonException If the JSON is invalid
+     */
+    public Map<String, Object> extract(ByteBuffer json) {
+        if (json == null || !json.hasRemaining()) {
+            throw new IllegalArgumentException("JSON buffer cannot be null or empty");
+        }
+        if (json.hasArray()) {
+            return extract(json.array(), json.arrayOffset() + json.position(), json.remaining());
+        }
+        return extract(new ByteBufferInputStream(json.duplicate()));
+    }
+
+    private Map<String, Object> read(JsonParser parser) throws IOException {
+        if (root != null) {
+            return stream(parser);
+        }
+        // Only a validating extractor builds the tree here, to check what follows it
+        JsonNode node = JsonCore.TREE_READER.readTree(parser);
+        if (node == null) {
+            throw new InvalidJsonException("No JSON content found");
+        }
+        expectEnd(parser);
+        return paths.readAll(JsonCore.PARSE_CONTEXT.parse((Object) node));
+    }
+
+    private static void expectEnd(JsonParser parser) throws IOException {
+        if (parser.nextToken() != null) {
+            throw new InvalidJsonException("Unexpected content after the JSON document at byte "
+                    + parser.currentTokenLocation().getByteOffset());
+        }
+    }
+
+    private Map<String, Object> stream(JsonParser parser) throws IOException {
+        State state = new State(names.length, indefinite, validate);
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new InvalidJsonException("No JSON content found");
+        }
+        walk(parser, token, Collections.singletonList(root), state);
+        if (validate) {
+            expectEnd(parser);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            result.put(names[i], state.values[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Walks the value starting at the current token, following only the trie nodes in {@code active}.
+     * Values that are themselves the target of a path are materialized; anything else is either
+     * descended into or skipped.
+     */
+    private static void walk(JsonParser parser, JsonToken token, List<Node> active, State state) throws IOException {
+        for (Node node : active) {
+            if (node.targets.length > 0) {
+                Object value = materialize(parser, token);
+                for (Node n : active) {
+                    deliver(n, value, state);
+                }
+                return;
+            }
+        }
+
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+                List<Node> next = childrenFor(active, name, -1);
+                if (next.isEmpty()) {
+                    parser.skipChildren();
+                } else {
+                    walk(parser, valueToken, next, state);
+                    if (state.isComplete()) {
+                        return;
+                    }
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            JsonToken elementToken;
+            while ((elementToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (elementToken == null) {
+                    throw new InvalidJsonException("Unexpected end of JSON input");
+                }
+                List<Node> next = childrenFor(active, null, index++);
+                if (next.isEmpty()) {
+                    parser.skipChildren();
+                } else {
+                    walk(parser, elementToken, next, state);
+                    if (state.isComplete()) {
+                        return;
+                    }
+                }
+            }
+        }
+        // Scalars cannot contain any of the remaining path segments
+    }
+
+    private static List<Node> childrenFor(List<Node> active, String field, int index) {
+        List<Node> next = null;
+        for (Node node : active) {
+            Node child = field != null
+                    ? (node.fields == null ? null : node.fields.get(field))
+                    : (node.indices == null ? null : node.indices.get(index));
+            if (child != null) {
+                (next == null ? next = new ArrayList<>(2) : next).add(child);
+            }
+            if (node.wildcard != null) {
+                (next == null ? next = new ArrayList<>(2) : next).add(node.wildcard);
+            }
+        }
+        return next == null ? Collections.emptyList() : next;
+    }
+
+    /**
+     * Records a materialized value for the node's own targets and resolves any deeper
+     * paths below the node against the materialized value.
+     */
+    private static void deliver(Node node, Object value, State state) {
+        for (int target : node.targets) {
+            state.record(target, value);
+        }
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                Node child = node.fields == null ? null : node.fields.get(entry.getKey());
+                if (child != null) {
+                    deliver(child, entry.getValue(), state);
+                }
+                if (node.wildcard != null) {
+                    deliver(node.wildcard, entry.getValue(), state);
+                }
+            }
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            for (int i = 0; i < list.size(); i++) {
+                Node child = node.indices == null ? null : node.indices.get(i);
+                if (child != null) {
+                    deliver(child, list.get(i), state);
+                }
+                if (node.wildcard != null) {
+                    deliver(node.wildcard, list.get(i), state);
+                }
+            }
+        }
+    }
+
+    private static Object materialize(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT: {
+                Map<String, Object> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    map.put(name, materialize(parser, parser.nextToken()));
+                }
+                return map;
+            }
+            case START_ARRAY: {
+                List<Object> list = new ArrayList<>();
+                JsonToken elementToken;
+                while ((elementToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (elementToken == null) {
+                        throw new InvalidJsonException("Unexpected end of JSON input");
+                    }
+                    list.add(materialize(parser, elementToken));
+                }
+                return list;
+            }
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.getEmbeddedObject();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Splits a normalized JsonPath (as returned by {@code JsonPath.getPath()}, e.g.
+     * {@code $['store']['book'][0]['title']}) into field names, indices and wildcards.
+     * Dot notation is accepted as well.
+     *
+     * @return The segments, or null if the path contains anything that cannot be streamed
+     */
+    static List<Object> parseSegments(String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '$') {
+            return null;
+        }
+        List<Object> segments = new ArrayList<>();
+        int i = 1;
+        int length = path.length();
+        while (i < length) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                if (i + 1 >= length || path.charAt(i + 1) == '.') {
+                    return null; // deep scan
+                }
+                if (path.charAt(i + 1) == '*') {
+                    segments.add(Wildcard.INSTANCE);
+                    i += 2;
+                    continue;
+                }
+                int end = i + 1;
+                while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    char ch = path.charAt(end);
+                    if (ch == '(' || ch == ')' || ch == '*' || ch == '?' || ch == '@') {
+                        return null; // function or filter
+                    }
+                    end++;
+                }
+                if (end == i + 1) {
+                    return null;
+                }
+                segments.add(path.substring(i + 1, end));
+                i = end;
+            } else if (c == '[') {
+                if (i + 1 >= length) {
+                    return null;
+                }
+                char first = path.charAt(i + 1);
+                if (first == '\'' || first == '"') {
+                    StringBuilder name = new StringBuilder();
+                    int j = i + 2;
+                    while (j < length && path.charAt(j) != first) {
+                        if (path.charAt(j) == '\\' && j + 1 < length) {
+                            j++;
+                        }
+                        name.append(path.charAt(j++));
+                    }
+                    if (j + 1 >= length || path.charAt(j + 1) != ']') {
+                        return null; // unterminated name or union of names
+                    }
+                    segments.add(name.toString());
+                    i = j + 2;
+                } else if (first == '*') {
+                    if (i + 2 >= length || path.charAt(i + 2) != ']') {
+                        return null;
+                    }
+                    segments.add(Wildcard.INSTANCE);
+                    i += 3;
+                } else {
+                    int j = i + 1;
+                    while (j < length && Character.isDigit(path.charAt(j))) {
+                        j++;
+                    }
+                    if (j == i + 1 || j >= length || path.charAt(j) != ']') {
+                        return null; // filter, slice, union or negative index
+                    }
+                    segments.add(Integer.valueOf(path.substring(i + 1, j)));
+                    i = j + 1;
+                }
+            } else {
+                return null;
+            }
+        }
+        return segments;
+    }
+
+    private enum Wildcard {
+        INSTANCE
+    }
+
+    /**
+     * A node in the trie of requested paths.
+     */
+    private static final class Node {
+        Map<String, Node> fields;
+        Map<Integer, Node> indices;
+        Node wildcard;
+        int[] targets = NO_TARGETS;
+
+        void add(List<Object> segments, int position, int target) {
+            if (position == segments.size()) {
+                targets = Arrays.copyOf(targets, targets.length + 1);
+                targets[targets.length - 1] = target;
+                return;
+            }
+            Object segment = segments.get(position);
+            Node child;
+            if (segment == Wildcard.INSTANCE) {
+                child = wildcard == null ? wildcard = new Node() : wildcard;
+            } else if (segment instanceof Integer) {
+                if (indices == null) {
+                    indices = new HashMap<>();
+                }
+                child = indices.computeIfAbsent((Integer) segment, k -> new Node());
+            } else {
+                if (fields == null) {
+                    fields = new HashMap<>();
+                }
+                child = fields.computeIfAbsent((String) segment, k -> new Node());
+            }
+            child.add(segments, position + 1, target);
+        }
+    }
+
+    /**
+     * Per-call extraction state.
+     */
+    private static final class State {
+        final Object[] values;
+        final boolean[] found;
+        final boolean[] indefinite;
+        final boolean stopWhenFound;
+        int remainingDefinite;
+
+        /**
+         * @param exhaustive true to walk the whole document even once every definite path is found
+         */
+        State(int size, boolean[] indefinite, boolean exhaustive) {
+            this.values = new Object[size];
+            this.found = new boolean[size];
+            this.indefinite = indefinite;
+            boolean any = false;
+            for (int i = 0; i < size; i++) {
+                if (indefinite[i]) {
+                    values[i] = new ArrayList<>();
+                    any = true;
+                } else {
+                    remainingDefinite++;
+                }
+            }
+            this.stopWhenFound = !any && !exhaustive;
+        }
+
+        @SuppressWarnings("unchecked")
+        void record(int target, Object value) {
+            if (indefinite[target]) {
+                ((List<Object>) values[target]).add(value);
+            } else if (!found[target]) {
+                values[target] = value;
+                found[target] = true;
+                remainingDefinite--;
+            }
+        }
+
+        boolean isComplete() {
+            return stopWhenFound && remainingDefinite == 0;
+        }
+    }
+
+    /**
+     * Minimal InputStream over a direct ByteBuffer, avoiding a copy into a heap array.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Example usage of the StreamingJsonPathExtractor.
+     */
+    public static void main(String[] args) {
+        String jsonString = "{\"store\":{\"book\":[{\"category\":\"reference\",\"author\":\"Nigel Rees\","
+                + "\"title\":\"Sayings of the Century\",\"price\":8.95},{\"category\":\"fiction\","
+                + "\"author\":\"Evelyn Waugh\",\"title\":\"Sword of Honour\",\"price\":12.99}],"
+                + "\"bicycle\":{\"color\":\"red\",\"price\":19.95}},\"expensive\":true}";
+
+        Map<String, String> definite = new LinkedHashMap<>();
+        definite.put("firstTitle", "$.store.book[0].title");
+        definite.put("bicyclePrice", "$.store.bicycle.price");
+        definite.put("expensive", "$.expensive");
+        definite.put("missing", "$.store.discount");
+        StreamingJsonPathExtractor streaming = StreamingJsonPathExtractor.of(definite);
+        System.out.println("Streamable: " + streaming.isStreamable());
+        System.out.println("From String: " + streaming.extract(jsonString));
+        System.out.println("From bytes: " + streaming.extract(jsonString.getBytes(StandardCharsets.UTF_8)));
+
+        Map<String, String> wildcard = new LinkedHashMap<>();
+        wildcard.put("authors", "$.store.book[*].author");
+        wildcard.put("bicycle", "$.store.bicycle");
+        StreamingJsonPathExtractor wildcards = StreamingJsonPathExtractor.of(wildcard);
+        ByteBuffer direct = ByteBuffer.allocateDirect(jsonString.length());
+        direct.put(jsonString.getBytes(StandardCharsets.UTF_8)).flip();
+        System.out.println("From direct ByteBuffer: " + wildcards.extract(direct));
+        System.out.println("From InputStream: "
+                + wildcards.extract(new ByteArrayInputStream(jsonString.getBytes(StandardCharsets.UTF_8))));
+
+        Map<String, String> filtered = new LinkedHashMap<>();
+        filtered.put("cheapTitles", "$.store.book[?(@.price < 10)].title");
+        filtered.put("allPrices", "$..price");
+        StreamingJsonPathExtractor fallback = StreamingJsonPathExtractor.of(filtered);
+        System.out.println("Streamable: " + fallback.isStreamable());
+        System.out.println("Tree fallback: " + fallback.extract(jsonString));
+    }
+}
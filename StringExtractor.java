@@ -0,0 +1,26 @@
+package com.oniox.learn;
+
+public class StringExtractor {
+
+    /**
+     * Extracts the two trailing numbers of an id such as "id_version_12_2".
+     * Delegates to {@link CompositeIdCodec#decode(CharSequence)}; use that directly to avoid
+     * allocating the Pair.
+     *
+     * @param input The id
+     * @return The two numbers, or null if the id does not end in _number_number or a number overflows an int
+     */
+    public static Pair<Integer, Integer> extractNumbers(String input) {
+        long packed = CompositeIdCodec.decode(input);
+        if (packed == CompositeIdCodec.NO_MATCH) {
+            return null;
+        }
+        return new Pair<>(CompositeIdCodec.first(packed), CompositeIdCodec.second(packed));
+    }
+
+    public static void main(String[] args) {
+        String input = "id_version_12_2";
+        Pair<Integer, Integer> numbers = extractNumbers(input);
+        System.out.println(numbers); // Output: (12, 2)
+    }
+}
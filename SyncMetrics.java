@@ -0,0 +1,55 @@
+package com.oniox.learn;
+
+/**
+ * Receives per-batch measurements from {@link StreamingDataSync} and {@link PartitionedDataSync}.
+ * Implementations must be thread-safe: the reader, writer and partition threads report
+ * concurrently. {@link RecordingSyncMetrics} keeps totals and latency histograms in memory;
+ * other implementations can forward to a metrics library.
+ */
+public interface SyncMetrics {
+
+    /** Does nothing. */
+    SyncMetrics NONE = new SyncMetrics() {
+        @Override
+        public void recordBatch(Stage stage, int rows, long bytes, long nanos) {
+        }
+
+        @Override
+        public void recordQueueDepth(int depth) {
+        }
+    };
+
+    /**
+     * The stages a batch passes through.
+     */
+    enum Stage {
+        /** Reading a batch from the source cursor, excluding waits for the writer. */
+        FETCH,
+        /** Change detection; rows are those left to write. */
+        TRANSFORM,
+        /** Binding the batch to the parameterized MERGE; in staged mode, also loading it into the staging table. */
+        BUILD,
+        /**
+         * Executing the batch and committing, with the checkpoint where there is one; in staged
+         * mode, the set-based MERGE of all staged rows.
+         */
+        EXECUTE
+    }
+
+    /**
+     * Records one batch passing through a stage.
+     *
+     * @param stage The stage
+     * @param rows  The rows the stage produced
+     * @param bytes The estimated size of those rows (see {@link SyncRecord#estimatedBytes()})
+     * @param nanos The time the stage took for the batch
+     */
+    void recordBatch(Stage stage, int rows, long bytes, long nanos);
+
+    /**
+     * Records the number of batches waiting for the writer, after the reader queued one.
+     *
+     * @param depth The queue depth
+     */
+    void recordQueueDepth(int depth);
+}
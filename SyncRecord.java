@@ -0,0 +1,16 @@
+package com.oniox.learn;
+
+import java.sql.Timestamp;
+
+/**
+ * One row of the synchronized table: {@code (id, col1, col2, last_update)}.
+ */
+public record SyncRecord(int id, String col1, String col2, Timestamp lastUpdate) {
+
+    /**
+     * @return A rough size of the row on the wire: 4 bytes of id, 8 of timestamp and 2 per character
+     */
+    public long estimatedBytes() {
+        return 12 + 2L * ((col1 == null ? 0 : col1.length()) + (col2 == null ? 0 : col2.length()));
+    }
+}
@@ -0,0 +1,342 @@
+package com.oniox.learn;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs keyed tasks on an executor with timeouts that cancel the work, one execution per key at a
+ * time and a short-lived cache of results. This is the task layer behind
+ * {@code AsyncService.performLongRunningTask}, whose {@code completeOnTimeout} answers the caller
+ * after ten seconds but leaves the task running on the two-to-four-thread {@code taskExecutor},
+ * and which starts a new copy of the task for every concurrent {@code /start-task} request.
+ * <p>
+ * When a task times out its future completes with a {@link TimeoutException} and the task is
+ * cancelled: a task still queued is removed from the executor's queue and never runs, and a
+ * running one has its thread interrupted. The task is counted as <em>cancelled</em> if it never
+ * ran or ended by throwing (as interruptible work does, with {@code InterruptedException}), and
+ * as <em>abandoned</em> if it ignored the interrupt and ran to completion, holding its thread
+ * the whole time. {@link #lingering()} is the number of timed-out tasks still on a thread.
+ * <p>
+ * Calls for a key that already has an execution in flight share it rather than starting
+ * another, and calls within {@code resultTtl} of a successful execution get its result without
+ * running the task again. Failures and timeouts are not cached. Each call gets its own future,
+ * so a caller cancelling its future affects nobody else; only the timeout cancels the work.
+ *
+ * <pre>
+ * TaskRunner&lt;String, String&gt; runner = TaskRunner.&lt;String, String&gt;builder()
+ *         .executor(threadPoolTaskExecutor.getThreadPoolExecutor())
+ *         .timeout(Duration.ofSeconds(10))
+ *         .resultTtl(Duration.ofSeconds(5))
+ *         .build();
+ * CompletableFuture&lt;String&gt; result = runner.submit("report:" + day, () -&gt; buildReport(day));
+ * </pre>
+ *
+ * @param <K> The task key type; keys are compared with equals and hashCode
+ * @param <V> The result type
+ */
+public final class TaskRunner<K, V> implements AutoCloseable {
+
+    /**
+     * Counters since the runner was built.
+     *
+     * @param submitted Calls to {@link #submit}
+     * @param executed  Executions started on the executor, one per call not served otherwise
+     * @param shared    Calls that joined an execution already in flight
+     * @param cacheHits Calls served from the result cache
+     * @param completed Executions that returned a result in time
+     * @param failed    Executions that threw in time, or that the executor rejected
+     * @param timedOut  Executions that timed out; each is later counted as cancelled or abandoned
+     * @param cancelled Timed-out executions that never ran or stopped by throwing
+     * @param abandoned Timed-out executions that ran to completion regardless
+     */
+    public record Stats(long submitted, long executed, long shared, long cacheHits, long completed, long failed,
+                        long timedOut, long cancelled, long abandoned) {
+    }
+
+    private record Cached<V>(V value, long expiresAt) {
+    }
+
+    /**
+     * One execution, shared by every call for its key while in flight.
+     */
+    private final class Flight {
+        final K key;
+        final CompletableFuture<V> promise = new CompletableFuture<>();
+        // Claimed by whichever comes first: the task starting or the timeout before it starts
+        final AtomicBoolean claimed = new AtomicBoolean();
+        volatile Future<?> future;
+
+        Flight(K key) {
+            this.key = key;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final long timeoutNanos;
+    private final long resultTtlNanos;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<K, Flight> flights = new ConcurrentHashMap<>();
+    private final Map<K, Cached<V>> cache = new ConcurrentHashMap<>();
+    private final AtomicInteger lingering = new AtomicInteger();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    private TaskRunner(Builder<K, V> builder) {
+        this.executor = builder.executor;
+        this.timeoutNanos = builder.timeout.toNanos();
+        this.resultTtlNanos = builder.resultTtl.toNanos();
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "task-runner-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        if (resultTtlNanos > 0) {
+            timer.scheduleWithFixedDelay(this::evictExpired, resultTtlNanos, resultTtlNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @param <K> The task key type
+     * @param <V> The result type
+     * @return A new builder for a TaskRunner
+     */
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Runs a task, unless one for the same key is in flight or has a fresh cached result.
+     *
+     * @param key  Identifies the work; calls with equal keys must be interchangeable
+     * @param task The work, used only if a new execution starts
+     * @return A future for the result, which fails with a {@link TimeoutException} if the
+     * execution times out, with a {@link RejectedExecutionException} if the executor rejects it,
+     * or with whatever the task threw
+     */
+    public CompletableFuture<V> submit(K key, Callable<? extends V> task) {
+        Objects.requireNonNull(key, "key");
+        submitted.increment();
+        Cached<V> cached = fresh(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return CompletableFuture.completedFuture(cached.value());
+        }
+        Flight flight = new Flight(key);
+        Flight existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            return existing.promise.copy();
+        }
+        // An execution may have cached its result and left between the lookup and the put;
+        // callers that joined this flight meanwhile get the cached value too
+        cached = fresh(key);
+        if (cached != null) {
+            cacheHits.increment();
+            flight.promise.complete(cached.value());
+            flights.remove(key, flight);
+            return flight.promise.copy();
+        }
+        start(flight, task);
+        return flight.promise.copy();
+    }
+
+    /**
+     * @return The key's cached result if it has not expired, otherwise null
+     */
+    private Cached<V> fresh(K key) {
+        Cached<V> cached = cache.get(key);
+        if (cached != null && cached.expiresAt() - System.nanoTime() <= 0) {
+            cache.remove(key, cached);
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * @return The counters so far
+     */
+    public Stats stats() {
+        return new Stats(submitted.sum(), executed.sum(), shared.sum(), cacheHits.sum(), completed.sum(),
+                failed.sum(), timedOut.sum(), cancelled.sum(), abandoned.sum());
+    }
+
+    /**
+     * @return The number of timed-out executions still holding an executor thread
+     */
+    public int lingering() {
+        return lingering.get();
+    }
+
+    /**
+     * @return The number of keys with an execution in flight
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    /**
+     * Stops the timeout timer; executions in flight no longer time out. The executor is left
+     * running.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private void start(Flight flight, Callable<? extends V> task) {
+        try {
+            flight.future = executor.submit(() -> run(flight, task));
+        } catch (RejectedExecutionException e) {
+            flights.remove(flight.key, flight);
+            failed.increment();
+            flight.promise.completeExceptionally(e);
+            return;
+        }
+        executed.increment();
+        timer.schedule(() -> timeOut(flight), timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void run(Flight flight, Callable<? extends V> task) {
+        if (!flight.claimed.compareAndSet(false, true)) {
+            return;
+        }
+        V value = null;
+        Throwable error = null;
+        try {
+            value = task.call();
+        } catch (Throwable t) {
+            error = t;
+        }
+        if (error == null ? flight.promise.complete(value) : flight.promise.completeExceptionally(error)) {
+            // Cached before the flight goes; submit checks the cache again once its own flight is in
+            if (error == null && resultTtlNanos > 0) {
+                cache.put(flight.key, new Cached<>(value, System.nanoTime() + resultTtlNanos));
+            }
+            flights.remove(flight.key, flight);
+            (error == null ? completed : failed).increment();
+            return;
+        }
+        // The timeout got there first
+        lingering.decrementAndGet();
+        (error == null ? abandoned : cancelled).increment();
+    }
+
+    private void timeOut(Flight flight) {
+        if (!flight.promise.completeExceptionally(
+                new TimeoutException("Task " + flight.key + " timed out after " + Duration.ofNanos(timeoutNanos)))) {
+            return;
+        }
+        timedOut.increment();
+        flights.remove(flight.key, flight);
+        Future<?> future = flight.future;
+        if (flight.claimed.compareAndSet(false, true)) {
+            // Still queued: drop it so it neither runs nor holds a queue slot
+            if (future != null) {
+                future.cancel(false);
+                if (executor instanceof ThreadPoolExecutor pool && future instanceof RunnableFuture<?> runnable) {
+                    pool.remove(runnable);
+                }
+            }
+            cancelled.increment();
+        } else {
+            lingering.incrementAndGet();
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        cache.values().removeIf(cached -> cached.expiresAt() - now <= 0);
+    }
+
+    /**
+     * Builder for {@link TaskRunner}.
+     *
+     * @param <K> The task key type
+     * @param <V> The result type
+     */
+    public static final class Builder<K, V> {
+
+        private ExecutorService executor;
+        private Duration timeout = Duration.ofSeconds(10);
+        private Duration resultTtl = Duration.ZERO;
+
+        private Builder() {
+        }
+
+        /**
+         * @param executor Runs the tasks; required. It must interrupt a task's thread on
+         *                 {@code Future.cancel(true)}, as the JDK executors do
+         * @return This builder
+         */
+        public Builder<K, V> executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param timeout How long an execution may take from submission, queueing included
+         *                (default 10 s)
+         * @return This builder
+         * @throws IllegalArgumentException If timeout is not positive
+         */
+        public Builder<K, V> timeout(Duration timeout) {
+            if (timeout.isNegative() || timeout.isZero()) {
+                throw new IllegalArgumentException("Timeout must be positive");
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * @param resultTtl How long a successful result serves later calls for the same key
+         *                  (default zero: not cached)
+         * @return This builder
+         * @throws IllegalArgumentException If resultTtl is negative
+         */
+        public Builder<K, V> resultTtl(Duration resultTtl) {
+            if (resultTtl.isNegative()) {
+                throw new IllegalArgumentException("Result TTL cannot be negative");
+            }
+            this.resultTtl = resultTtl;
+            return this;
+        }
+
+        /**
+         * @return The configured runner
+         * @throws IllegalStateException If the executor is missing
+         */
+        public TaskRunner<K, V> build() {
+            if (executor == null) {
+                throw new IllegalStateException("An executor is required");
+            }
+            return new TaskRunner<>(this);
+        }
+    }
+}
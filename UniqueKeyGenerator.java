@@ -0,0 +1,344 @@
+package com.oniox.learn;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates 64-bit keys that are unique within the process and across nodes, so inserts need
+ * no uniqueness check. Unlike {@link KeyGenerator} keys they are not secret or unpredictable.
+ * <p>
+ * Layout, most significant bit first: 1 unused sign bit, 41 bits of milliseconds since the
+ * configured epoch (about 69 years), 10 bits of node id and 12 bits of sequence. Rendered as
+ * 16 lowercase hex characters, keys sort in generation order per node.
+ * <p>
+ * Timestamp and sequence are one counter ({@code millis << 12 | sequence}) advanced with a CAS,
+ * never reused. When the clock moves backwards, or more than 4096 keys are requested within a
+ * millisecond, the counter carries on ahead of the clock instead of repeating a value. It runs
+ * ahead by at most the configured maximum drift: beyond that, callers wait for the clock to
+ * catch up, and a clock that moved back further than the drift makes key generation fail with
+ * IllegalStateException, as the lead could then outlive a restart and cause duplicates.
+ *
+ * <pre>
+ * UniqueKeyGenerator generator = UniqueKeyGenerator.builder().nodeId(7).build();
+ * String key = generator.nextHexKey();
+ * UniqueKeyGenerator.KeyBlock block = generator.reserve(1000); // per-thread, no CAS per key
+ * </pre>
+ */
+public final class UniqueKeyGenerator {
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int TIMESTAMP_BITS = 63 - NODE_BITS - SEQUENCE_BITS;
+
+    /** The highest supported node id. */
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_TIMESTAMP = (1L << TIMESTAMP_BITS) - 1;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long nodeBits;
+    private final long epochMillis;
+    private final long maxDriftMillis;
+    private final LongSupplier clock;
+    // The next unused (millis << SEQUENCE_BITS | sequence) counter value
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong latestClock = new AtomicLong();
+
+    private UniqueKeyGenerator(Builder builder) {
+        this.nodeBits = (long) builder.nodeId << SEQUENCE_BITS;
+        this.epochMillis = builder.epoch.toEpochMilli();
+        this.maxDriftMillis = builder.maxDrift.toMillis();
+        this.clock = builder.clock;
+    }
+
+    /**
+     * @return A new builder for a UniqueKeyGenerator
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return A new unique key
+     * @throws IllegalStateException If the clock moved back further than the maximum drift
+     */
+    public long nextKey() {
+        return toKey(claim(1));
+    }
+
+    /**
+     * @return A new unique key as 16 hex characters
+     * @throws IllegalStateException If the clock moved back further than the maximum drift
+     */
+    public String nextHexKey() {
+        return toHex(nextKey());
+    }
+
+    /**
+     * Writes a new unique key as 16 hex characters into a caller-supplied array.
+     *
+     * @param destination The array to write to
+     * @param offset      The index of the first character
+     * @throws IndexOutOfBoundsException If fewer than 16 characters fit after offset
+     * @throws IllegalStateException     If the clock moved back further than the maximum drift
+     */
+    public void nextHexKey(char[] destination, int offset) {
+        if (offset < 0 || offset > destination.length - 16) {
+            throw new IndexOutOfBoundsException("No room for 16 characters at offset " + offset);
+        }
+        writeHex(nextKey(), destination, offset);
+    }
+
+    /**
+     * Reserves a block of consecutive keys with a single CAS. The block is meant for one thread;
+     * keys not taken from it are simply never used.
+     *
+     * @param size The number of keys
+     * @return The reserved block
+     * @throws IllegalArgumentException If size is not positive or exceeds the keys of the maximum drift
+     * @throws IllegalStateException    If the clock moved back further than the maximum drift
+     */
+    public KeyBlock reserve(int size) {
+        if (size <= 0 || size > (maxDriftMillis + 1) << SEQUENCE_BITS) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + ((maxDriftMillis + 1) << SEQUENCE_BITS));
+        }
+        long start = claim(size);
+        return new KeyBlock(this, start, start + size);
+    }
+
+    private long claim(int count) {
+        while (true) {
+            long millis = clock.getAsLong() - epochMillis;
+            if (millis < 0 || millis > MAX_TIMESTAMP) {
+                throw new IllegalStateException("Clock is outside the key range: " + Instant.ofEpochMilli(millis + epochMillis));
+            }
+            long latest = latestClock.get();
+            if (millis > latest) {
+                latestClock.accumulateAndGet(millis, Math::max);
+            } else if (latest - millis > maxDriftMillis) {
+                throw new IllegalStateException("Clock moved backwards by " + (latest - millis)
+                        + " ms (maximum " + maxDriftMillis + " ms)");
+            }
+            long current = next.get();
+            long start = Math.max(current, millis << SEQUENCE_BITS);
+            long end = start + count;
+            if (((end - 1) >>> SEQUENCE_BITS) - millis > maxDriftMillis) {
+                // Sustained demand above 4096 keys per millisecond: let the clock catch up
+                LockSupport.parkNanos(100_000);
+                continue;
+            }
+            if (next.compareAndSet(current, end)) {
+                return start;
+            }
+        }
+    }
+
+    long toKey(long counter) {
+        return (counter >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | nodeBits | (counter & SEQUENCE_MASK);
+    }
+
+    /**
+     * @return The node id encoded in a key
+     */
+    public static int nodeId(long key) {
+        return (int) (key >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    /**
+     * @return The sequence number encoded in a key
+     */
+    public static int sequence(long key) {
+        return (int) (key & SEQUENCE_MASK);
+    }
+
+    /**
+     * @return The time encoded in a key, which may be slightly ahead of the clock
+     */
+    public Instant timestamp(long key) {
+        return Instant.ofEpochMilli((key >>> (NODE_BITS + SEQUENCE_BITS)) + epochMillis);
+    }
+
+    /**
+     * Writes the 16 lowercase hex digits of a key.
+     */
+    public static void writeHex(long key, char[] destination, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            destination[offset + i] = HEX[(int) key & 0xF];
+            key >>>= 4;
+        }
+    }
+
+    /**
+     * @return The 16 lowercase hex digits of a key
+     */
+    public static String toHex(long key) {
+        char[] chars = new char[16];
+        writeHex(key, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * A block of keys reserved by {@link #reserve(int)}. Not thread-safe.
+     */
+    public static final class KeyBlock {
+        private final UniqueKeyGenerator generator;
+        private long next;
+        private final long end;
+
+        KeyBlock(UniqueKeyGenerator generator, long start, long end) {
+            this.generator = generator;
+            this.next = start;
+            this.end = end;
+        }
+
+        /**
+         * @return The number of keys left in the block
+         */
+        public int remaining() {
+            return (int) (end - next);
+        }
+
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        /**
+         * @return The next key of the block
+         * @throws IllegalStateException If the block is exhausted
+         */
+        public long nextKey() {
+            if (next >= end) {
+                throw new IllegalStateException("Key block exhausted");
+            }
+            return generator.toKey(next++);
+        }
+
+        /**
+         * @return The next key of the block as 16 hex characters
+         * @throws IllegalStateException If the block is exhausted
+         */
+        public String nextHexKey() {
+            return toHex(nextKey());
+        }
+    }
+
+    /**
+     * Builder for {@link UniqueKeyGenerator}.
+     */
+    public static final class Builder {
+
+        private int nodeId = -1;
+        private Instant epoch = Instant.parse("2024-01-01T00:00:00Z");
+        private Duration maxDrift = Duration.ofSeconds(5);
+        private LongSupplier clock = System::currentTimeMillis;
+
+        private Builder() {
+        }
+
+        /**
+         * @param nodeId This node's id, unique among all nodes generating keys; required
+         * @return This builder
+         * @throws IllegalArgumentException If nodeId is not between 0 and {@value UniqueKeyGenerator#MAX_NODE_ID}
+         */
+        public Builder nodeId(int nodeId) {
+            if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+                throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+            }
+            this.nodeId = nodeId;
+            return this;
+        }
+
+        /**
+         * @param epoch The time timestamps count from (default 2024-01-01T00:00:00Z); must be the same on all nodes
+         * @return This builder
+         */
+        public Builder epoch(Instant epoch) {
+            this.epoch = epoch;
+            return this;
+        }
+
+        /**
+         * @param maxDrift How far key timestamps may run ahead of the clock (default 5 seconds)
+         * @return This builder
+         * @throws IllegalArgumentException If maxDrift is negative
+         */
+        public Builder maxDrift(Duration maxDrift) {
+            if (maxDrift.isNegative()) {
+                throw new IllegalArgumentException("Maximum drift cannot be negative");
+            }
+            this.maxDrift = maxDrift;
+            return this;
+        }
+
+        /**
+         * @param clock The millisecond clock (default System::currentTimeMillis)
+         * @return This builder
+         */
+        public Builder clock(LongSupplier clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * @return The configured generator
+         * @throws IllegalStateException If no node id was set
+         */
+        public UniqueKeyGenerator build() {
+            if (nodeId < 0) {
+                throw new IllegalStateException("A node id is required");
+            }
+            return new UniqueKeyGenerator(this);
+        }
+    }
+
+    /**
+     * Example usage of the UniqueKeyGenerator.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long[] now = {System.currentTimeMillis()};
+        UniqueKeyGenerator generator = UniqueKeyGenerator.builder()
+                .nodeId(7)
+                .clock(() -> now[0])
+                .build();
+
+        long key = generator.nextKey();
+        System.out.println("Key " + toHex(key) + ": node " + nodeId(key) + ", sequence " + sequence(key)
+                + ", time " + generator.timestamp(key));
+
+        now[0] -= 2000; // clock moves back two seconds
+        long afterRegression = generator.nextKey();
+        System.out.println("After clock regression: " + toHex(afterRegression) + " > previous: " + (afterRegression > key));
+
+        KeyBlock block = generator.reserve(3);
+        while (block.hasNext()) {
+            System.out.println("From block: " + block.nextHexKey());
+        }
+
+        now[0] -= 10_000; // and then ten more
+        try {
+            generator.nextKey();
+        } catch (IllegalStateException e) {
+            System.out.println("Rejected: " + e.getMessage());
+        }
+
+        UniqueKeyGenerator live = UniqueKeyGenerator.builder().nodeId(1).build();
+        java.util.Set<Long> keys = java.util.concurrent.ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    keys.add(live.nextKey());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.out.println("Distinct keys from 8 threads: " + keys.size());
+    }
+}
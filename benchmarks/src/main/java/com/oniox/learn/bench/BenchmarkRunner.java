@@ -0,0 +1,220 @@
+package com.oniox.learn.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the benchmark suites with the GC profiler and optionally compares the results against
+ * a saved baseline, exiting with status 1 when throughput or allocation regressed.
+ *
+ * <pre>
+ * mvn -B package -DskipTests
+ * java -jar benchmarks/target/benchmarks.jar [regex...] [options]
+ *
+ *   -t 1,4,16             thread counts to run each benchmark with (default 1)
+ *   -p size=1KB,100KB     restrict a @Param to the given values
+ *   --quick               short warmup/measurement, for smoke runs
+ *   --save FILE           write the results as a baseline
+ *   --baseline FILE       compare against a baseline and fail on regressions
+ *   --threshold PCT       allowed throughput drop, in percent (default 10)
+ *   --alloc-threshold PCT allowed increase in bytes allocated per operation, in percent (default 10)
+ * </pre>
+ *
+ * Baseline entries are keyed by benchmark, parameters and thread count; entries missing from
+ * either side are reported but never fail the run. Plain JMH options are available through
+ * {@code java -cp benchmarks/target/benchmarks.jar org.openjdk.jmh.Main}.
+ */
+public final class BenchmarkRunner {
+
+    private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+    // Allocation deltas below this many bytes per operation are noise, e.g. for near-zero baselines
+    private static final double ALLOC_SLACK_BYTES = 16;
+
+    private BenchmarkRunner() {
+        throw new AssertionError("No instances");
+    }
+
+    /**
+     * One measured benchmark: throughput in ops/s and bytes allocated per operation (-1 if unknown).
+     */
+    static final class Measurement {
+        final double score;
+        final double allocBytesPerOp;
+
+        Measurement(double score, double allocBytesPerOp) {
+            this.score = score;
+            this.allocBytesPerOp = allocBytesPerOp;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        List<String> includes = new ArrayList<>();
+        int[] threads = {1};
+        Map<String, String[]> params = new LinkedHashMap<>();
+        boolean quick = false;
+        File save = null;
+        File baseline = null;
+        double threshold = 10;
+        double allocThreshold = 10;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-t":
+                    String[] counts = args[++i].split(",");
+                    threads = new int[counts.length];
+                    for (int j = 0; j < counts.length; j++) {
+                        threads[j] = Integer.parseInt(counts[j].trim());
+                    }
+                    break;
+                case "-p":
+                    String[] param = args[++i].split("=", 2);
+                    params.put(param[0], param[1].split(","));
+                    break;
+                case "--quick":
+                    quick = true;
+                    break;
+                case "--save":
+                    save = new File(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = new File(args[++i]);
+                    break;
+                case "--threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                case "--alloc-threshold":
+                    allocThreshold = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    includes.add(args[i]);
+            }
+        }
+
+        Map<String, Measurement> results = new LinkedHashMap<>();
+        for (int threadCount : threads) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .addProfiler(GCProfiler.class)
+                    .threads(threadCount);
+            if (includes.isEmpty()) {
+                options.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+            }
+            for (String include : includes) {
+                options.include(include);
+            }
+            for (Map.Entry<String, String[]> param : params.entrySet()) {
+                options.param(param.getKey(), param.getValue());
+            }
+            if (quick) {
+                options.warmupIterations(1).warmupTime(TimeValue.milliseconds(500))
+                        .measurementIterations(2).measurementTime(TimeValue.milliseconds(500));
+            }
+            collect(new Runner(options.build()).run(), results);
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        if (save != null) {
+            mapper.writeValue(save, toJson(mapper, results));
+            System.out.println("Baseline written to " + save);
+        }
+        if (baseline != null) {
+            Map<String, Measurement> base = fromJson(mapper.readTree(baseline));
+            if (!compare(base, results, threshold / 100, allocThreshold / 100)) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void collect(Collection<RunResult> runs, Map<String, Measurement> results) {
+        for (RunResult run : runs) {
+            Result<?> primary = run.getPrimaryResult();
+            double alloc = -1;
+            for (var secondary : run.getSecondaryResults().entrySet()) {
+                if (secondary.getKey().endsWith(ALLOC_NORM)) {
+                    alloc = secondary.getValue().getScore();
+                }
+            }
+            results.put(key(run.getParams()), new Measurement(primary.getScore(), alloc));
+        }
+    }
+
+    static String key(BenchmarkParams params) {
+        StringBuilder key = new StringBuilder(params.getBenchmark());
+        for (String name : params.getParamsKeys()) {
+            key.append(':').append(name).append('=').append(params.getParam(name));
+        }
+        return key.append("@t").append(params.getThreads()).toString();
+    }
+
+    /**
+     * Prints a comparison table and returns false if any benchmark regressed past a threshold.
+     */
+    static boolean compare(Map<String, Measurement> baseline, Map<String, Measurement> current,
+                           double threshold, double allocThreshold) {
+        boolean passed = true;
+        System.out.printf("%n%-80s %14s %9s %12s %12s  %s%n", "benchmark", "ops/s", "change", "B/op", "base B/op", "status");
+        for (Map.Entry<String, Measurement> entry : current.entrySet()) {
+            Measurement now = entry.getValue();
+            Measurement base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.printf("%-80s %14.1f %9s %12.1f %12s  new%n", entry.getKey(), now.score, "", now.allocBytesPerOp, "");
+                continue;
+            }
+            double change = (now.score - base.score) / base.score;
+            boolean slower = change < -threshold;
+            boolean allocates = base.allocBytesPerOp >= 0 && now.allocBytesPerOp >= 0
+                    && now.allocBytesPerOp > base.allocBytesPerOp * (1 + allocThreshold) + ALLOC_SLACK_BYTES;
+            String status = slower && allocates ? "REGRESSED (throughput, allocation)"
+                    : slower ? "REGRESSED (throughput)" : allocates ? "REGRESSED (allocation)" : "ok";
+            passed &= !slower && !allocates;
+            System.out.printf("%-80s %14.1f %+8.1f%% %12.1f %12.1f  %s%n", entry.getKey(), now.score, change * 100,
+                    now.allocBytesPerOp, base.allocBytesPerOp, status);
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-80s %14s %9s %12s %12s  not run%n", key, "", "", "", "");
+            }
+        }
+        System.out.println(passed ? "No regressions." : "Regressions found.");
+        return passed;
+    }
+
+    private static ObjectNode toJson(ObjectMapper mapper, Map<String, Measurement> results) {
+        ObjectNode root = mapper.createObjectNode();
+        for (Map.Entry<String, Measurement> entry : results.entrySet()) {
+            root.putObject(entry.getKey())
+                    .put("score", entry.getValue().score)
+                    .put("allocBytesPerOp", entry.getValue().allocBytesPerOp);
+        }
+        return root;
+    }
+
+    private static Map<String, Measurement> fromJson(JsonNode root) {
+        Map<String, Measurement> results = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = root.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            results.put(entry.getKey(), new Measurement(entry.getValue().path("score").asDouble(),
+                    entry.getValue().path("allocBytesPerOp").asDouble(-1)));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,71 @@
+package com.oniox.learn.bench;
+
+import com.oniox.learn.SyncMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incremental syncs of 2,000 changed picks out of 50,000 rows between embedded H2 databases,
+ * one score per strategy in picks per second. The source changes are applied before each
+ * invocation, outside the measurement. {@link DataSyncHarness} breaks the same runs down by
+ * stage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataSyncBenchmark {
+
+    static final int ROWS = 50_000;
+    static final int PICKS = 2_000;
+
+    @Param({"LITERAL", "STREAMING", "STAGED", "STREAMING_HASH", "PARTITIONED", "PARTITIONED_HASH"})
+    public String strategyName;
+
+    @Param({"0.3"})
+    public double touchRate;
+
+    private SyncStrategy strategy;
+    private SyncFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        strategy = SyncStrategy.valueOf(strategyName);
+        fixture = new SyncFixture("jmh-" + strategy + "-" + System.nanoTime(), ROWS, (double) PICKS / ROWS,
+                touchRate, 0, 8);
+        strategy.sync(fixture, SyncMetrics.NONE);
+    }
+
+    @Setup(Level.Invocation)
+    public void change() throws SQLException {
+        fixture.applyChanges();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        fixture.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PICKS)
+    public long sync() throws SQLException {
+        return strategy.sync(fixture, SyncMetrics.NONE);
+    }
+}
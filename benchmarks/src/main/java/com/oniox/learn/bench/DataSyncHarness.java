@@ -0,0 +1,95 @@
+package com.oniox.learn.bench;
+
+import com.oniox.learn.RecordingSyncMetrics;
+import com.oniox.learn.SyncMetrics;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs each sync strategy end to end against embedded H2 databases and prints per-stage
+ * metrics, for comparing strategies offline. {@link DataSyncBenchmark} measures the same
+ * strategies under JMH, for regression checks against a baseline.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.oniox.learn.bench.DataSyncHarness [options]
+ *
+ *   --rows N            source rows (default 100000)
+ *   --change-rate R     fraction of rows picked for change per round (default 0.1)
+ *   --touch-rate R      fraction of picks that only move last_update (default 0.3)
+ *   --skew S            0 for uniform picks, towards 1 for picks concentrated on low ids (default 0)
+ *   --rounds N          rounds of changes after the initial load (default 3)
+ *   --strategies A,B    strategies to run (default all): literal, streaming, staged,
+ *                       streaming_hash, partitioned, partitioned_hash
+ * </pre>
+ */
+public final class DataSyncHarness {
+
+    private DataSyncHarness() {
+        throw new AssertionError("No instances");
+    }
+
+    public static void main(String[] args) throws SQLException {
+        int rows = 100_000;
+        double changeRate = 0.1;
+        double touchRate = 0.3;
+        double skew = 0;
+        int rounds = 3;
+        List<SyncStrategy> strategies = new ArrayList<>(List.of(SyncStrategy.values()));
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rows":
+                    rows = Integer.parseInt(args[++i]);
+                    break;
+                case "--change-rate":
+                    changeRate = Double.parseDouble(args[++i]);
+                    break;
+                case "--touch-rate":
+                    touchRate = Double.parseDouble(args[++i]);
+                    break;
+                case "--skew":
+                    skew = Double.parseDouble(args[++i]);
+                    break;
+                case "--rounds":
+                    rounds = Integer.parseInt(args[++i]);
+                    break;
+                case "--strategies":
+                    strategies.clear();
+                    for (String name : args[++i].split(",")) {
+                        strategies.add(SyncStrategy.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        System.out.printf("%d rows, change rate %.2f, touch rate %.2f, skew %.2f, %d rounds%n",
+                rows, changeRate, touchRate, skew, rounds);
+        for (SyncStrategy strategy : strategies) {
+            try (SyncFixture fixture = new SyncFixture("harness-" + strategy, rows, changeRate, touchRate, skew, 8)) {
+                long start = System.nanoTime();
+                long loaded = strategy.sync(fixture, SyncMetrics.NONE);
+                System.out.printf("%n== %s: initial load of %d rows in %.0f ms%n", strategy, loaded,
+                        (System.nanoTime() - start) / 1e6);
+
+                RecordingSyncMetrics metrics = new RecordingSyncMetrics();
+                long picks = 0;
+                long written = 0;
+                long nanos = 0;
+                for (int round = 0; round < rounds; round++) {
+                    picks += fixture.applyChanges();
+                    start = System.nanoTime();
+                    written += strategy.sync(fixture, metrics);
+                    nanos += System.nanoTime() - start;
+                }
+                System.out.printf("%d rounds: %d picks, %d rows written in %.0f ms (%.0f picks/s)%n", rounds, picks,
+                        written, nanos / 1e6, picks * 1e9 / nanos);
+                System.out.print(metrics.report());
+            }
+        }
+    }
+}
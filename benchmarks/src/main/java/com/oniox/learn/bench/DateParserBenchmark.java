@@ -0,0 +1,87 @@
+package com.oniox.learn.bench;
+
+import com.oniox.learn.DateParserJava8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * yyyy-MM-dd parsing and formatting with DateParserJava8, one call at a time and over a column.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateParserBenchmark {
+
+    static final int BATCH = 10_000;
+
+    private String[] dates;
+    private LocalDate[] parsed;
+    private byte[] lines;
+    private int[] epochDays;
+    private long[] invalid;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        dates = Payloads.dates(BATCH);
+        parsed = new LocalDate[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            parsed[i] = LocalDate.parse(dates[i]);
+        }
+        lines = (String.join("\n", dates) + "\n").getBytes(StandardCharsets.US_ASCII);
+        epochDays = new int[BATCH];
+        invalid = new long[(BATCH + 63) / 64];
+    }
+
+    @Benchmark
+    public LocalDate parseDate() {
+        return DateParserJava8.parseDate(dates[next++ & (1024 - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void parseDateBulk(Blackhole blackhole) {
+        for (String date : dates) {
+            blackhole.consume(DateParserJava8.parseDate(date));
+        }
+    }
+
+    @Benchmark
+    public int parseEpochDay() {
+        return DateParserJava8.parseEpochDay(dates[next++ & (1024 - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int parseColumn() {
+        return DateParserJava8.parseColumn(dates, epochDays, invalid);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int parseColumnBytes() {
+        return DateParserJava8.parseColumn(lines, 0, lines.length, epochDays, invalid);
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return DateParserJava8.formatDate(parsed[next++ & (1024 - 1)]);
+    }
+}
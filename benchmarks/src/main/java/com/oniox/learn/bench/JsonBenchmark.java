@@ -0,0 +1,85 @@
+package com.oniox.learn.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.DocumentContext;
+import com.oniox.learn.JsonParserUtil;
+import com.oniox.learn.JsonPathExtractor;
+import com.oniox.learn.JsonPathUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, validation and path reads through JsonParserUtil, JsonPathUtil and JsonPathExtractor
+ * at 1 KB, 100 KB and 10 MB documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"1KB", "100KB", "10MB"})
+    public String size;
+
+    private String json;
+    private byte[] bytes;
+    private DocumentContext parsed;
+    private JsonPathExtractor extractor;
+
+    @Setup
+    public void setUp() {
+        json = Payloads.document(Payloads.bytes(size));
+        bytes = Payloads.utf8(json);
+        parsed = JsonPathUtil.parseJson(json);
+        extractor = new JsonPathExtractor();
+    }
+
+    @Benchmark
+    public JsonNode jsonParserUtilParse() throws IOException {
+        return JsonParserUtil.parseJson(json);
+    }
+
+    @Benchmark
+    public boolean jsonParserUtilIsValid() {
+        return JsonParserUtil.isValidJson(json);
+    }
+
+    @Benchmark
+    public boolean jsonParserUtilIsValidBytes() {
+        return JsonParserUtil.isValidJson(bytes);
+    }
+
+    @Benchmark
+    public String jsonPathUtilParseAndRead() {
+        return JsonPathUtil.getString(JsonPathUtil.parseJson(json), Payloads.SKU_PATH);
+    }
+
+    @Benchmark
+    public String jsonPathUtilParseBytesAndRead() {
+        return JsonPathUtil.getString(JsonPathUtil.parseJson(bytes), Payloads.SKU_PATH);
+    }
+
+    @Benchmark
+    public int jsonPathUtilReadParsed() {
+        return JsonPathUtil.getInt(parsed, Payloads.VERSION_PATH, -1);
+    }
+
+    @Benchmark
+    public String jsonPathExtractorParseAndRead() throws IOException {
+        return extractor.extractValue(json, Payloads.SKU_PATH, String.class);
+    }
+}
@@ -0,0 +1,139 @@
+package com.oniox.learn.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import com.oniox.learn.JsonPathUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests that each parse a document and read two paths, through JsonPathUtil's shared parsing
+ * core and through the previous design, where every new thread built its own ObjectMapper and
+ * Configuration in a ThreadLocal and dropped them when the request ended.
+ * <p>
+ * Each operation submits {@code concurrency} requests to the executor of the mode, one task per
+ * request, and waits for all of them: a cached pool of platform threads, a virtual thread per
+ * task, or the common fork-join pool. Virtual threads need Java 21+; on older runtimes that
+ * mode fails its setup and JMH moves on to the next one. Scores are operations, not requests,
+ * per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonConcurrencyBenchmark {
+
+    static final String JSON = "{\"header\":{\"id\":\"evt-1\",\"version\":3},"
+            + "\"order\":{\"id\":\"o-77\",\"total\":120.5,\"items\":[{\"sku\":\"A-1\"},{\"sku\":\"B-2\"}]}}";
+
+    // The previous per-thread design, kept here only as a baseline
+    private static final ThreadLocal<Configuration> LEGACY_CONFIG = ThreadLocal.withInitial(() -> {
+        ObjectMapper mapper = new ObjectMapper();
+        return Configuration.builder()
+                .jsonProvider(new JacksonJsonNodeJsonProvider())
+                .mappingProvider(new JacksonMappingProvider(mapper))
+                .options(Option.SUPPRESS_EXCEPTIONS)
+                .build();
+    });
+
+    @Param({"PLATFORM", "VIRTUAL", "FORK_JOIN"})
+    public String mode;
+
+    @Param({"1", "8", "64", "10000"})
+    public int concurrency;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        switch (mode) {
+            case "PLATFORM":
+                executor = Executors.newCachedThreadPool();
+                break;
+            case "VIRTUAL":
+                try {
+                    executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Virtual threads need Java 21+; skipping", e);
+                }
+                break;
+            case "FORK_JOIN":
+                executor = ForkJoinPool.commonPool();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != ForkJoinPool.commonPool()) {
+            executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long shared() throws InterruptedException, ExecutionException {
+        return run(JsonConcurrencyBenchmark::sharedRequest);
+    }
+
+    @Benchmark
+    public long threadLocal() throws InterruptedException, ExecutionException {
+        return run(JsonConcurrencyBenchmark::legacyRequest);
+    }
+
+    private long run(Callable<Integer> request) throws InterruptedException, ExecutionException {
+        List<Future<Integer>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(executor.submit(request));
+        }
+        long sum = 0;
+        for (Future<Integer> future : futures) {
+            sum += future.get();
+        }
+        return sum;
+    }
+
+    static int sharedRequest() {
+        DocumentContext context = JsonPathUtil.parseJson(JSON);
+        return JsonPathUtil.getInt(context, "$.header.version", 0)
+                + JsonPathUtil.getString(context, "$.order.items[1].sku").length();
+    }
+
+    static int legacyRequest() {
+        try {
+            DocumentContext context = JsonPath.using(LEGACY_CONFIG.get()).parse(JSON);
+            Integer version = context.read("$.header.version", Integer.class);
+            return (version == null ? 0 : version) + context.read("$.order.items[1].sku", String.class).length();
+        } finally {
+            LEGACY_CONFIG.remove();
+        }
+    }
+}
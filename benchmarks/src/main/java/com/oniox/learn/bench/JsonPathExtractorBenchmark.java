@@ -0,0 +1,84 @@
+package com.oniox.learn.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.DocumentContext;
+import com.oniox.learn.JsonPathExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One JsonPathExtractor read from an already parsed event document with a payload array of 10
+ * to 3000 items. "reparse" is the old behaviour of serializing the node and parsing it again
+ * for every read, whose cost grows with the document; "tree" and "context" evaluate the path on
+ * the JsonNode and stay flat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonPathExtractorBenchmark {
+
+    static final String PATH = "$.header.eventId";
+
+    @Param({"10", "100", "1000", "3000"})
+    public int items;
+
+    private JsonPathExtractor extractor;
+    private JsonNode node;
+    private DocumentContext context;
+
+    @Setup
+    public void setUp() throws IOException {
+        extractor = new JsonPathExtractor();
+        node = extractor.parse(document(items));
+        context = extractor.context(node);
+    }
+
+    /**
+     * Builds an event document with a small header and a payload array of the given size.
+     */
+    static String document(int payloadItems) {
+        StringBuilder sb = new StringBuilder(payloadItems * 64 + 128);
+        sb.append("{\"header\":{\"eventId\":\"evt-42\",\"source\":\"ingest\"},\"payload\":[");
+        for (int i = 0; i < payloadItems; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":").append(i)
+              .append(",\"name\":\"item-").append(i)
+              .append("\",\"price\":").append(i * 0.5)
+              .append(",\"active\":").append(i % 2 == 0)
+              .append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    @Benchmark
+    public String reparse() throws IOException {
+        return extractor.extractValue(node.toString(), PATH, String.class);
+    }
+
+    @Benchmark
+    public String tree() {
+        return extractor.extractValue(node, PATH, String.class);
+    }
+
+    @Benchmark
+    public String context() {
+        return extractor.extractValue(context, PATH, String.class);
+    }
+}
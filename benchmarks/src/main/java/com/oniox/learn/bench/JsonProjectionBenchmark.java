@@ -0,0 +1,106 @@
+package com.oniox.learn.bench;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.oniox.learn.JsonPathField;
+import com.oniox.learn.JsonPathUtil;
+import com.oniox.learn.JsonProjection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-getter pattern from {@code JsonPathUtil.main} against a JsonProjection filling a
+ * record with the same 16 fields, from a parsed DocumentContext and from raw bytes, where the
+ * projection reads everything in one streaming pass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonProjectionBenchmark {
+
+    public record Event(@JsonPathField("$.header.id") String id,
+                        @JsonPathField("$.header.source") String source,
+                        @JsonPathField("$.header.version") int version,
+                        @JsonPathField("$.header.replay") boolean replay,
+                        @JsonPathField("$.order.id") String orderId,
+                        @JsonPathField("$.order.customer.id") String customerId,
+                        @JsonPathField("$.order.customer.tier") String tier,
+                        @JsonPathField("$.order.total") double total,
+                        @JsonPathField("$.order.tax") double tax,
+                        @JsonPathField("$.order.currency") String currency,
+                        @JsonPathField("$.order.items[0].sku") String firstSku,
+                        @JsonPathField("$.order.items[0].quantity") int firstQuantity,
+                        @JsonPathField("$.order.items[1].sku") String secondSku,
+                        @JsonPathField("$.order.items[1].quantity") int secondQuantity,
+                        @JsonPathField("$.order.shipping.country") String country,
+                        @JsonPathField("$.order.shipping.express") boolean express) {
+    }
+
+    static final String JSON = "{\"header\":{\"id\":\"evt-1\",\"source\":\"web\",\"version\":3,\"replay\":false},"
+            + "\"order\":{\"id\":\"o-77\",\"customer\":{\"id\":\"c-9\",\"tier\":\"gold\"},\"total\":120.5,"
+            + "\"tax\":20.1,\"currency\":\"EUR\",\"items\":[{\"sku\":\"A-1\",\"quantity\":2},"
+            + "{\"sku\":\"B-2\",\"quantity\":1}],\"shipping\":{\"country\":\"NL\",\"express\":true}}}";
+
+    private JsonProjection<Event> projection;
+    private DocumentContext context;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        projection = JsonProjection.of(Event.class);
+        context = JsonPathUtil.parseJson(JSON);
+        bytes = Payloads.utf8(JSON);
+    }
+
+    static Event viaGetters(DocumentContext context) {
+        return new Event(
+                JsonPathUtil.getString(context, "$.header.id"),
+                JsonPathUtil.getString(context, "$.header.source"),
+                JsonPathUtil.getInteger(context, "$.header.version"),
+                JsonPathUtil.getBoolean(context, "$.header.replay"),
+                JsonPathUtil.getString(context, "$.order.id"),
+                JsonPathUtil.getString(context, "$.order.customer.id"),
+                JsonPathUtil.getString(context, "$.order.customer.tier"),
+                JsonPathUtil.getDouble(context, "$.order.total"),
+                JsonPathUtil.getDouble(context, "$.order.tax"),
+                JsonPathUtil.getString(context, "$.order.currency"),
+                JsonPathUtil.getString(context, "$.order.items[0].sku"),
+                JsonPathUtil.getInteger(context, "$.order.items[0].quantity"),
+                JsonPathUtil.getString(context, "$.order.items[1].sku"),
+                JsonPathUtil.getInteger(context, "$.order.items[1].quantity"),
+                JsonPathUtil.getString(context, "$.order.shipping.country"),
+                JsonPathUtil.getBoolean(context, "$.order.shipping.express"));
+    }
+
+    @Benchmark
+    public Event gettersOnContext() {
+        return viaGetters(context);
+    }
+
+    @Benchmark
+    public Event projectionOnContext() {
+        return projection.project(context);
+    }
+
+    @Benchmark
+    public Event parseAndGetters() {
+        return viaGetters(JsonPathUtil.parseJson(bytes));
+    }
+
+    @Benchmark
+    public Event projectionOnBytes() {
+        return projection.project(bytes);
+    }
+}
@@ -0,0 +1,115 @@
+package com.oniox.learn.bench;
+
+import com.oniox.learn.KeyGenerator;
+import com.oniox.learn.UniqueKeyGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key generation with KeyGenerator, next to the previous single-SecureRandom implementation, and
+ * with UniqueKeyGenerator.
+ * Contention is what this suite is about; run it with {@code -t 1,2,4,8,16,32,64}.
+ * UniqueKeyGenerator issues at most 4096 keys per millisecond per node; once its drift allowance
+ * is used up, its results show that cap rather than the generator's own cost.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyGeneratorBenchmark {
+
+    static final int BATCH = 1_000;
+
+    // The previous implementation: one shared SecureRandom and a fresh array per key
+    private static final SecureRandom LEGACY_RANDOM = new SecureRandom();
+    private static final HexFormat LEGACY_HEX = HexFormat.of();
+
+    private static final UniqueKeyGenerator UNIQUE = UniqueKeyGenerator.builder().nodeId(1).build();
+
+    @State(Scope.Thread)
+    public static class Buffers {
+        final char[] chars = new char[8];
+        final StringBuilder builder = new StringBuilder(8);
+        UniqueKeyGenerator.KeyBlock block = UNIQUE.reserve(BATCH);
+    }
+
+    @Benchmark
+    public String legacyGenerateKey() {
+        byte[] randomBytes = new byte[4];
+        LEGACY_RANDOM.nextBytes(randomBytes);
+        return LEGACY_HEX.formatHex(randomBytes);
+    }
+
+    @Benchmark
+    public String generateKey() {
+        return KeyGenerator.generateKey();
+    }
+
+    @Benchmark
+    public String generateKey16() {
+        return KeyGenerator.generateKey(16);
+    }
+
+    @Benchmark
+    public char[] generateKeyIntoChars(Buffers buffers) {
+        KeyGenerator.generateKey(buffers.chars, 0);
+        return buffers.chars;
+    }
+
+    @Benchmark
+    public StringBuilder appendKey(Buffers buffers) {
+        buffers.builder.setLength(0);
+        return KeyGenerator.appendKey(buffers.builder);
+    }
+
+    @Benchmark
+    public long nextLong() {
+        return KeyGenerator.nextLong();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void generateKeyBulk(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(KeyGenerator.generateKey());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public String[] generateKeys() {
+        return KeyGenerator.generateKeys(BATCH);
+    }
+
+    @Benchmark
+    public long uniqueNextKey() {
+        return UNIQUE.nextKey();
+    }
+
+    @Benchmark
+    public String uniqueNextHexKey() {
+        return UNIQUE.nextHexKey();
+    }
+
+    @Benchmark
+    public long uniqueFromBlock(Buffers buffers) {
+        if (!buffers.block.hasNext()) {
+            buffers.block = UNIQUE.reserve(BATCH);
+        }
+        return buffers.block.nextKey();
+    }
+}
@@ -0,0 +1,83 @@
+package com.oniox.learn.bench;
+
+import com.oniox.learn.LatestVersionIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent ingest and lookups on LatestVersionIndex over 100k keys; run with {@code -t 1,4,16}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatestVersionIndexBenchmark {
+
+    static final int KEYS = 100_000;
+    static final String[] DOMAINS = {"fx", "rates", "credit", "equity"};
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        LatestVersionIndex index;
+        String[] ids;
+        String[] domains;
+
+        @Setup
+        public void setUp() {
+            index = new LatestVersionIndex();
+            ids = new String[KEYS];
+            domains = new String[KEYS];
+            for (int i = 0; i < KEYS; i++) {
+                ids[i] = "trade" + i;
+                domains[i] = DOMAINS[i & 3];
+                index.offer(ids[i] + "_" + domains[i] + "_1");
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        long version = 1;
+        String[] staleIds;
+
+        @Setup
+        public void setUp(Shared shared) {
+            staleIds = new String[1024];
+            for (int i = 0; i < staleIds.length; i++) {
+                staleIds[i] = shared.ids[i * 97 % KEYS] + "_" + shared.domains[i * 97 % KEYS] + "_0";
+            }
+        }
+    }
+
+    @Benchmark
+    public long latestVersion(Shared shared, Cursor cursor) {
+        int i = cursor.next++ % KEYS;
+        return shared.index.latestVersion(shared.ids[i], shared.domains[i]);
+    }
+
+    @Benchmark
+    public boolean offerStale(Shared shared, Cursor cursor) {
+        return shared.index.offer(cursor.staleIds[cursor.next++ & 1023]);
+    }
+
+    @Benchmark
+    public boolean offerNewer(Shared shared, Cursor cursor) {
+        int i = cursor.next++ % KEYS;
+        if (i == 0) {
+            cursor.version++;
+        }
+        return shared.index.offer(shared.ids[i], shared.domains[i], cursor.version, null);
+    }
+}
@@ -0,0 +1,256 @@
+package com.oniox.learn.bench;
+
+import com.oniox.learn.AdaptiveLimiter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives the {@code AsyncConfig} executor and {@link AdaptiveLimiter} with synthetic load and
+ * prints, per phase, how many requests finished in time, timed out or were shed, with latency
+ * percentiles and the limit.
+ * <p>
+ * The downstream serves at most {@code capacity} requests at once, each for an exponentially
+ * distributed time around {@code serviceMillis}, and queues the rest. Requests arrive as a
+ * Poisson process at {@code ratePerSecond}. Each profile is three phases that change one of
+ * these; times are scaled down, with a one-second timeout standing in for the real ten.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.oniox.learn.bench.LimiterSimulation [options]
+ *
+ *   --phase-seconds N    length of each phase (default 3)
+ *   --profiles A,B       profiles to run (default all): steady, slowdown, overload, fast
+ *   --policies A,B       policies to run (default all): fixed, aimd, gradient
+ * </pre>
+ */
+public final class LimiterSimulation {
+
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * One stretch of constant downstream behaviour and load.
+     */
+    record Phase(String name, int capacity, double serviceMillis, double ratePerSecond) {
+    }
+
+    enum Profile {
+        STEADY(new Phase("steady", 8, 20, 250), new Phase("steady", 8, 20, 250), new Phase("steady", 8, 20, 250)),
+        SLOWDOWN(new Phase("normal", 8, 20, 250), new Phase("slow x4", 8, 80, 250), new Phase("recovered", 8, 20, 250)),
+        OVERLOAD(new Phase("normal", 8, 20, 250), new Phase("load x3", 8, 20, 750), new Phase("normal", 8, 20, 250)),
+        FAST(new Phase("fast", 32, 5, 2000), new Phase("fast", 32, 5, 4000), new Phase("fast", 32, 5, 2000));
+
+        final Phase[] phases;
+
+        Profile(Phase... phases) {
+            this.phases = phases;
+        }
+    }
+
+    enum Policy {
+        /** What AsyncConfig.taskExecutor does: 2 core threads, 4 at most, a queue of 100. */
+        FIXED,
+        AIMD,
+        GRADIENT
+    }
+
+    private LimiterSimulation() {
+        throw new AssertionError("No instances");
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int phaseSeconds = 3;
+        List<Profile> profiles = new ArrayList<>(List.of(Profile.values()));
+        List<Policy> policies = new ArrayList<>(List.of(Policy.values()));
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--phase-seconds":
+                    phaseSeconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--profiles":
+                    profiles.clear();
+                    for (String name : args[++i].split(",")) {
+                        profiles.add(Profile.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                    }
+                    break;
+                case "--policies":
+                    policies.clear();
+                    for (String name : args[++i].split(",")) {
+                        policies.add(Policy.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        for (Profile profile : profiles) {
+            System.out.printf("%n== %s%n%-9s %-10s %8s %8s %8s %8s %8s %8s %7s %9s%n", profile, "policy", "phase",
+                    "offered", "in time", "late", "shed", "p50 ms", "p99 ms", "limit", "wait us");
+            for (Policy policy : policies) {
+                run(profile, policy, phaseSeconds);
+            }
+        }
+    }
+
+    private static void run(Profile profile, Policy policy, int phaseSeconds) throws InterruptedException {
+        Downstream downstream = new Downstream();
+        ExecutorService threads;
+        Executor executor;
+        AdaptiveLimiter limiter = null;
+        if (policy == Policy.FIXED) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(2, 4, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(100));
+            threads = pool;
+            executor = pool;
+        } else {
+            limiter = AdaptiveLimiter.builder()
+                    .algorithm(policy == Policy.AIMD ? AdaptiveLimiter.Algorithm.AIMD : AdaptiveLimiter.Algorithm.GRADIENT)
+                    .limits(2, 4, 256)
+                    .dropLatency(Duration.ofNanos(TIMEOUT_NANOS))
+                    .maxQueueWait(Duration.ofMillis(5))
+                    .build();
+            threads = Executors.newCachedThreadPool();
+            executor = limiter.wrap(threads);
+        }
+        Random random = new Random(42);
+        AdaptiveLimiter.Stats before = limiter != null ? limiter.stats() : null;
+        for (Phase phase : profile.phases) {
+            downstream.configure(phase);
+            PhaseStats stats = new PhaseStats();
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(phaseSeconds);
+            long next = start;
+            double limitSum = 0;
+            long limitSamples = 0;
+            long sampled = start;
+            while (next < end) {
+                long sleep = next - System.nanoTime();
+                if (sleep > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                }
+                long submitted = System.nanoTime();
+                stats.offered++;
+                try {
+                    executor.execute(() -> {
+                        downstream.serve();
+                        stats.finish(System.nanoTime() - submitted);
+                    });
+                } catch (RejectedExecutionException e) {
+                    stats.shed.incrementAndGet();
+                }
+                if (submitted - sampled > TimeUnit.MILLISECONDS.toNanos(10)) {
+                    limitSum += limiter != null ? limiter.limit() : 4;
+                    limitSamples++;
+                    sampled = submitted;
+                }
+                next += (long) (-Math.log(1 - random.nextDouble()) * 1e9 / phase.ratePerSecond);
+            }
+            // Let the phase's requests finish, or time out, before reporting it
+            TimeUnit.NANOSECONDS.sleep(TIMEOUT_NANOS);
+            String queueWait = "-";
+            if (limiter != null) {
+                AdaptiveLimiter.Stats after = limiter.stats();
+                long acquired = after.acquired() - before.acquired();
+                queueWait = String.format("%.0f", acquired == 0 ? 0 : (after.queueWaitNanos() - before.queueWaitNanos()) / 1e3 / acquired);
+                before = after;
+            }
+            System.out.printf("%-9s %-10s %8d %8d %8d %8d %8.1f %8.1f %7.1f %9s%n", policy, phase.name, stats.offered,
+                    stats.inTime(), stats.late(), stats.shed.get(), stats.percentile(0.5), stats.percentile(0.99),
+                    limitSamples == 0 ? 0 : limitSum / limitSamples,
+                    queueWait);
+        }
+        threads.shutdownNow();
+        threads.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A downstream with a fixed number of servers, each taking an exponential service time.
+     * Late requests are not cut off, so they keep occupying a server, as in AsyncService.
+     */
+    static final class Downstream {
+        private final Random random = new Random(7);
+        private int capacity;
+        private double serviceMillis;
+        private int busy;
+
+        synchronized void configure(Phase phase) {
+            capacity = phase.capacity;
+            serviceMillis = phase.serviceMillis;
+            notifyAll();
+        }
+
+        void serve() {
+            long service;
+            synchronized (this) {
+                while (busy >= capacity) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                busy++;
+                service = (long) (-Math.log(1 - random.nextDouble()) * serviceMillis * 1e6);
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(service);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                synchronized (this) {
+                    busy--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    static final class PhaseStats {
+        long offered;
+        final AtomicInteger shed = new AtomicInteger();
+        private long[] latencies = new long[1024];
+        private int finished;
+
+        synchronized void finish(long latency) {
+            if (finished == latencies.length) {
+                latencies = Arrays.copyOf(latencies, finished * 2);
+            }
+            latencies[finished++] = latency;
+        }
+
+        synchronized long inTime() {
+            long count = 0;
+            for (int i = 0; i < finished; i++) {
+                if (latencies[i] <= TIMEOUT_NANOS) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        synchronized long late() {
+            // Requests still running count as late: they have outlived the timeout by now
+            return offered - shed.get() - inTime();
+        }
+
+        synchronized double percentile(double p) {
+            if (finished == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, finished);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(finished - 1, Math.floor(p * finished))] / 1e6;
+        }
+    }
+}
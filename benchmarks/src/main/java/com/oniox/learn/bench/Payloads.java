@@ -0,0 +1,86 @@
+package com.oniox.learn.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Deterministic benchmark inputs.
+ */
+final class Payloads {
+
+    static final String VERSION_PATH = "$.header.version";
+    static final String SKU_PATH = "$.orders[0].items[1].sku";
+
+    private Payloads() {
+        throw new AssertionError("No instances");
+    }
+
+    /**
+     * Parses a size label such as "1KB", "100KB" or "10MB".
+     */
+    static int bytes(String label) {
+        String upper = label.toUpperCase();
+        if (upper.endsWith("MB")) {
+            return Integer.parseInt(upper.substring(0, upper.length() - 2)) * 1024 * 1024;
+        }
+        if (upper.endsWith("KB")) {
+            return Integer.parseInt(upper.substring(0, upper.length() - 2)) * 1024;
+        }
+        return Integer.parseInt(upper);
+    }
+
+    /**
+     * Builds an order-event document of roughly the given size: a small header followed by
+     * as many orders as fit.
+     */
+    static String document(int targetBytes) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(targetBytes + 512);
+        json.append("{\"header\":{\"id\":\"evt-1\",\"version\":3,\"source\":\"gateway\"},\"orders\":[");
+        int order = 0;
+        do {
+            if (order > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"o-").append(order)
+                    .append("\",\"total\":").append(random.nextInt(100_000) / 100.0)
+                    .append(",\"customer\":{\"name\":\"Customer ").append(random.nextInt(1000))
+                    .append("\",\"country\":\"").append(order % 2 == 0 ? "NL" : "DE")
+                    .append("\"},\"items\":[{\"sku\":\"A-").append(random.nextInt(100))
+                    .append("\",\"qty\":").append(1 + random.nextInt(5))
+                    .append("},{\"sku\":\"B-").append(random.nextInt(100))
+                    .append("\",\"qty\":").append(1 + random.nextInt(5)).append("}]}");
+            order++;
+        } while (json.length() < targetBytes - 2);
+        return json.append("]}").toString();
+    }
+
+    static byte[] utf8(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Composite identifiers in the {@code name_domain_id_version} layout parsed by StringExtractor.
+     */
+    static String[] ids(int count) {
+        Random random = new Random(7);
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = "trade_" + (i % 3 == 0 ? "fx" : "rates") + "_" + random.nextInt(10_000_000) + "_" + random.nextInt(50);
+        }
+        return ids;
+    }
+
+    /**
+     * ISO dates spread over roughly thirty years.
+     */
+    static String[] dates(int count) {
+        Random random = new Random(11);
+        String[] dates = new String[count];
+        for (int i = 0; i < count; i++) {
+            dates[i] = LocalDate.ofEpochDay(random.nextInt(11_000)).toString();
+        }
+        return dates;
+    }
+}
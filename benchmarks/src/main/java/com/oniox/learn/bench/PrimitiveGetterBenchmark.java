@@ -0,0 +1,70 @@
+package com.oniox.learn.bench;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.oniox.learn.JsonPathUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eight integer reads through the boxed JsonPathUtil getter and the primitive, exception-free
+ * one, on a document where every path is present ("hit") and one where most are absent ("miss").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveGetterBenchmark {
+
+    static final String[] PATHS = {
+        "$.order.quantity", "$.order.total", "$.order.customer.age", "$.order.items[0].quantity",
+        "$.order.items[1].quantity", "$.order.discount", "$.order.customer.points", "$.order.shipping.days"
+    };
+
+    static final String HIT_JSON = "{\"order\":{\"quantity\":3,\"total\":120,\"discount\":5,"
+            + "\"customer\":{\"age\":41,\"points\":1200},\"items\":[{\"quantity\":2},{\"quantity\":1}],"
+            + "\"shipping\":{\"days\":2}}}";
+
+    static final String MISS_JSON = "{\"order\":{\"quantity\":3,\"customer\":{}}}";
+
+    @Param({"hit", "miss"})
+    public String document;
+
+    private DocumentContext context;
+
+    @Setup
+    public void setUp() {
+        context = JsonPathUtil.parseJson(document.equals("hit") ? HIT_JSON : MISS_JSON);
+    }
+
+    @Benchmark
+    public long boxed() {
+        long sum = 0;
+        for (String path : PATHS) {
+            Integer value = JsonPathUtil.getInteger(context, path);
+            sum += value == null ? 0 : value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long primitive() {
+        long sum = 0;
+        for (String path : PATHS) {
+            sum += JsonPathUtil.getInt(context, path, 0);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,161 @@
+package com.oniox.learn.bench;
+
+import com.oniox.learn.BatchLoader;
+import com.oniox.learn.InListQuery;
+import com.oniox.learn.QueryFanOut;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls of {@code executeConcurrentQueries} shape (one point lookup per key) against an H2 server
+ * over loopback TCP with a 10-connection pool, so each query pays a real round trip. Compares
+ * the current fixed pool per call with {@link QueryFanOut} and with {@link BatchLoader} over
+ * {@link InListQuery}; run with {@code -t 1,4,16} to see them under concurrent callers. Scores
+ * are calls per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryFanOutBenchmark {
+
+    static final int ROWS = 10_000;
+    static final int POOL_SIZE = 10;
+    static final String SQL = "SELECT column_name FROM some_table WHERE id = ?";
+
+    @Param({"FIXED_POOL", "FAN_OUT", "BATCHED"})
+    public String mode;
+
+    @Param({"10", "100"})
+    public int keysPerCall;
+
+    private Server server;
+    private JdbcConnectionPool pool;
+    private QueryFanOut fanOut;
+    private BatchLoader<Integer, String> loader;
+    private ExecutorService batchExecutor;
+
+    @Setup
+    public void setUp() throws SQLException, IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = Server.createTcpServer("-tcpPort", Integer.toString(port), "-ifNotExists").start();
+        pool = JdbcConnectionPool.create("jdbc:h2:tcp://localhost:" + port + "/mem:fanout;DB_CLOSE_DELAY=-1", "sa", "");
+        pool.setMaxConnections(POOL_SIZE);
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE some_table (id INT PRIMARY KEY, column_name VARCHAR(50))");
+            statement.execute("INSERT INTO some_table SELECT X, 'value' || X FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+        fanOut = QueryFanOut.builder().dataSource(pool).poolSize(POOL_SIZE).maxWait(Duration.ofSeconds(1)).build();
+        // Half the pool for batches, leaving room for other work as in production
+        batchExecutor = Executors.newFixedThreadPool(POOL_SIZE / 2);
+        loader = BatchLoader.<Integer, String>builder()
+                .batchFunction(InListQuery.builder(Integer.class, rs -> rs.getString("column_name"))
+                        .dataSource(pool)
+                        .table("some_table")
+                        .columns("id", "column_name")
+                        .build())
+                .maxBatchSize(100)
+                .maxDelay(Duration.ofMillis(1))
+                .executor(batchExecutor)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        loader.close();
+        batchExecutor.shutdown();
+        fanOut.close();
+        pool.dispose();
+        server.stop();
+    }
+
+    @Benchmark
+    public void call(Blackhole blackhole) throws Exception {
+        List<Integer> keys = keys();
+        switch (mode) {
+            case "FIXED_POOL":
+                fixedPool(keys, blackhole);
+                break;
+            case "FAN_OUT":
+                try (QueryFanOut.Results<Integer, String> results =
+                             fanOut.fanOut(SQL, keys, rs -> rs.getString(1), Duration.ofSeconds(5))) {
+                    results.forEachRemaining(blackhole::consume);
+                }
+                break;
+            case "BATCHED":
+                blackhole.consume(loader.loadAll(keys).get());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+
+    private List<Integer> keys() {
+        List<Integer> keys = new ArrayList<>(keysPerCall);
+        for (int i = 0; i < keysPerCall; i++) {
+            keys.add(1 + ThreadLocalRandom.current().nextInt(ROWS));
+        }
+        return keys;
+    }
+
+    // What executeConcurrentQueries does: a new ten-thread pool per call, futures read in order
+    private void fixedPool(List<Integer> keys, Blackhole blackhole) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        List<Future<String>> futures = new ArrayList<>(keys.size());
+        for (Integer key : keys) {
+            futures.add(executor.submit(() -> query(key)));
+        }
+        for (Future<String> future : futures) {
+            try {
+                blackhole.consume(future.get());
+            } catch (ExecutionException e) {
+                blackhole.consume("Error: " + e.getMessage());
+            }
+        }
+        executor.shutdown();
+    }
+
+    private String query(int key) throws SQLException {
+        try (Connection connection = pool.getConnection(); PreparedStatement statement = connection.prepareStatement(SQL)) {
+            statement.setInt(1, key);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+}
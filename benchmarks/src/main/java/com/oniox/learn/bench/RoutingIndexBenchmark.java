@@ -0,0 +1,141 @@
+package com.oniox.learn.bench;
+
+import com.oniox.learn.ApiGatewayConfig;
+import com.oniox.learn.ApiGatewayConfig.ApiGateway;
+import com.oniox.learn.ApiGatewayConfig.Link;
+import com.oniox.learn.RoutingIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Lookups over gateway configurations of 10k and 50k links, 100 links per gateway, with the
+ * compiled RoutingIndex and with what ApiGatewayParser does today: rebuilding the display name
+ * map with streams per call, and scanning every link to route a request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingIndexBenchmark {
+
+    static final int LINKS_PER_GATEWAY = 100;
+    static final String[] ACTIONS = {"GET", "POST", "PUT", "DELETE"};
+
+    @Param({"10000", "50000"})
+    public int links;
+
+    private ApiGatewayConfig config;
+    private RoutingIndex index;
+    private String[] names;
+    private String[] gateways;
+    private String[] actions;
+    private String[] urls;
+    private String[] requests;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        int gatewayCount = links / LINKS_PER_GATEWAY;
+        List<ApiGateway> apiGateways = new ArrayList<>(gatewayCount);
+        names = new String[links];
+        gateways = new String[links];
+        actions = new String[links];
+        urls = new String[links];
+        requests = new String[links];
+        for (int g = 0; g < gatewayCount; g++) {
+            List<Link> gatewayLinks = new ArrayList<>(LINKS_PER_GATEWAY);
+            for (int l = 0; l < LINKS_PER_GATEWAY; l++) {
+                int i = g * LINKS_PER_GATEWAY + l;
+                names[i] = "Link " + i;
+                gateways[i] = "Gateway" + g;
+                actions[i] = ACTIONS[l & 3];
+                // Every other link has a path variable
+                urls[i] = "https://api" + g + ".example.com/v1/resource" + (l >> 2) + (l % 2 == 0 ? "/{id}/items" : "/items");
+                requests[i] = urls[i].replace("{id}", Integer.toString(i));
+                gatewayLinks.add(new Link(names[i], actions[i], urls[i], l % 3 == 0, ""));
+            }
+            apiGateways.add(new ApiGateway(gateways[g * LINKS_PER_GATEWAY],
+                    new ApiGatewayConfig.Endpoint(new ApiGatewayConfig.Targets(gatewayLinks))));
+        }
+        config = new ApiGatewayConfig(apiGateways);
+        index = RoutingIndex.compile(config);
+        // Visit the links in a random order, so lookups are not served by a warm cache line
+        Random random = new Random(5);
+        for (int i = links - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            swap(names, i, j);
+            swap(gateways, i, j);
+            swap(actions, i, j);
+            swap(urls, i, j);
+            swap(requests, i, j);
+        }
+    }
+
+    private static void swap(String[] array, int i, int j) {
+        String t = array[i];
+        array[i] = array[j];
+        array[j] = t;
+    }
+
+    private int nextLink() {
+        int i = next;
+        next = i + 1 == links ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public Link linkByDisplayName() {
+        return index.link(names[nextLink()]);
+    }
+
+    @Benchmark
+    public Link linkByGatewayAndDisplayName() {
+        int i = nextLink();
+        return index.link(gateways[i], names[i]);
+    }
+
+    @Benchmark
+    public RoutingIndex.Match route() {
+        int i = nextLink();
+        return index.route(actions[i], requests[i]);
+    }
+
+    @Benchmark
+    public Link legacyLinkByDisplayName() {
+        Map<String, Link> byName = config.apiGateways().stream()
+                .flatMap(gateway -> gateway.links().stream())
+                .collect(Collectors.toMap(Link::displayName, link -> link, (first, second) -> first));
+        return byName.get(names[nextLink()]);
+    }
+
+    @Benchmark
+    public Link legacyScanByActionAndUrl() {
+        int i = nextLink();
+        for (ApiGateway gateway : config.apiGateways()) {
+            for (Link link : gateway.links()) {
+                if (link.httpAction().equals(actions[i]) && link.url().equals(urls[i])) {
+                    return link;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,68 @@
+package com.oniox.learn.bench;
+
+import com.oniox.learn.CompositeIdCodec;
+import com.oniox.learn.Pair;
+import com.oniox.learn.StringExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Composite-ID parsing with StringExtractor and CompositeIdCodec, one call at a time and over a batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringExtractorBenchmark {
+
+    static final int BATCH = 10_000;
+
+    private String[] ids;
+    private long[] packed;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ids = Payloads.ids(BATCH);
+        packed = new long[BATCH];
+    }
+
+    @Benchmark
+    public Pair<Integer, Integer> extractNumbers() {
+        return StringExtractor.extractNumbers(ids[next++ & (1024 - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void extractNumbersBulk(Blackhole blackhole) {
+        for (String id : ids) {
+            blackhole.consume(StringExtractor.extractNumbers(id));
+        }
+    }
+
+    @Benchmark
+    public long codecDecode() {
+        return CompositeIdCodec.decode(ids[next++ & (1024 - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long[] codecDecodeAll() {
+        CompositeIdCodec.decodeAll(ids, packed);
+        return packed;
+    }
+}
@@ -0,0 +1,148 @@
+package com.oniox.learn.bench;
+
+import com.oniox.learn.RowHashIndex;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Random;
+
+/**
+ * A pair of in-memory H2 databases standing in for the sync's Oracle source (Oracle mode) and
+ * SQL Server target (MSSQLServer mode), with a deterministic generator of source rows and
+ * changes.
+ * <p>
+ * Each round of changes touches {@code changeRate * rows} picks of row ids. With a skew above 0,
+ * picks favour low ids (the id is {@code rows * u^(1 / (1 - skew))} for uniform u), so hot rows
+ * change repeatedly and range partitions get uneven deltas. A {@code touchRate} fraction of the
+ * picks only moves {@code last_update}, leaving the content as it was.
+ */
+final class SyncFixture implements AutoCloseable {
+
+    private static final int VALUE_LENGTH = 32;
+    private static final long BASE_MILLIS = Timestamp.valueOf("2024-01-01 00:00:00").getTime();
+
+    final JdbcConnectionPool source;
+    final JdbcConnectionPool target;
+    private final int rows;
+    private final double changeRate;
+    private final double touchRate;
+    private final double skew;
+    private final Random random = new Random(17);
+    private long clock = BASE_MILLIS;
+    private RowHashIndex index;
+
+    /**
+     * @param name       Distinguishes the fixture's databases from those of other fixtures
+     * @param rows       The number of source rows
+     * @param changeRate The fraction of rows picked for change per round
+     * @param touchRate  The fraction of picks that only move last_update
+     * @param skew       0 for uniform picks, towards 1 for picks concentrated on low ids
+     * @param poolSize   The maximum connections of each database's pool
+     */
+    SyncFixture(String name, int rows, double changeRate, double touchRate, double skew, int poolSize) throws SQLException {
+        if (skew < 0 || skew >= 1) {
+            throw new IllegalArgumentException("Skew must be at least 0 and below 1");
+        }
+        this.rows = rows;
+        this.changeRate = changeRate;
+        this.touchRate = touchRate;
+        this.skew = skew;
+        this.source = JdbcConnectionPool.create("jdbc:h2:mem:" + name + "-source;MODE=Oracle;DB_CLOSE_DELAY=-1", "sa", "");
+        this.target = JdbcConnectionPool.create("jdbc:h2:mem:" + name + "-target;MODE=MSSQLServer;DB_CLOSE_DELAY=-1", "sa", "");
+        source.setMaxConnections(poolSize);
+        target.setMaxConnections(poolSize);
+        createSchema();
+        populate();
+    }
+
+    private void createSchema() throws SQLException {
+        try (Connection connection = source.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE source_table (id NUMBER(10) PRIMARY KEY, col1 VARCHAR2(255),"
+                    + " col2 VARCHAR2(255), last_update TIMESTAMP NOT NULL)");
+            statement.execute("CREATE INDEX source_last_update ON source_table (last_update, id)");
+        }
+        try (Connection connection = target.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE target_table (id INT PRIMARY KEY, col1 NVARCHAR(255),"
+                    + " col2 NVARCHAR(255), last_update DATETIME2)");
+            statement.execute("CREATE TABLE staging_table (id INT, col1 NVARCHAR(255), col2 NVARCHAR(255), last_update DATETIME2)");
+            statement.execute("CREATE TABLE sync_control (sync_name VARCHAR(100) NOT NULL, partition_id INT NOT NULL,"
+                    + " partition_count INT NOT NULL, lower_id INT, upper_id INT, watermark DATETIME2 NOT NULL,"
+                    + " watermark_id INT NOT NULL, rows_synced BIGINT NOT NULL, PRIMARY KEY (sync_name, partition_id))");
+        }
+    }
+
+    private void populate() throws SQLException {
+        try (Connection connection = source.getConnection();
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO source_table VALUES (?, ?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            for (int id = 1; id <= rows; id++) {
+                insert.setInt(1, id);
+                insert.setString(2, value());
+                insert.setString(3, value());
+                insert.setTimestamp(4, new Timestamp(++clock));
+                insert.addBatch();
+                if (id % 1000 == 0 || id == rows) {
+                    insert.executeBatch();
+                }
+            }
+            connection.commit();
+        }
+    }
+
+    /**
+     * Applies one round of changes to the source.
+     *
+     * @return The number of picks, some of which may hit the same row
+     */
+    int applyChanges() throws SQLException {
+        int picks = (int) (rows * changeRate);
+        try (Connection connection = source.getConnection();
+             PreparedStatement change = connection.prepareStatement(
+                     "UPDATE source_table SET col1 = COALESCE(?, col1), last_update = ? WHERE id = ?")) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < picks; i++) {
+                int id = 1 + (int) (rows * Math.pow(random.nextDouble(), 1 / (1 - skew)));
+                // A null col1 leaves the content as it is
+                change.setString(1, random.nextDouble() < touchRate ? null : value());
+                change.setTimestamp(2, new Timestamp(++clock));
+                change.setInt(3, Math.min(id, rows));
+                change.addBatch();
+            }
+            change.executeBatch();
+            connection.commit();
+        }
+        return picks;
+    }
+
+    /**
+     * @return The target's row hash index, loaded from the target on first use
+     */
+    RowHashIndex index() throws SQLException {
+        if (index == null) {
+            index = RowHashIndex.load(target, "target_table", 1000);
+        }
+        return index;
+    }
+
+    private String value() {
+        char[] chars = new char[VALUE_LENGTH];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (JdbcConnectionPool pool : new JdbcConnectionPool[]{source, target}) {
+            try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+            pool.dispose();
+        }
+    }
+}
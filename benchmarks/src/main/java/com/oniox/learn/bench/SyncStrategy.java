@@ -0,0 +1,134 @@
+package com.oniox.learn.bench;
+
+import com.oniox.learn.PartitionedDataSync;
+import com.oniox.learn.StreamingDataSync;
+import com.oniox.learn.SyncMetrics;
+import com.oniox.learn.SyncRecord;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ways of syncing a {@link SyncFixture}'s source into its target, run end to end.
+ */
+enum SyncStrategy {
+
+    /**
+     * What {@code DataSyncService.syncData} does: the whole delta in a list, then one
+     * literal-valued MERGE statement per 500 rows.
+     */
+    LITERAL {
+        @Override
+        long sync(SyncFixture fixture, SyncMetrics metrics) throws SQLException {
+            return literalMerge(fixture, metrics);
+        }
+    },
+    STREAMING {
+        @Override
+        long sync(SyncFixture fixture, SyncMetrics metrics) throws SQLException {
+            return StreamingDataSync.builder().source(fixture.source).target(fixture.target)
+                    .metrics(metrics).build().sync().rowsWritten();
+        }
+    },
+    STAGED {
+        @Override
+        long sync(SyncFixture fixture, SyncMetrics metrics) throws SQLException {
+            return StreamingDataSync.builder().source(fixture.source).target(fixture.target)
+                    .stagingTable("staging_table").metrics(metrics).build().sync().rowsWritten();
+        }
+    },
+    STREAMING_HASH {
+        @Override
+        long sync(SyncFixture fixture, SyncMetrics metrics) throws SQLException {
+            return StreamingDataSync.builder().source(fixture.source).target(fixture.target)
+                    .changeDetection(fixture.index()).metrics(metrics).build().sync().rowsWritten();
+        }
+    },
+    PARTITIONED {
+        @Override
+        long sync(SyncFixture fixture, SyncMetrics metrics) throws SQLException {
+            return PartitionedDataSync.builder().source(fixture.source).target(fixture.target)
+                    .poolSizes(4, 4).metrics(metrics).build().sync().rowsWritten();
+        }
+    },
+    PARTITIONED_HASH {
+        @Override
+        long sync(SyncFixture fixture, SyncMetrics metrics) throws SQLException {
+            return PartitionedDataSync.builder().source(fixture.source).target(fixture.target)
+                    .poolSizes(4, 4).changeDetection(fixture.index()).metrics(metrics).build().sync().rowsWritten();
+        }
+    };
+
+    /**
+     * Runs one sync.
+     *
+     * @return The number of rows written to the target
+     */
+    abstract long sync(SyncFixture fixture, SyncMetrics metrics) throws SQLException;
+
+    private static final int LITERAL_BATCH = 500;
+
+    private static long literalMerge(SyncFixture fixture, SyncMetrics metrics) throws SQLException {
+        Timestamp watermark;
+        try (Connection connection = fixture.target.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MAX(last_update) FROM target_table")) {
+            watermark = rs.next() && rs.getTimestamp(1) != null ? rs.getTimestamp(1) : new Timestamp(0);
+        }
+        long start = System.nanoTime();
+        List<SyncRecord> records = new ArrayList<>();
+        long bytes = 0;
+        try (Connection connection = fixture.source.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT id, col1, col2, last_update FROM source_table WHERE last_update > ?")) {
+            statement.setTimestamp(1, watermark);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    SyncRecord record = new SyncRecord(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getTimestamp(4));
+                    records.add(record);
+                    bytes += record.estimatedBytes();
+                }
+            }
+        }
+        metrics.recordBatch(SyncMetrics.Stage.FETCH, records.size(), bytes, System.nanoTime() - start);
+        try (Connection connection = fixture.target.getConnection(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < records.size(); i += LITERAL_BATCH) {
+                List<SyncRecord> batch = records.subList(i, Math.min(i + LITERAL_BATCH, records.size()));
+                long built = System.nanoTime();
+                String sql = literalMergeSql(batch);
+                long executed = System.nanoTime();
+                statement.execute(sql);
+                metrics.recordBatch(SyncMetrics.Stage.BUILD, batch.size(), 2L * sql.length(), executed - built);
+                metrics.recordBatch(SyncMetrics.Stage.EXECUTE, batch.size(), 2L * sql.length(), System.nanoTime() - executed);
+            }
+            connection.commit();
+        }
+        return records.size();
+    }
+
+    private static String literalMergeSql(List<SyncRecord> records) {
+        StringBuilder sql = new StringBuilder("MERGE INTO target_table AS target USING (VALUES ");
+        for (int i = 0; i < records.size(); i++) {
+            SyncRecord record = records.get(i);
+            sql.append(i == 0 ? "(" : ", (").append(record.id()).append(", ");
+            literal(sql, record.col1()).append(", ");
+            literal(sql, record.col2()).append(", ");
+            sql.append("TIMESTAMP '").append(record.lastUpdate()).append("')");
+        }
+        return sql.append(") AS source (id, col1, col2, last_update) ON target.id = source.id"
+                + " WHEN MATCHED THEN UPDATE SET col1 = source.col1, col2 = source.col2, last_update = source.last_update"
+                + " WHEN NOT MATCHED THEN INSERT (id, col1, col2, last_update)"
+                + " VALUES (source.id, source.col1, source.col2, source.last_update);").toString();
+    }
+
+    private static StringBuilder literal(StringBuilder sql, String value) {
+        return value == null ? sql.append("NULL") : sql.append('\'').append(value.replace("'", "''")).append('\'');
+    }
+}